@@ -1,5 +1,6 @@
 package graph;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
@@ -7,11 +8,13 @@ import java.util.HashMap;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 
 public class ConcreteEdgesGraph implements Graph<String> { 
     
     private final Set<String> vertices = new HashSet<>();
     private final List<Edge> edges = new ArrayList<>();
+    private long fingerprint;
     
 
 	 // Abstraction function:
@@ -21,6 +24,7 @@ public class ConcreteEdgesGraph implements Graph<String> {
 	//Representation invariant:
 	//  vertices contains all the vertices in edges
 	//  edges don't contain edges from the same source to the same target
+	//  fingerprint == Fingerprint.compute(this)
 	//Safety from rep exposure:
 	//  String and int are immutable
 	//  Set<String> and List<Edge<String>> are never returned, and are declared as private final
@@ -38,10 +42,29 @@ public class ConcreteEdgesGraph implements Graph<String> {
             assert relations.get(source).contains(target) == false;
             relations.get(source).add(target);
         }
+        assert fingerprint == computeFingerprint();
     } 
 
+    /**
+     * @return the fingerprint of this graph, computed from all its vertices
+     *         and edges
+     */
+    private long computeFingerprint() {
+        long sum = 0;
+        for (String vertex : vertices) {
+            sum += Fingerprint.vertex(vertex);
+        }
+        for (Edge edge : edges) {
+            sum += Fingerprint.edge(edge.getSource(), edge.getTarget(), edge.getWeight());
+        }
+        return sum;
+    }
+
     @Override public boolean add(String vertex) {
         boolean included = !vertices.add(vertex);
+        if (!included) {
+            fingerprint += Fingerprint.vertex(vertex);
+        }
         checkRep();
         return included;
     }
@@ -66,8 +89,12 @@ public class ConcreteEdgesGraph implements Graph<String> {
     @Override public int set(String source, String target, int weight) {
         assert weight >= 0;
         if (weight > 0) {
-            vertices.add(source);
-            vertices.add(target);
+            if (vertices.add(source)) {
+                fingerprint += Fingerprint.vertex(source);
+            }
+            if (vertices.add(target)) {
+                fingerprint += Fingerprint.vertex(target);
+            }
         }
 
         int original;
@@ -75,12 +102,14 @@ public class ConcreteEdgesGraph implements Graph<String> {
             Edge edge = findEdge(source, target);
             original = edge.getWeight();
             edges.remove(edge);
+            fingerprint -= Fingerprint.edge(source, target, original);
         }
         catch (NoSuchElementException e) {
             original = 0;
         }
         if (weight > 0) {
             edges.add(new Edge(source, target, weight));
+            fingerprint += Fingerprint.edge(source, target, weight);
         }
         
         checkRep();
@@ -105,11 +134,69 @@ public class ConcreteEdgesGraph implements Graph<String> {
 
     @Override public boolean remove(String vertex) {
         boolean included = vertices.remove(vertex);
-        edges.removeAll(findVertexEdges(vertex));
+        if (included) {
+            fingerprint -= Fingerprint.vertex(vertex);
+        }
+        Set<Edge> removed = findVertexEdges(vertex);
+        for (Edge edge : removed) {
+            fingerprint -= Fingerprint.edge(edge.getSource(), edge.getTarget(), edge.getWeight());
+        }
+        edges.removeAll(removed);
         checkRep();
         return included;
     }
 
+    /**
+     * Remove vertices from this graph; any edges to or from them are also
+     * removed. This scans the edges once, however many vertices are removed.
+     *
+     * @param vertices labels of the vertices to remove
+     * @return true if this graph included any of the vertices; otherwise false
+     *         (and this graph is not modified)
+     */
+    public boolean removeAll(Collection<String> vertices) {
+        Set<String> removed = new HashSet<>(vertices);
+        boolean included = false;
+        for (String vertex : removed) {
+            if (this.vertices.remove(vertex)) {
+                fingerprint -= Fingerprint.vertex(vertex);
+                included = true;
+            }
+        }
+        edges.removeIf(edge -> {
+            if (removed.contains(edge.getSource()) || removed.contains(edge.getTarget())) {
+                fingerprint -= Fingerprint.edge(edge.getSource(), edge.getTarget(), edge.getWeight());
+                return true;
+            }
+            return false;
+        });
+        checkRep();
+        return included;
+    }
+
+    /**
+     * Get a spliterator over the edges of this graph, which splits the edge
+     * list evenly. See {@link EdgeSpliterator}.
+     *
+     * @return a spliterator over the edges of this graph; this graph must not
+     *         be modified while it is in use
+     */
+    public Spliterator<WeightedEdge> edgeSpliterator() {
+        return edges.stream()
+                .map(edge -> new WeightedEdge(edge.getSource(), edge.getTarget(), edge.getWeight()))
+                .spliterator();
+    }
+
+    /**
+     * Get the fingerprint of this graph, kept up to date in O(1) time per
+     * vertex or edge changed. See {@link Fingerprint}.
+     *
+     * @return fingerprint of this graph
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
     @Override public Set<String> vertices() {
         return vertices;
     }
@@ -140,11 +227,7 @@ public class ConcreteEdgesGraph implements Graph<String> {
      *         representing the edges in the graph
      */
     @Override public String toString() {
-        String result = "";
-        for (Edge edge : edges) {
-            result = result.concat(edge.toString() + "\n");
-        }
-        return result.strip();
+        return GraphExporter.toText(this);
     }
 }
 
@@ -4,6 +4,7 @@
 package graph;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -11,6 +12,7 @@ import java.util.HashMap;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 
 /**
  * An implementation of Graph.
@@ -19,16 +21,38 @@ import java.util.NoSuchElementException;
  */
 public class ConcreteVerticesGraph implements Graph<String> {
     
-    private final List<Vertex> vertices = new ArrayList<>();
+    private final List<Vertex> vertices;
+    private long fingerprint;
     
     // Abstraction function:
     //   vertices represents the vertices in the graph, as well as the outgoing
     //     edges from the vertices to target labels with weights
     // Representation invariant:
     //   vertices don't contain vertices of the same label
+    //   fingerprint == Fingerprint.compute(this)
     // Safety from rep exposure:
     //   Vertex<String> and Set<Vertex<String>> are never returned, and are declared as private final
     
+    /**
+     * Make an empty graph.
+     */
+    public ConcreteVerticesGraph() {
+        this(0);
+    }
+
+    /**
+     * Make an empty graph presized to hold a number of vertices without
+     * regrowing its vertex list. The targets of each vertex grow with it, as
+     * degrees are too skewed for one size to suit every vertex.
+     * See {@link GraphBuilder}.
+     *
+     * @param expectedVertices expected number of vertices, nonnegative
+     */
+    ConcreteVerticesGraph(int expectedVertices) {
+        this.vertices = new ArrayList<>(expectedVertices);
+        checkRep();
+    }
+
     /**
      * Check the rep invariant.
      */
@@ -39,6 +63,21 @@ public class ConcreteVerticesGraph implements Graph<String> {
             assert labels.contains(label) == false;
             labels.add(label);
         }
+        assert fingerprint == computeFingerprint();
+    }
+
+    /**
+     * @return the fingerprint of this graph, computed from all its vertices
+     *         and edges
+     */
+    private long computeFingerprint() {
+        long[] sum = { 0 };
+        for (Vertex vertex : vertices) {
+            String label = vertex.getLabel();
+            sum[0] += Fingerprint.vertex(label);
+            vertex.forEach((target, weight) -> sum[0] += Fingerprint.edge(label, target, weight));
+        }
+        return sum[0];
     }
  
     /**
@@ -64,6 +103,7 @@ public class ConcreteVerticesGraph implements Graph<String> {
         }
         catch (NoSuchElementException e) {
             vertices.add(new Vertex(vertex));
+            fingerprint += Fingerprint.vertex(vertex);
             checkRep();
             return false;
         }
@@ -78,6 +118,12 @@ public class ConcreteVerticesGraph implements Graph<String> {
 
         try {
             int original = findVertex(source).set(target, weight);
+            if (original > 0) {
+                fingerprint -= Fingerprint.edge(source, target, original);
+            }
+            if (weight > 0) {
+                fingerprint += Fingerprint.edge(source, target, weight);
+            }
             checkRep();
             return original;
         }
@@ -88,9 +134,17 @@ public class ConcreteVerticesGraph implements Graph<String> {
 
     @Override public boolean remove(String vertex) {
         try {
-            vertices.remove(findVertex(vertex));
+            Vertex removed = findVertex(vertex);
+            vertices.remove(removed);
+            fingerprint -= Fingerprint.vertex(vertex);
+            for (Map.Entry<String, Integer> edge : removed.targetsView().entrySet()) {
+                fingerprint -= Fingerprint.edge(vertex, edge.getKey(), edge.getValue());
+            }
             for (Vertex v : vertices) {
-                v.set(vertex, 0);
+                int original = v.set(vertex, 0);
+                if (original > 0) {
+                    fingerprint -= Fingerprint.edge(v.getLabel(), vertex, original);
+                }
             }
             checkRep();
             return true;
@@ -100,6 +154,64 @@ public class ConcreteVerticesGraph implements Graph<String> {
         }
     }
 
+    /**
+     * Remove vertices from this graph; any edges to or from them are also
+     * removed. This visits each vertex once, however many vertices are removed.
+     *
+     * @param vertices labels of the vertices to remove
+     * @return true if this graph included any of the vertices; otherwise false
+     *         (and this graph is not modified)
+     */
+    public boolean removeAll(Collection<String> vertices) {
+        Set<String> removed = new HashSet<>(vertices);
+        for (Vertex vertex : this.vertices) {
+            boolean gone = removed.contains(vertex.getLabel());
+            if (gone) {
+                fingerprint -= Fingerprint.vertex(vertex.getLabel());
+            }
+            for (Map.Entry<String, Integer> edge : vertex.targetsView().entrySet()) {
+                if (gone || removed.contains(edge.getKey())) {
+                    fingerprint -= Fingerprint.edge(vertex.getLabel(), edge.getKey(), edge.getValue());
+                }
+            }
+        }
+        boolean included = this.vertices.removeIf(vertex -> removed.contains(vertex.getLabel()));
+        if (included) {
+            for (Vertex vertex : this.vertices) {
+                vertex.removeAll(removed);
+            }
+        }
+        checkRep();
+        return included;
+    }
+
+    /**
+     * Get a spliterator over the edges of this graph, without copying the
+     * targets of any vertex. See {@link EdgeSpliterator}.
+     *
+     * @return a spliterator over the edges of this graph; this graph must not
+     *         be modified while it is in use
+     */
+    public Spliterator<WeightedEdge> edgeSpliterator() {
+        String[] labels = new String[vertices.size()];
+        Map<String, Integer>[] edges = EdgeSpliterator.newTargets(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = vertices.get(i).getLabel();
+            edges[i] = vertices.get(i).targetsView();
+        }
+        return new EdgeSpliterator(labels, edges, 0);
+    }
+
+    /**
+     * Get the fingerprint of this graph, kept up to date in O(1) time per
+     * vertex or edge changed. See {@link Fingerprint}.
+     *
+     * @return fingerprint of this graph
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
     @Override public Set<String> vertices() {
         Set<String> result = new HashSet<>();
         for (Vertex vertex : vertices) {
@@ -131,16 +243,24 @@ public class ConcreteVerticesGraph implements Graph<String> {
         }
     }
 
+    /**
+     * @return number of edges the vertices hold before they regrow their
+     *         targets; for testing
+     */
+    long targetsCapacity() {
+        long capacity = 0;
+        for (Vertex vertex : vertices) {
+            capacity += vertex.capacity();
+        }
+        return capacity;
+    }
+
     /**
      * @return a list of strings in the form "(source -> target, weight)",
      *         representing the edges in the graph
      */
     @Override public String toString() {
-        String result = "";
-        for (Vertex vertex : vertices) {
-            result = result.concat(vertex.toString() + "\n");
-        }
-        return result.strip();
+        return GraphExporter.toText(this);
     }
     
 }
@@ -150,22 +270,27 @@ public class ConcreteVerticesGraph implements Graph<String> {
  *   targets and weights.
  * This class is internal to the rep of ConcreteVerticesGraph.
  * 
+ * <p>The targets are a {@link WeightMap}, which stores them by degree with
+ * weights in a byte each, as most words of natural text are followed by only
+ * one or two other words, once. A vertex is that map together with its label,
+ * so it costs no more objects than the map.
+ * 
  * <p>PS2 instructions: the specification and implementation of this class is
  * up to you.
  */
-class Vertex {
+class Vertex extends WeightMap {
     
     private final String label;
-    private final Map<String, Integer> targets = new HashMap<>();
     
     // Abstraction function:
-    //   represents a set of edges from label to targets with weights
+    //   represents a set of edges from label to the targets of this map, with
+    //     their weights
     // Representation invariant:
-    //   weights in targets are positive integers
+    //   that of WeightMap
     // Safety from rep exposure:
-    //   String is immutable, and is declared as private final
-    //   Map<String, Integer> is copied when returned, and is declared as
-    //     private final
+    //   String is immutable, and label is declared as private final
+    //   getTargets() returns a copy, and targetsView() an unmodifiable view
+    //     internal to the rep of ConcreteVerticesGraph
     
     /**
      * Make a vertex with empty outgoing edge targets.
@@ -176,15 +301,6 @@ class Vertex {
         this.label = label;
     }
 
-    /**
-     * Check the rep invariant.
-     */
-    private void checkRep() {
-        for (int weight : targets.values()) {
-            assert weight > 0;
-        }
-    }
-
     /**
      * Get the label of the vertex.
      * 
@@ -200,35 +316,18 @@ class Vertex {
      * @return a copy of the map containing outgoing edge targets and weights
      */
     public Map<String, Integer> getTargets() {
-        return new HashMap<>(targets);
+        return new HashMap<>(asMap());
     }
 
     /**
-     * Add, change, or remove a weighted directed edge from the vertex.
-     * If weight is nonzero, add an edge or update the weight of that edge.
-     * If weight is zero, remove the edge if it exists.
+     * Get a read-only view of the outgoing edge targets and weights from the
+     * vertex, for iterating them without a copy.
      * 
-     * @param target label of the target vertex
-     * @param weight nonnegative weight of the edge
-     * @return the previous weight of the edge, or zero if there was no such
-     *         edge
+     * @return an unmodifiable view of the map of outgoing edge targets and
+     *         weights, which changes as the vertex does
      */
-    public int set(String target, int weight) {
-        assert weight >= 0;
-
-        int original;
-        if (targets.containsKey(target)) {
-            original = targets.remove(target);
-        }
-        else {
-            original = 0;
-        }
-        if (weight > 0) {
-            targets.put(target, weight);
-        }
-
-        checkRep();
-        return original;
+    Map<String, Integer> targetsView() {
+        return asMap();
     }
 
     /**
@@ -236,17 +335,7 @@ class Vertex {
      *         representing the edges outgoing from the vertex
      */
     @Override public String toString() {
-        String result = "";
-        Map<String, Integer> targets = this.getTargets();
-        for (String target : targets.keySet()) {
-            result = result.concat(
-                "(" + this.getLabel().toString()
-                + " -> " + target.toString()
-                + ", " + targets.get(target)
-                + ")\n"
-            );
-        }
-        return result.strip();
+        return GraphExporter.toText(label, asMap());
     }
 
 }
@@ -0,0 +1,271 @@
+package graph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Reading and writing graphs as edge lists.
+ *
+ * <p>An edge list is UTF-8 text with one edge per line in the form
+ * "source\ttarget\tweight", where weight is a positive decimal integer.
+ * A line holding a single label and no tab denotes a vertex, which lets
+ * vertices without edges survive a round trip. Backslash, tab, newline and
+ * carriage return in labels are escaped as "\\", "\t", "\n" and "\r".
+ *
+ * <p>An edge list is sorted if its edges are in {@link WeightedEdge#BY_ENDPOINTS}
+ * order, with no two edges between the same endpoints; vertex lines may
+ * appear anywhere. Sorted edge lists are runs that {@link GraphMerger} merges
+ * in one streaming pass.
+ */
+public class EdgeList {
+
+    private EdgeList() {
+        // not instantiable
+    }
+
+    /**
+     * Write a graph as an edge list, in O(V + E) time: edges are streamed in
+     * the graph's own order (see {@link EdgeSpliterator}), followed by the
+     * vertices without outgoing edges.
+     *
+     * @param graph graph to write; it must not be modified during the call
+     * @param out writer to write the edge list to; it is not closed
+     * @throws IOException if out cannot be written
+     */
+    public static void write(Graph<String> graph, Writer out) throws IOException {
+        Set<String> sources = new HashSet<>();
+        for (Iterator<WeightedEdge> edges = Spliterators.iterator(EdgeSpliterator.of(graph)); edges.hasNext(); ) {
+            WeightedEdge edge = edges.next();
+            sources.add(edge.getSource());
+            writeEdge(edge, out);
+        }
+        for (String vertex : graph.vertices()) {
+            if (!sources.contains(vertex)) {
+                writeVertex(vertex, out);
+            }
+        }
+    }
+
+    /**
+     * Read an edge list into a graph.
+     * Edges already in the graph are overwritten by edges in the list.
+     *
+     * @param in reader to read the edge list from; it is not closed
+     * @param graph graph to add the vertices and edges of the list to
+     * @throws IOException if in cannot be read
+     * @throws IllegalArgumentException if a line is malformed
+     */
+    public static void read(Reader in, Graph<String> graph) throws IOException {
+        BufferedReader lines = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            int first = line.indexOf('\t');
+            if (first < 0) {
+                graph.add(unescape(line));
+                continue;
+            }
+            WeightedEdge edge = parseEdge(line, first);
+            graph.set(edge.getSource(), edge.getTarget(), edge.getWeight());
+        }
+    }
+
+    /**
+     * Parse an edge line.
+     *
+     * @param line line of an edge list
+     * @param first index of the first tab in line
+     * @return the edge on line
+     * @throws IllegalArgumentException if line is malformed
+     */
+    private static WeightedEdge parseEdge(String line, int first) {
+        int second = line.indexOf('\t', first + 1);
+        if (second < 0) {
+            throw new IllegalArgumentException("malformed edge: " + line);
+        }
+        int weight;
+        try {
+            weight = Integer.parseInt(line.substring(second + 1));
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("malformed weight: " + line);
+        }
+        if (weight <= 0) {
+            throw new IllegalArgumentException("nonpositive weight: " + line);
+        }
+        return new WeightedEdge(unescape(line.substring(0, first)), unescape(line.substring(first + 1, second)), weight);
+    }
+
+    /**
+     * Write a graph as a sorted edge list.
+     *
+     * @param graph graph to write
+     * @param out writer to write the edge list to; it is not closed
+     * @throws IOException if out cannot be written
+     */
+    public static void writeSorted(Graph<String> graph, Writer out) throws IOException {
+        for (String source : new TreeSet<>(graph.vertices())) {
+            Map<String, Integer> targets = new TreeMap<>(graph.targets(source));
+            if (targets.isEmpty()) {
+                writeVertex(source, out);
+            }
+            for (Map.Entry<String, Integer> edge : targets.entrySet()) {
+                writeEdge(new WeightedEdge(source, edge.getKey(), edge.getValue()), out);
+            }
+        }
+    }
+
+    /**
+     * Write a vertex line.
+     *
+     * @param vertex label of the vertex
+     * @param out writer to write the line to
+     * @throws IOException if out cannot be written
+     */
+    public static void writeVertex(String vertex, Writer out) throws IOException {
+        out.write(escape(vertex));
+        out.write('\n');
+    }
+
+    /**
+     * Write an edge line.
+     *
+     * @param edge edge to write
+     * @param out writer to write the line to
+     * @throws IOException if out cannot be written
+     */
+    public static void writeEdge(WeightedEdge edge, Writer out) throws IOException {
+        out.write(escape(edge.getSource()));
+        out.write('\t');
+        out.write(escape(edge.getTarget()));
+        out.write('\t');
+        out.write(Integer.toString(edge.getWeight()));
+        out.write('\n');
+    }
+
+    /**
+     * Read the edges of a sorted edge list lazily, one line at a time.
+     * The iterator throws UncheckedIOException if in cannot be read, and
+     * IllegalArgumentException if a line is malformed or out of order.
+     *
+     * @param in reader to read the edge list from; it is not closed
+     * @param vertices receives the label of each vertex line, as it is read
+     * @return an iterator over the edges of the list, in sorted order
+     */
+    public static Iterator<WeightedEdge> edges(BufferedReader in, Consumer<String> vertices) {
+        return new Iterator<WeightedEdge>() {
+            private WeightedEdge previous, next;
+
+            @Override public boolean hasNext() {
+                try {
+                    for (String line; next == null && (line = in.readLine()) != null;) {
+                        if (line.isEmpty()) {
+                            continue;
+                        }
+                        int first = line.indexOf('\t');
+                        if (first < 0) {
+                            vertices.accept(unescape(line));
+                            continue;
+                        }
+                        next = parseEdge(line, first);
+                        if (previous != null && WeightedEdge.BY_ENDPOINTS.compare(previous, next) >= 0) {
+                            throw new IllegalArgumentException("edge list not sorted at: " + line);
+                        }
+                    }
+                    return next != null;
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override public WeightedEdge next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                previous = next;
+                next = null;
+                return previous;
+            }
+        };
+    }
+
+    /**
+     * Escape a label for an edge list.
+     *
+     * @param label any label
+     * @return label with backslash, tab, newline and carriage return escaped
+     */
+    public static String escape(String label) {
+        StringBuilder result = null;
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            String escaped;
+            switch (c) {
+            case '\\': escaped = "\\\\"; break;
+            case '\t': escaped = "\\t"; break;
+            case '\n': escaped = "\\n"; break;
+            case '\r': escaped = "\\r"; break;
+            default: escaped = null;
+            }
+            if (escaped != null && result == null) {
+                result = new StringBuilder(label.length() + 8).append(label, 0, i);
+            }
+            if (result != null) {
+                if (escaped != null) {
+                    result.append(escaped);
+                }
+                else {
+                    result.append(c);
+                }
+            }
+        }
+        return result == null ? label : result.toString();
+    }
+
+    /**
+     * Unescape a label read from an edge list.
+     *
+     * @param field escaped label
+     * @return the label that escapes to field
+     * @throws IllegalArgumentException if field contains an invalid escape
+     */
+    public static String unescape(String field) {
+        int slash = field.indexOf('\\');
+        if (slash < 0) {
+            return field;
+        }
+        StringBuilder result = new StringBuilder(field.length()).append(field, 0, slash);
+        for (int i = slash; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\') {
+                result.append(c);
+                continue;
+            }
+            if (++i == field.length()) {
+                throw new IllegalArgumentException("dangling escape: " + field);
+            }
+            switch (field.charAt(i)) {
+            case '\\': result.append('\\'); break;
+            case 't': result.append('\t'); break;
+            case 'n': result.append('\n'); break;
+            case 'r': result.append('\r'); break;
+            default: throw new IllegalArgumentException("invalid escape: " + field);
+            }
+        }
+        return result.toString();
+    }
+}
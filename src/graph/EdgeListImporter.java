@@ -0,0 +1,321 @@
+package graph;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loading large edge lists, such as bigram counts produced by another
+ * pipeline, into a graph, parsing them in parallel.
+ *
+ * <p>The file is memory-mapped and split into chunks that end at line ends.
+ * Workers parse chunks in parallel straight from the mapped bytes, decoding
+ * only the labels into strings and parsing weights from their digits without
+ * allocating, while the calling thread adds each parsed chunk to the graph in
+ * file order. Only a few chunks are parsed ahead of the graph, so the memory
+ * used besides the graph stays bounded however large the file is.
+ *
+ * <p>Only parsing is parallel: the graph is still updated one
+ * {@link Graph#add} or {@link Graph#set} per line on the calling thread, as
+ * by {@link EdgeList}. Once updating the graph takes longer than parsing, as
+ * it does for graphs whose updates copy paths of a trie, importing is no
+ * faster than reading the file with EdgeList.
+ *
+ * <p>The result is the same as {@link EdgeList#read(java.io.Reader, Graph)} on
+ * the file: lines are read as described in {@link EdgeList}, and a later line
+ * for the same edge overwrites an earlier one.
+ */
+public class EdgeListImporter {
+
+    /** Default size of a chunk of the file parsed by one task. */
+    static final int CHUNK_BYTES = 1 << 22;
+
+    /** Bytes read at a time while looking for the end of a line. */
+    private static final int SCAN_BYTES = 1 << 12;
+
+    private EdgeListImporter() {
+        // not instantiable
+    }
+
+    /**
+     * Read an edge list file into a graph, parsing it in parallel.
+     * Edges already in the graph are overwritten by edges in the list.
+     *
+     * @param edgeList UTF-8 edge list file
+     * @param graph graph to add the vertices and edges of the list to
+     * @param workers number of chunks parsed in parallel, positive
+     * @throws IOException if the file cannot be found or read
+     * @throws IllegalArgumentException if workers is not positive, or a line
+     *         is malformed, in which case the lines before it have been added
+     */
+    public static void read(Path edgeList, Graph<String> graph, int workers) throws IOException {
+        read(edgeList, graph, workers, CHUNK_BYTES);
+    }
+
+    /**
+     * Read an edge list file into a graph, parsing it in parallel chunks of
+     * about a given size.
+     *
+     * @param chunkBytes size of a chunk, positive; chunks are extended to the
+     *                   end of their last line
+     * @see #read(Path, Graph, int)
+     */
+    static void read(Path edgeList, Graph<String> graph, int workers, int chunkBytes) throws IOException {
+        if (workers <= 0 || chunkBytes <= 0) {
+            throw new IllegalArgumentException("workers and chunk size must be positive");
+        }
+        try (FileChannel channel = FileChannel.open(edgeList, StandardOpenOption.READ)) {
+            List<Long> starts = lineStarts(channel, chunkBytes);
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(workers, starts.size() - 1)));
+            try {
+                Deque<Future<Chunk>> parsing = new ArrayDeque<>();
+                int next = 0;
+                while (next < starts.size() - 1 || !parsing.isEmpty()) {
+                    // keep every worker busy, and one chunk more ready to add
+                    while (next < starts.size() - 1 && parsing.size() <= workers) {
+                        long start = starts.get(next), end = starts.get(next + 1);
+                        parsing.add(pool.submit(() -> parse(channel, start, end)));
+                        next++;
+                    }
+                    parsing.remove().get().addTo(graph);
+                }
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IOException("edge list import failed", e.getCause());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("edge list import interrupted");
+            }
+            finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Split a file into chunks of whole lines.
+     *
+     * @return the offsets at which the chunks start, in increasing order,
+     *         followed by the size of the file
+     */
+    private static List<Long> lineStarts(FileChannel channel, int chunkBytes) throws IOException {
+        long size = channel.size();
+        List<Long> starts = new ArrayList<>();
+        starts.add(0L);
+        for (long position = chunkBytes; position < size; position += chunkBytes) {
+            long start = lineStart(channel, position);
+            if (start >= size) {
+                break;
+            }
+            if (start > starts.get(starts.size() - 1)) {
+                starts.add(start);
+            }
+            position = Math.max(position, start - 1);
+        }
+        starts.add(size);
+        return starts;
+    }
+
+    /**
+     * @return the offset of the first line that starts at or after position,
+     *         or the size of the file if there is none
+     */
+    private static long lineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BYTES);
+        for (long offset = position - 1; ; ) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * Parse the lines of a chunk of a file.
+     *
+     * @param start offset of the start of a line
+     * @param end offset of the start of a later line, or the size of the file
+     * @return the vertices and edges of the chunk's lines, in order, up to
+     *         the first malformed line if there is one
+     * @throws IllegalArgumentException if the chunk is too large to map
+     */
+    private static Chunk parse(FileChannel channel, long start, long end) throws IOException {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("edge list line too long at offset " + start);
+        }
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        Chunk chunk = new Chunk();
+        int length = bytes.limit();
+        byte[] scratch = new byte[256];
+        for (int line = 0; line < length; ) {
+            int lineEnd = line;
+            int first = -1, second = -1;
+            for (; lineEnd < length && bytes.get(lineEnd) != '\n'; lineEnd++) {
+                if (bytes.get(lineEnd) == '\t') {
+                    if (first < 0) {
+                        first = lineEnd;
+                    }
+                    else if (second < 0) {
+                        second = lineEnd;
+                    }
+                }
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > line && bytes.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd == line) {
+                line = next;
+                continue;
+            }
+            if (scratch.length < lineEnd - line) {
+                scratch = new byte[Math.max(lineEnd - line, scratch.length * 2)];
+            }
+            try {
+                if (first < 0) {
+                    chunk.add(label(bytes, line, lineEnd, scratch), null, 0);
+                }
+                else if (second < 0 || second >= lineEnd) {
+                    throw new IllegalArgumentException("malformed edge: " + text(bytes, line, lineEnd));
+                }
+                else {
+                    int weight = weight(bytes, line, second + 1, lineEnd);
+                    chunk.add(label(bytes, line, first, scratch), label(bytes, first + 1, second, scratch), weight);
+                }
+            }
+            catch (IllegalArgumentException e) {
+                chunk.malformed = e;
+                return chunk;
+            }
+            line = next;
+        }
+        return chunk;
+    }
+
+    /**
+     * Decode and unescape a label.
+     */
+    private static String label(MappedByteBuffer bytes, int from, int to, byte[] scratch) {
+        bytes.get(from, scratch, 0, to - from);
+        return EdgeList.unescape(new String(scratch, 0, to - from, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a line, for an error message.
+     */
+    private static String text(MappedByteBuffer bytes, int from, int to) {
+        byte[] line = new byte[to - from];
+        bytes.get(from, line);
+        return new String(line, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse a weight from its decimal digits, as Integer.parseInt would.
+     *
+     * @param line offset of the start of the weight's line
+     * @param from offset of the weight
+     * @param to offset of the end of the weight and its line
+     * @return the weight
+     * @throws IllegalArgumentException if the weight is malformed or not
+     *         positive
+     */
+    private static int weight(MappedByteBuffer bytes, int line, int from, int to) {
+        int i = from < to && bytes.get(from) == '+' ? from + 1 : from;
+        boolean negative = from < to && bytes.get(from) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == to) {
+            throw new IllegalArgumentException("malformed weight: " + text(bytes, line, to));
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = bytes.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("malformed weight: " + text(bytes, line, to));
+            }
+            value = value * 10 + digit;
+        }
+        if (value > Integer.MAX_VALUE + (negative ? 1L : 0L)) {
+            throw new IllegalArgumentException("malformed weight: " + text(bytes, line, to));
+        }
+        if (negative || value == 0) {
+            throw new IllegalArgumentException("nonpositive weight: " + text(bytes, line, to));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Chunk is the parsed lines of a chunk of an edge list: vertex lines with
+     * a null target and weight 0, and edge lines, in order, followed by the
+     * error of the first malformed line if there is one.
+     */
+    private static final class Chunk {
+
+        private String[] sources = new String[64];
+        private String[] targets = new String[64];
+        private int[] weights = new int[64];
+        private int size;
+        private IllegalArgumentException malformed;
+
+        private void add(String source, String target, int weight) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            weights[size] = weight;
+            size++;
+        }
+
+        /**
+         * Add the lines parsed to a graph.
+         *
+         * @throws IllegalArgumentException if a line of the chunk is
+         *         malformed, after adding the lines before it
+         */
+        private void addTo(Graph<String> graph) {
+            for (int i = 0; i < size; i++) {
+                if (targets[i] == null) {
+                    graph.add(sources[i]);
+                }
+                else {
+                    graph.set(sources[i], targets[i], weights[i]);
+                }
+            }
+            if (malformed != null) {
+                throw malformed;
+            }
+        }
+    }
+}
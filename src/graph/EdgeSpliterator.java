@@ -0,0 +1,206 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A splittable iterator over all the edges of a graph, as
+ * (source, target, weight) triples, for whole-graph computations as parallel
+ * streams.
+ *
+ * <p>Edges are grouped by source vertex. A spliterator lists the groups in
+ * arrays, with the number of edges before each group, so it knows its exact
+ * size and splits in O(log n) time at the group boundary that halves its
+ * remaining edges, rather than its remaining vertices: the few high-degree
+ * words of an affinity graph do not pile up in one split. Iterating copies no
+ * adjacency maps and allocates one {@link WeightedEdge} per edge.
+ *
+ * <p>Use {@link #of(Graph)} or {@link #stream(Graph, boolean)} for any graph;
+ * the graph implementations of this package also provide an
+ * edgeSpliterator() method.
+ */
+public final class EdgeSpliterator implements Spliterator<WeightedEdge> {
+
+    private final String[] sources;
+    private final Map<String, Integer>[] targets;
+    private final long[] offsets;
+    private final int characteristics;
+    private int next;
+    private final int end;
+    private String source;
+    private Iterator<Map.Entry<String, Integer>> current = Collections.emptyIterator();
+    private long remaining;
+
+    // Abstraction function:
+    //   represents the edges from sources[i] to the keys of targets[i], with
+    //     their values as weights, for next <= i < end, preceded by the edges
+    //     from source to the rest of current
+    // Representation invariant:
+    //   sources, targets have the same length n, and offsets has length n + 1
+    //   offsets[0] == 0, and offsets[i + 1] == offsets[i] + targets[i].size()
+    //   0 <= next <= end <= n
+    //   remaining is the number of edges represented
+    // Safety from rep exposure:
+    //   the arrays are private and shared only with splits, which never
+    //     write them
+
+    /**
+     * Make a spliterator over groups of edges by source.
+     *
+     * @param sources labels of the source vertices
+     * @param targets targets[i] maps the targets of the edges from sources[i]
+     *                to their weights; the maps must not be modified while
+     *                the spliterator is in use
+     * @param characteristics characteristics besides the ones that every
+     *                        edge spliterator has
+     */
+    EdgeSpliterator(String[] sources, Map<String, Integer>[] targets, int characteristics) {
+        this(sources, targets, prefixSums(targets), 0, sources.length, characteristics);
+    }
+
+    /**
+     * Make an array of maps of targets, for the constructor.
+     *
+     * @param length length of the array, nonnegative
+     * @return a new array of nulls
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Map<String, Integer>[] newTargets(int length) {
+        return new Map[length];
+    }
+
+    private EdgeSpliterator(String[] sources, Map<String, Integer>[] targets, long[] offsets,
+            int next, int end, int characteristics) {
+        this.sources = sources;
+        this.targets = targets;
+        this.offsets = offsets;
+        this.next = next;
+        this.end = end;
+        this.remaining = offsets[end] - offsets[next];
+        this.characteristics = characteristics | DISTINCT | NONNULL | SIZED | SUBSIZED;
+        checkRep();
+    }
+
+    private static long[] prefixSums(Map<String, Integer>[] targets) {
+        long[] offsets = new long[targets.length + 1];
+        for (int i = 0; i < targets.length; i++) {
+            offsets[i + 1] = offsets[i] + targets[i].size();
+        }
+        return offsets;
+    }
+
+    /**
+     * Check the rep invariant.
+     */
+    private void checkRep() {
+        assert sources.length == targets.length && offsets.length == sources.length + 1;
+        assert 0 <= next && next <= end && end <= sources.length;
+        assert remaining >= offsets[end] - offsets[next];
+    }
+
+    /**
+     * Get a spliterator over the edges of a graph. For the graph
+     * implementations of this package this is their edgeSpliterator();
+     * for other graphs, the adjacency maps are fetched with
+     * {@link Graph#targets(Object)} up front.
+     *
+     * @param graph graph whose edges to iterate; it must not be modified
+     *              while the spliterator is in use, unless it is a
+     *              {@link PersistentGraph}
+     * @return a spliterator over the edges of graph, in no particular order
+     */
+    public static Spliterator<WeightedEdge> of(Graph<String> graph) {
+        if (graph instanceof PersistentGraph) {
+            return ((PersistentGraph) graph).edgeSpliterator();
+        }
+        if (graph instanceof ConcreteVerticesGraph) {
+            return ((ConcreteVerticesGraph) graph).edgeSpliterator();
+        }
+        if (graph instanceof ConcreteEdgesGraph) {
+            return ((ConcreteEdgesGraph) graph).edgeSpliterator();
+        }
+        String[] sources = graph.vertices().toArray(new String[0]);
+        Map<String, Integer>[] targets = newTargets(sources.length);
+        Arrays.setAll(targets, i -> graph.targets(sources[i]));
+        return new EdgeSpliterator(sources, targets, 0);
+    }
+
+    /**
+     * Stream the edges of a graph.
+     *
+     * @param graph graph whose edges to stream, as in {@link #of(Graph)}
+     * @param parallel true for a parallel stream, false for a sequential one
+     * @return a stream of the edges of graph, in no particular order
+     */
+    public static Stream<WeightedEdge> stream(Graph<String> graph, boolean parallel) {
+        return StreamSupport.stream(of(graph), parallel);
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super WeightedEdge> action) {
+        while (!current.hasNext()) {
+            if (next == end) {
+                return false;
+            }
+            source = sources[next];
+            current = targets[next].entrySet().iterator();
+            next++;
+        }
+        Map.Entry<String, Integer> edge = current.next();
+        remaining--;
+        action.accept(new WeightedEdge(source, edge.getKey(), edge.getValue()));
+        return true;
+    }
+
+    @Override public void forEachRemaining(Consumer<? super WeightedEdge> action) {
+        while (current.hasNext()) {
+            Map.Entry<String, Integer> edge = current.next();
+            action.accept(new WeightedEdge(source, edge.getKey(), edge.getValue()));
+        }
+        for (; next < end; next++) {
+            String from = sources[next];
+            for (Map.Entry<String, Integer> edge : targets[next].entrySet()) {
+                action.accept(new WeightedEdge(from, edge.getKey(), edge.getValue()));
+            }
+        }
+        remaining = 0;
+    }
+
+    /**
+     * Split off the groups before the group boundary nearest to the middle of
+     * the remaining edges. The group being iterated, if any, stays here.
+     */
+    @Override public Spliterator<WeightedEdge> trySplit() {
+        if (end - next < 2) {
+            return null;
+        }
+        long middle = offsets[next] + (offsets[end] - offsets[next]) / 2;
+        int split = Arrays.binarySearch(offsets, next + 1, end, middle);
+        if (split < 0) {
+            // the first boundary past the middle, or the one before if nearer
+            split = -split - 1;
+            if (split > next + 1 && middle - offsets[split - 1] < offsets[split] - middle) {
+                split--;
+            }
+        }
+        split = Math.max(next + 1, Math.min(split, end - 1));
+        EdgeSpliterator prefix = new EdgeSpliterator(sources, targets, offsets, next, split, characteristics);
+        remaining -= prefix.remaining;
+        next = split;
+        checkRep();
+        return prefix;
+    }
+
+    @Override public long estimateSize() {
+        return remaining;
+    }
+
+    @Override public int characteristics() {
+        return characteristics;
+    }
+}
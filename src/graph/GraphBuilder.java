@@ -0,0 +1,106 @@
+package graph;
+
+/**
+ * A builder of empty graphs sized for the graph they will hold.
+ *
+ * <p>Unlike {@link Graph#empty()}, a builder is told how large the graph is
+ * expected to grow, and chooses the implementation of this package that
+ * suits that size, presizing its tables so that filling it to the expected
+ * size does not regrow them:
+ * <ul>
+ * <li>small graphs, up to {@link #SMALL_VERTICES} vertices, are a
+ *     {@link ConcreteVerticesGraph}, whose linear vertex search is cheap at
+ *     that size, with its vertex list presized;
+ * <li>larger graphs, and graphs whose versions must be snapshots (see
+ *     {@link VersionedGraph}), are a {@link PersistentGraph}, whose hash tries
+ *     grow one node at a time and never rehash.
+ * </ul>
+ * Only the expected number of vertices presizes a graph: the degrees of
+ * affinity graphs are too skewed for an expected number of edges to size
+ * each vertex's targets, which grow with the vertex instead.
+ * Hints are only hints: a graph built from them holds any number of vertices
+ * and edges.
+ */
+public class GraphBuilder {
+
+    /** Largest expected number of vertices of a {@link ConcreteVerticesGraph}. */
+    public static final int SMALL_VERTICES = 64;
+
+    private int expectedVertices;
+    private boolean snapshots;
+
+    // Abstraction function:
+    //   represents a request for a graph of about expectedVertices vertices,
+    //     that takes O(1) snapshots iff snapshots
+    // Representation invariant:
+    //   expectedVertices >= 0
+    // Safety from rep exposure:
+    //   all fields are private and immutable values
+
+    /**
+     * Make a builder with no hints, which builds small graphs.
+     */
+    public GraphBuilder() {
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant.
+     */
+    private void checkRep() {
+        assert expectedVertices >= 0;
+    }
+
+    /**
+     * @param vertices expected number of vertices, nonnegative
+     * @return this builder
+     * @throws IllegalArgumentException if vertices is negative
+     */
+    public GraphBuilder expectedVertices(int vertices) {
+        if (vertices < 0) {
+            throw new IllegalArgumentException("negative vertices: " + vertices);
+        }
+        this.expectedVertices = vertices;
+        return this;
+    }
+
+    /**
+     * @param snapshots true if the graph must take O(1) snapshots, as the
+     *                  writer of a {@link VersionedGraph} should
+     * @return this builder
+     */
+    public GraphBuilder snapshots(boolean snapshots) {
+        this.snapshots = snapshots;
+        return this;
+    }
+
+    /**
+     * @return expected number of vertices
+     */
+    public int expectedVertices() {
+        return expectedVertices;
+    }
+
+    /**
+     * Build an empty graph suited to the hints, as described above.
+     *
+     * @return a new empty graph
+     */
+    public Graph<String> build() {
+        if (snapshots || expectedVertices > SMALL_VERTICES) {
+            return new PersistentGraph();
+        }
+        return new ConcreteVerticesGraph(expectedVertices);
+    }
+
+    /**
+     * Get the initial capacity of a hash table that holds a number of entries
+     * without rehashing, at the default load factor of 0.75.
+     *
+     * @param entries expected number of entries, nonnegative
+     * @return initial capacity for a HashMap or HashSet of that many entries
+     */
+    public static int hashCapacity(long entries) {
+        return (int) Math.min((entries * 4 + 2) / 3 + 1, 1 << 30);
+    }
+}
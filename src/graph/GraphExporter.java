@@ -0,0 +1,266 @@
+package graph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterators;
+
+/**
+ * Writing graphs in text formats for other tools, streaming their edges.
+ *
+ * <p>Edges are written one at a time as an {@link EdgeSpliterator} yields
+ * them, straight to a buffered writer, so a graph is written in O(V + E) time
+ * without building its text or copying it in memory; only the set of
+ * vertices seen on edges is kept, to write the vertices without edges. Edges
+ * come in the graph's own iteration order, the order of its toString().
+ *
+ * <p>The formats are:
+ * <ul>
+ * <li>{@link Format#TEXT}: lines "(source -> target, weight)", as returned by
+ *     the toString() of the graph implementations of this package;
+ * <li>{@link Format#EDGE_LIST}: a tab-separated {@link EdgeList};
+ * <li>{@link Format#DOT}: a Graphviz digraph, with each edge's weight as its
+ *     weight and label, and a node statement for each vertex without edges;
+ * <li>{@link Format#JSON}: an object {"vertices": [labels], "edges":
+ *     [{"source": s, "target": t, "weight": w}]}.
+ * </ul>
+ */
+public final class GraphExporter {
+
+    /** Text formats of a graph. */
+    public enum Format { TEXT, EDGE_LIST, DOT, JSON }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private GraphExporter() {
+        // not instantiable
+    }
+
+    /**
+     * Write a graph to a stream as UTF-8 text.
+     *
+     * @param graph graph to write; it must not be modified during the call,
+     *              unless it is a {@link PersistentGraph}
+     * @param format format to write
+     * @param out stream to write to; it is flushed but not closed
+     * @throws IOException if out cannot be written
+     */
+    public static void write(Graph<String> graph, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        write(graph, format, writer);
+    }
+
+    /**
+     * Write a graph to a writer, buffering the output unless out is already
+     * a BufferedWriter or a StringWriter.
+     *
+     * @param graph graph to write; it must not be modified during the call,
+     *              unless it is a {@link PersistentGraph}
+     * @param format format to write
+     * @param out writer to write to; it is flushed but not closed
+     * @throws IOException if out cannot be written
+     */
+    public static void write(Graph<String> graph, Format format, Writer out) throws IOException {
+        Writer writer = out instanceof BufferedWriter || out instanceof StringWriter
+                ? out : new BufferedWriter(out, BUFFER_SIZE);
+        // vertices and edges from the same version of a persistent graph
+        Graph<String> view = graph instanceof PersistentGraph ? ((PersistentGraph) graph).snapshot() : graph;
+        switch (format) {
+        case TEXT:
+            writeText(edges(view), writer);
+            break;
+        case EDGE_LIST:
+            EdgeList.write(view, writer);
+            break;
+        case DOT:
+            writeDot(view, writer);
+            break;
+        case JSON:
+            writeJson(view, writer);
+            break;
+        default:
+            throw new AssertionError(format);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Get a graph as text in the {@link Format#TEXT} format.
+     *
+     * @param graph graph to write
+     * @return a list of strings in the form "(source -> target, weight)",
+     *         one per line, representing the edges of graph
+     */
+    public static String toText(Graph<String> graph) {
+        StringBuilder result = new StringBuilder();
+        try {
+            writeText(edges(graph), result);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder does not throw
+        }
+        return result.toString();
+    }
+
+    /**
+     * Get the edges from one vertex as text in the {@link Format#TEXT} format.
+     *
+     * @param source label of the vertex
+     * @param targets weights of the edges from source, by target
+     * @return a list of strings in the form "(source -> target, weight)",
+     *         one per line
+     */
+    static String toText(String source, Map<String, Integer> targets) {
+        StringBuilder result = new StringBuilder();
+        try {
+            writeText(targets.entrySet().stream()
+                    .map(edge -> new WeightedEdge(source, edge.getKey(), edge.getValue()))
+                    .iterator(), result);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder does not throw
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return an iterator over the edges of graph, in its own order
+     */
+    private static Iterator<WeightedEdge> edges(Graph<String> graph) {
+        return Spliterators.iterator(EdgeSpliterator.of(graph));
+    }
+
+    /**
+     * Write edges in the {@link Format#TEXT} format.
+     */
+    private static void writeText(Iterator<WeightedEdge> edges, Appendable out) throws IOException {
+        boolean first = true;
+        while (edges.hasNext()) {
+            if (!first) {
+                out.append('\n');
+            }
+            WeightedEdge edge = edges.next();
+            out.append('(').append(edge.getSource())
+                    .append(" -> ").append(edge.getTarget())
+                    .append(", ").append(Integer.toString(edge.getWeight()))
+                    .append(')');
+            first = false;
+        }
+    }
+
+    /**
+     * Write a graph in the {@link Format#DOT} format.
+     */
+    private static void writeDot(Graph<String> graph, Writer out) throws IOException {
+        out.write("digraph {\n");
+        Set<String> connected = new HashSet<>();
+        for (Iterator<WeightedEdge> edges = edges(graph); edges.hasNext(); ) {
+            WeightedEdge edge = edges.next();
+            connected.add(edge.getSource());
+            connected.add(edge.getTarget());
+            out.write("  ");
+            writeQuoted(edge.getSource(), out);
+            out.write(" -> ");
+            writeQuoted(edge.getTarget(), out);
+            String weight = Integer.toString(edge.getWeight());
+            out.write(" [weight=" + weight + ", label=" + weight + "];\n");
+        }
+        for (String vertex : graph.vertices()) {
+            if (!connected.contains(vertex)) {
+                out.write("  ");
+                writeQuoted(vertex, out);
+                out.write(";\n");
+            }
+        }
+        out.write("}\n");
+    }
+
+    /**
+     * Write a graph in the {@link Format#JSON} format.
+     */
+    private static void writeJson(Graph<String> graph, Writer out) throws IOException {
+        out.write("{\"vertices\": [");
+        String separator = "";
+        for (String vertex : graph.vertices()) {
+            out.write(separator);
+            writeQuoted(vertex, out);
+            separator = ", ";
+        }
+        out.write("],\n\"edges\": [");
+        separator = "\n";
+        for (Iterator<WeightedEdge> edges = edges(graph); edges.hasNext(); ) {
+            WeightedEdge edge = edges.next();
+            out.write(separator);
+            out.write("{\"source\": ");
+            writeQuoted(edge.getSource(), out);
+            out.write(", \"target\": ");
+            writeQuoted(edge.getTarget(), out);
+            out.write(", \"weight\": " + edge.getWeight() + "}");
+            separator = ",\n";
+        }
+        out.write("]}\n");
+    }
+
+    /**
+     * Write a label as a double-quoted string, as both DOT and JSON read it:
+     * quotes and backslashes are escaped with a backslash, and control
+     * characters as JSON escapes, which DOT reads as escapes or literally.
+     */
+    private static void writeQuoted(String label, Writer out) throws IOException {
+        out.write('"');
+        if (!needsEscape(label)) {
+            out.write(label);
+            out.write('"');
+            return;
+        }
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            switch (c) {
+            case '"':
+            case '\\':
+                out.write('\\');
+                out.write(c);
+                break;
+            case '\n':
+                out.write("\\n");
+                break;
+            case '\r':
+                out.write("\\r");
+                break;
+            case '\t':
+                out.write("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    out.write(String.format("\\u%04x", (int) c));
+                }
+                else {
+                    out.write(c);
+                }
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * @return true iff label has a character that writeQuoted escapes
+     */
+    private static boolean needsEscape(String label) {
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
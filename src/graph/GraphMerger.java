@@ -0,0 +1,226 @@
+package graph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Merging graphs by summing the weights of their edges.
+ *
+ * <p>Graphs are merged as sorted edge runs, iterators over edges in
+ * {@link WeightedEdge#BY_ENDPOINTS} order, either taken from graphs in memory
+ * or streamed from sorted edge lists (see {@link EdgeList}). A k-way merge
+ * keeps only the next edge of each run in a heap, so merging N runs of E edges
+ * in total takes O(E log N) time and O(N) memory besides the output.
+ * Weights that would exceed Integer.MAX_VALUE saturate there.
+ */
+public class GraphMerger {
+
+    private GraphMerger() {
+        // not instantiable
+    }
+
+    /**
+     * Get the edges of a graph as a sorted edge run. Targets are sorted one
+     * source at a time, as the run is iterated.
+     *
+     * @param graph graph whose edges to iterate; it must not be modified while
+     *              the run is in use
+     * @return an iterator over the edges of graph in sorted order
+     */
+    public static Iterator<WeightedEdge> sortedEdges(Graph<String> graph) {
+        Iterator<String> sources = new TreeSet<>(graph.vertices()).iterator();
+        return new Iterator<WeightedEdge>() {
+            private String source;
+            private Iterator<Map.Entry<String, Integer>> targets = Collections.emptyIterator();
+
+            @Override public boolean hasNext() {
+                while (!targets.hasNext() && sources.hasNext()) {
+                    source = sources.next();
+                    targets = new TreeMap<>(graph.targets(source)).entrySet().iterator();
+                }
+                return targets.hasNext();
+            }
+
+            @Override public WeightedEdge next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<String, Integer> edge = targets.next();
+                return new WeightedEdge(source, edge.getKey(), edge.getValue());
+            }
+        };
+    }
+
+    /**
+     * Merge sorted edge runs lazily.
+     *
+     * @param runs iterators over edges in sorted order, with no two edges of one
+     *             run between the same endpoints
+     * @return an iterator in sorted order over one edge for each pair of
+     *         endpoints in runs, weighted by the sum of their weights in runs
+     */
+    public static Iterator<WeightedEdge> merge(List<? extends Iterator<WeightedEdge>> runs) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, runs.size()));
+        for (int i = 0; i < runs.size(); i++) {
+            Iterator<WeightedEdge> run = runs.get(i);
+            if (run.hasNext()) {
+                heads.add(new Head(run.next(), run, i));
+            }
+        }
+        return new Iterator<WeightedEdge>() {
+            @Override public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override public WeightedEdge next() {
+                if (heads.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                WeightedEdge first = heads.peek().edge;
+                long weight = 0;
+                while (!heads.isEmpty() && WeightedEdge.BY_ENDPOINTS.compare(heads.peek().edge, first) == 0) {
+                    Head head = heads.poll();
+                    weight += head.edge.getWeight();
+                    if (head.run.hasNext()) {
+                        heads.add(new Head(head.run.next(), head.run, head.index));
+                    }
+                }
+                return new WeightedEdge(first.getSource(), first.getTarget(), Weights.saturate(weight));
+            }
+        };
+    }
+
+    /**
+     * Merge graphs in memory.
+     *
+     * @param graphs graphs to merge; they are not modified
+     * @return a new graph with the vertices of all graphs, and an edge for
+     *         each pair of endpoints with an edge in any graph, weighted by the
+     *         sum of their weights
+     */
+    public static PersistentGraph mergeGraphs(List<? extends Graph<String>> graphs) {
+        PersistentGraph result = new PersistentGraph();
+        List<Iterator<WeightedEdge>> runs = new ArrayList<>(graphs.size());
+        for (Graph<String> graph : graphs) {
+            for (String vertex : graph.vertices()) {
+                result.add(vertex);
+            }
+            runs.add(sortedEdges(graph));
+        }
+        for (Iterator<WeightedEdge> edges = merge(runs); edges.hasNext();) {
+            WeightedEdge edge = edges.next();
+            result.set(edge.getSource(), edge.getTarget(), edge.getWeight());
+        }
+        return result;
+    }
+
+    /**
+     * Merge sorted edge list files into a graph, like
+     * {@link #mergeGraphs(List)}, reading each file once as a stream.
+     *
+     * @param edgeLists sorted UTF-8 edge lists, for example written by
+     *                  {@link EdgeList#writeSorted(Graph, Writer)}
+     * @return a new graph merging the graphs of edgeLists
+     * @throws IOException if a file cannot be found or read
+     * @throws IllegalArgumentException if a file is malformed or not sorted
+     */
+    public static PersistentGraph mergeEdgeLists(List<Path> edgeLists) throws IOException {
+        PersistentGraph result = new PersistentGraph();
+        mergeEdgeLists(edgeLists, result::add,
+                edge -> result.set(edge.getSource(), edge.getTarget(), edge.getWeight()));
+        return result;
+    }
+
+    /**
+     * Merge sorted edge list files into a sorted edge list, without holding
+     * either graph in memory. A vertex line is written for each vertex line of
+     * the inputs, so the output may repeat them.
+     *
+     * @param edgeLists sorted UTF-8 edge lists
+     * @param out writer to write the merged edge list to; it is not closed
+     * @throws IOException if a file cannot be found or read, or out cannot be
+     *                     written
+     * @throws IllegalArgumentException if a file is malformed or not sorted
+     */
+    public static void mergeEdgeLists(List<Path> edgeLists, Writer out) throws IOException {
+        mergeEdgeLists(edgeLists, vertex -> {
+            try {
+                EdgeList.writeVertex(vertex, out);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, edge -> {
+            try {
+                EdgeList.writeEdge(edge, out);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Stream the merge of sorted edge list files.
+     * UncheckedIOExceptions thrown by vertices or edges are rethrown as their
+     * causes.
+     */
+    private static void mergeEdgeLists(List<Path> edgeLists, Consumer<String> vertices,
+            Consumer<WeightedEdge> edges) throws IOException {
+        List<BufferedReader> readers = new ArrayList<>(edgeLists.size());
+        try {
+            List<Iterator<WeightedEdge>> runs = new ArrayList<>(edgeLists.size());
+            for (Path edgeList : edgeLists) {
+                BufferedReader reader = Files.newBufferedReader(edgeList, StandardCharsets.UTF_8);
+                readers.add(reader);
+                runs.add(EdgeList.edges(reader, vertices));
+            }
+            merge(runs).forEachRemaining(edges);
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        finally {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Head is the next edge of a run being merged, ordered by endpoints and
+     * then by the index of the run.
+     */
+    private static class Head implements Comparable<Head> {
+
+        private final WeightedEdge edge;
+        private final Iterator<WeightedEdge> run;
+        private final int index;
+
+        private Head(WeightedEdge edge, Iterator<WeightedEdge> run, int index) {
+            this.edge = edge;
+            this.run = run;
+            this.index = index;
+        }
+
+        @Override public int compareTo(Head that) {
+            int byEndpoints = WeightedEdge.BY_ENDPOINTS.compare(edge, that.edge);
+            return byEndpoints != 0 ? byEndpoints : Integer.compare(index, that.index);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GraphPruner is an immutable compaction pass that bounds the memory of a
+ * weighted directed graph by dropping light edges.
+ *
+ * <p>An edge is dropped if its weight is below the minimum weight, or if it is
+ * not among the maximum out-degree heaviest outgoing edges of its source
+ * (ties are broken by target label, so pruning is deterministic).
+ * Vertices are never removed, even if they lose all of their edges, unless
+ * they are in the pruner's excluded vocabulary: excluded vertices and all of
+ * their edges are removed in one bulk pass, and do not count towards the
+ * out-degree of their neighbours.
+ */
+public class GraphPruner {
+
+    // estimated heap cost in bytes of one edge, by graph implementation:
+    //   PersistentGraph: a trie leaf and its slot, in both the targets and
+    //     the sources trie (weights below 128 share cached Integers)
+    //   ConcreteEdgesGraph: an Edge object and its slot in the edge list
+    //   ConcreteVerticesGraph: a label reference and a weight byte in the
+    //     source's WeightMap, with slack for empty hash slots
+    private static final long PERSISTENT_BYTES_PER_EDGE = 56;
+    private static final long EDGES_BYTES_PER_EDGE = 28;
+    private static final long VERTICES_BYTES_PER_EDGE = 10;
+
+    private final int minWeight;
+    private final int maxOutDegree;
+    private final Set<String> excluded;
+
+    // Abstraction function:
+    //   represents the pass that keeps an edge iff its weight is at least
+    //     minWeight and it is among the maxOutDegree heaviest edges from its
+    //     source, after removing the vertices in excluded
+    // Representation invariant:
+    //   minWeight > 0
+    //   maxOutDegree >= 0
+    // Safety from rep exposure:
+    //   int is immutable, and all fields are declared as private final
+    //   excluded is an unmodifiable copy
+
+    /**
+     * Make a pruner.
+     *
+     * @param minWeight minimum weight of a kept edge, must be positive
+     * @param maxOutDegree maximum number of outgoing edges kept per vertex,
+     *                     must be nonnegative
+     * @throws IllegalArgumentException if minWeight or maxOutDegree is out of
+     *                                  range
+     */
+    public GraphPruner(int minWeight, int maxOutDegree) {
+        this(minWeight, maxOutDegree, Collections.emptySet());
+    }
+
+    /**
+     * Make a pruner that also removes a vocabulary of vertices.
+     *
+     * @param minWeight minimum weight of a kept edge, must be positive
+     * @param maxOutDegree maximum number of outgoing edges kept per vertex,
+     *                     must be nonnegative
+     * @param excluded labels of the vertices to remove, with their edges
+     * @throws IllegalArgumentException if minWeight or maxOutDegree is out of
+     *                                  range
+     */
+    public GraphPruner(int minWeight, int maxOutDegree, Collection<String> excluded) {
+        if (minWeight <= 0 || maxOutDegree < 0) {
+            throw new IllegalArgumentException("minWeight must be positive and maxOutDegree nonnegative");
+        }
+        this.minWeight = minWeight;
+        this.maxOutDegree = maxOutDegree;
+        this.excluded = Collections.unmodifiableSet(new HashSet<>(excluded));
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant.
+     */
+    private void checkRep() {
+        assert minWeight > 0;
+        assert maxOutDegree >= 0;
+    }
+
+    /**
+     * Get the minimum weight of a kept edge.
+     *
+     * @return minimum weight as a positive int
+     */
+    public int getMinWeight() {
+        return minWeight;
+    }
+
+    /**
+     * Get the maximum number of outgoing edges kept per vertex.
+     *
+     * @return maximum out-degree as a nonnegative int
+     */
+    public int getMaxOutDegree() {
+        return maxOutDegree;
+    }
+
+    /**
+     * Get the vertices removed by this pruner.
+     *
+     * @return unmodifiable set of the excluded labels
+     */
+    public Set<String> getExcluded() {
+        return excluded;
+    }
+
+    /**
+     * Estimate the heap cost of one edge of a graph, from the layout of its
+     * implementation. Implementations outside this package are estimated like
+     * a PersistentGraph.
+     *
+     * @param graph graph to estimate
+     * @return estimated number of heap bytes taken by one edge of graph
+     */
+    public static long estimatedBytesPerEdge(Graph<String> graph) {
+        if (graph instanceof ConcreteEdgesGraph) {
+            return EDGES_BYTES_PER_EDGE;
+        }
+        if (graph instanceof ConcreteVerticesGraph) {
+            return VERTICES_BYTES_PER_EDGE;
+        }
+        return PERSISTENT_BYTES_PER_EDGE;
+    }
+
+    /**
+     * Remove vertices from a graph, with their edges, in one bulk pass if the
+     * graph's implementation supports it.
+     *
+     * @param graph graph to remove from
+     * @param vertices labels of the vertices to remove
+     * @return true if graph included any of the vertices; otherwise false
+     */
+    public static boolean removeAll(Graph<String> graph, Collection<String> vertices) {
+        if (graph instanceof ConcreteEdgesGraph) {
+            return ((ConcreteEdgesGraph) graph).removeAll(vertices);
+        }
+        if (graph instanceof ConcreteVerticesGraph) {
+            return ((ConcreteVerticesGraph) graph).removeAll(vertices);
+        }
+        if (graph instanceof PersistentGraph) {
+            return ((PersistentGraph) graph).removeAll(vertices);
+        }
+        if (graph instanceof ShardedGraph) {
+            return ((ShardedGraph) graph).removeAll(vertices);
+        }
+        boolean included = false;
+        for (String vertex : vertices) {
+            included |= graph.remove(vertex);
+        }
+        return included;
+    }
+
+    /**
+     * Prune a graph in place.
+     *
+     * @param graph graph to compact; its light edges are removed
+     * @return a report of the removed edges and the reclaimed memory
+     */
+    public Report prune(Graph<String> graph) {
+        long removed = 0, retained = 0, removedWeight = 0;
+        Set<String> vertices = new HashSet<>(graph.vertices());
+        for (String source : vertices) {
+            Map<String, Integer> targets = graph.targets(source);
+            if (excluded.contains(source)) {
+                // removed with source by the bulk pass below
+                for (int weight : targets.values()) {
+                    removed++;
+                    removedWeight += weight;
+                }
+                continue;
+            }
+            List<String> kept = new ArrayList<>(targets.size());
+            for (Map.Entry<String, Integer> edge : targets.entrySet()) {
+                if (excluded.contains(edge.getKey())) {
+                    // removed with its target by the bulk pass below
+                    removed++;
+                    removedWeight += edge.getValue();
+                }
+                else if (edge.getValue() >= minWeight) {
+                    kept.add(edge.getKey());
+                }
+                else {
+                    graph.set(source, edge.getKey(), 0);
+                    removed++;
+                    removedWeight += edge.getValue();
+                }
+            }
+            if (kept.size() > maxOutDegree) {
+                kept.sort((a, b) -> {
+                    int byWeight = Integer.compare(targets.get(b), targets.get(a));
+                    return byWeight != 0 ? byWeight : a.compareTo(b);
+                });
+                for (String target : kept.subList(maxOutDegree, kept.size())) {
+                    graph.set(source, target, 0);
+                    removed++;
+                    removedWeight += targets.get(target);
+                }
+                retained += maxOutDegree;
+            }
+            else {
+                retained += kept.size();
+            }
+        }
+        if (!excluded.isEmpty()) {
+            removeAll(graph, excluded);
+        }
+        return new Report(removed, retained, removedWeight, estimatedBytesPerEdge(graph));
+    }
+
+    /**
+     * Report represents the immutable outcome of one pruning pass.
+     */
+    public static class Report {
+
+        private final long edgesRemoved, edgesRetained, weightRemoved, bytesPerEdge;
+
+        // Abstraction function:
+        //   represents a pass that removed edgesRemoved edges of total weight
+        //     weightRemoved and kept edgesRetained edges, from a graph whose
+        //     edges take about bytesPerEdge bytes each
+        // Representation invariant:
+        //   all counts are nonnegative, and weightRemoved >= edgesRemoved
+        //   bytesPerEdge > 0
+        // Safety from rep exposure:
+        //   long is immutable, and all fields are declared as private final
+
+        private Report(long edgesRemoved, long edgesRetained, long weightRemoved, long bytesPerEdge) {
+            this.edgesRemoved = edgesRemoved;
+            this.edgesRetained = edgesRetained;
+            this.weightRemoved = weightRemoved;
+            this.bytesPerEdge = bytesPerEdge;
+            assert edgesRemoved >= 0 && edgesRetained >= 0;
+            assert weightRemoved >= edgesRemoved;
+            assert bytesPerEdge > 0;
+        }
+
+        /**
+         * @return number of edges removed by the pass
+         */
+        public long getEdgesRemoved() {
+            return edgesRemoved;
+        }
+
+        /**
+         * @return number of edges left in the graph by the pass
+         */
+        public long getEdgesRetained() {
+            return edgesRetained;
+        }
+
+        /**
+         * @return sum of the weights of the removed edges
+         */
+        public long getWeightRemoved() {
+            return weightRemoved;
+        }
+
+        /**
+         * @return estimated number of heap bytes reclaimed by the pass, based
+         *         on {@link GraphPruner#estimatedBytesPerEdge(Graph)} for the
+         *         pruned graph
+         */
+        public long getBytesReclaimed() {
+            return edgesRemoved * bytesPerEdge;
+        }
+
+        /**
+         * @return a string in the form
+         *         "removed R edges (weight W), kept K edges, reclaimed ~B bytes"
+         */
+        @Override public String toString() {
+            return "removed " + edgesRemoved + " edges (weight " + weightRemoved
+                    + "), kept " + edgesRetained + " edges, reclaimed ~"
+                    + getBytesReclaimed() + " bytes";
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * GraphShardServer serves one shard of a {@link ShardedGraph} over a local
+ * socket.
+ *
+ * <p>The shard is an ordinary graph of type {@code Graph<String>} holding the
+ * outgoing edges of the source vertices assigned to this shard. Each client
+ * connection is served by its own thread, and requests on the shard are
+ * serialized.
+ *
+ * <p>Protocol: every request is an opcode byte followed by its arguments, and
+ * is answered before the next request on the same connection is read. Labels
+ * are written with {@link DataOutputStream#writeUTF(String)}, counts as ints,
+ * weights as varints (see {@link Weights#writeVarint}) except the int answer
+ * to SET, and flags as booleans.
+ * <ul>
+ * <li>ADD label -> boolean (true if the shard already included the label)
+ * <li>SET source target weight -> int (previous weight)
+ * <li>REMOVE count label* -> boolean (true if the shard included any label)
+ * <li>VERTICES -> count label*
+ * <li>CONTAINS label -> boolean
+ * <li>TARGETS count label* -> for each label: count (label weight)*
+ * <li>SOURCES count label* -> for each label: count (label weight)*
+ * </ul>
+ */
+public final class GraphShardServer implements Closeable {
+
+    static final byte ADD = 1, SET = 2, REMOVE = 3, VERTICES = 4,
+            CONTAINS = 5, TARGETS = 6, SOURCES = 7;
+
+    private final Graph<String> shard;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    // Abstraction function:
+    //   represents a server answering requests about shard on the loopback
+    //     port of serverSocket, with connections the currently open client
+    //     connections
+    // Representation invariant:
+    //   serverSocket is bound to the loopback address
+    // Safety from rep exposure:
+    //   all fields are private final and never returned; shard is owned by
+    //     this server once it is constructed
+    // Thread safety argument:
+    //   every access to shard is guarded by the shard's lock
+    //   connections is a thread-safe set
+
+    /**
+     * Start serving a shard on the loopback interface.
+     *
+     * @param shard graph holding this shard's edges; the server takes
+     *              ownership of it
+     * @param port port to listen on, or 0 for any free port
+     * @throws IOException if the server socket cannot be opened
+     */
+    public GraphShardServer(Graph<String> shard, int port) throws IOException {
+        this.shard = shard;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "graph-shard-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        checkRep();
+    }
+
+    /**
+     * Start serving an empty shard on any free loopback port. The shard is a
+     * {@link PersistentGraph}, so that lookups by label are hashed rather than
+     * linear scans.
+     *
+     * @throws IOException if the server socket cannot be opened
+     */
+    public GraphShardServer() throws IOException {
+        this(new PersistentGraph(), 0);
+    }
+
+    /**
+     * Check the rep invariant.
+     */
+    private void checkRep() {
+        assert serverSocket.getInetAddress().isLoopbackAddress();
+    }
+
+    /**
+     * Get the port this server listens on.
+     *
+     * @return the local port of the server socket
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accept client connections until the server is closed.
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread handler = new Thread(() -> serve(socket), "graph-shard-connection");
+                handler.setDaemon(true);
+                handler.start();
+            }
+            catch (IOException e) {
+                // server socket closed
+            }
+        }
+    }
+
+    /**
+     * Answer requests on one connection until the client disconnects.
+     *
+     * @param socket connection to a client
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                }
+                catch (EOFException e) {
+                    return;
+                }
+                synchronized (shard) {
+                    answer(op, in, out);
+                }
+                out.flush();
+            }
+        }
+        catch (SocketException e) {
+            // connection closed
+        }
+        catch (IOException e) {
+            // drop the broken connection; the client sees the failure
+        }
+        finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Read the arguments of one request and write its answer.
+     *
+     * @param op opcode of the request
+     * @param in stream to read the arguments from
+     * @param out stream to write the answer to
+     * @throws IOException if the connection fails or op is unknown
+     */
+    private void answer(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (op) {
+        case ADD:
+            out.writeBoolean(shard.add(in.readUTF()));
+            break;
+        case SET:
+            String source = in.readUTF(), target = in.readUTF();
+            out.writeInt(shard.set(source, target, Weights.readVarint(in)));
+            break;
+        case REMOVE: {
+            boolean included = false;
+            for (int i = in.readInt(); i > 0; i--) {
+                included |= shard.remove(in.readUTF());
+            }
+            out.writeBoolean(included);
+            break;
+        }
+        case VERTICES: {
+            Set<String> vertices = shard.vertices();
+            out.writeInt(vertices.size());
+            for (String vertex : vertices) {
+                out.writeUTF(vertex);
+            }
+            break;
+        }
+        case CONTAINS:
+            // a view for the default PersistentGraph shard, so not a copy
+            out.writeBoolean(shard.vertices().contains(in.readUTF()));
+            break;
+        case TARGETS:
+        case SOURCES: {
+            // read the whole batch first, so that a client pipelining requests
+            // to several shards never waits on a shard that waits on it
+            List<String> labels = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                labels.add(in.readUTF());
+            }
+            for (String label : labels) {
+                Map<String, Integer> edges = op == TARGETS ? shard.targets(label) : shard.sources(label);
+                out.writeInt(edges.size());
+                for (Map.Entry<String, Integer> edge : edges.entrySet()) {
+                    out.writeUTF(edge.getKey());
+                    Weights.writeVarint(out, edge.getValue());
+                }
+            }
+            break;
+        }
+        default:
+            throw new IOException("unknown opcode " + op);
+        }
+    }
+
+    /**
+     * Stop serving: close the server socket and all client connections.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * PageRank is an immutable ranking of the vertices of a weighted graph by
+ * weighted PageRank, together with their in- and out-strengths (the sums of
+ * the weights of their incoming and outgoing edges).
+ *
+ * <p>The ranking is computed by power iteration on a compressed sparse row
+ * (CSR) view of the graph: vertices are numbered, and the incoming edges of
+ * every vertex are packed into primitive arrays, each holding its source's
+ * number and its weight divided by its source's out-strength. Each iteration
+ * pulls scores along the incoming edges into a new double[] of scores, with
+ * the vertices partitioned into fork-join tasks of about the same number of
+ * edges, so no two tasks write the same score and no locking is needed.
+ * An iteration takes O(V + E) work, and iteration stops once the scores change
+ * by less than a tolerance in total (L1 norm).
+ *
+ * <p>A random surfer follows an outgoing edge with probability proportional
+ * to its weight, except that with probability 1 - damping, and always at a
+ * vertex without outgoing edges, it jumps to a vertex chosen uniformly at
+ * random. Scores are the probabilities of the surfer being at each vertex, so
+ * they sum to 1.
+ */
+public class PageRank {
+
+    /** Usual probability of following an edge rather than jumping. */
+    public static final double DEFAULT_DAMPING = 0.85;
+
+    /** Default bound on the total change of the scores in the last iteration. */
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+
+    /** Default maximum number of iterations. */
+    public static final int DEFAULT_MAX_ITERATIONS = 200;
+
+    /** Number of incoming edges below which a fork-join task is not split. */
+    private static final int EDGES_PER_TASK = 1 << 14;
+
+    private final String[] labels;
+    private final Map<String, Integer> ids;
+    private final double[] scores;
+    private final long[] inStrength, outStrength;
+    private final long edges;
+    private final int iterations;
+    private final double delta;
+
+    // Abstraction function:
+    //   represents the ranking of the vertices labels[i], with PageRank
+    //     scores[i], in-strength inStrength[i] and out-strength outStrength[i],
+    //     of a graph with that many edges, computed in that many iterations,
+    //     whose last one changed the scores by delta in total
+    // Representation invariant:
+    //   labels, scores, inStrength and outStrength have the same length n
+    //   ids.get(labels[i]) == i, and ids has n entries
+    //   scores are nonnegative and sum to 1 up to rounding error, if n > 0
+    // Safety from rep exposure:
+    //   all fields are private and final; the arrays and ids are never
+    //     returned, and lists are returned as fresh copies
+
+    private PageRank(String[] labels, Map<String, Integer> ids, double[] scores,
+            long[] inStrength, long[] outStrength, long edges, int iterations, double delta) {
+        this.labels = labels;
+        this.ids = ids;
+        this.scores = scores;
+        this.inStrength = inStrength;
+        this.outStrength = outStrength;
+        this.edges = edges;
+        this.iterations = iterations;
+        this.delta = delta;
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant.
+     * The sum of the scores is not checked, keeping this O(1).
+     */
+    private void checkRep() {
+        assert scores.length == labels.length;
+        assert inStrength.length == labels.length && outStrength.length == labels.length;
+        assert ids.size() == labels.length;
+    }
+
+    /**
+     * Rank the vertices of a graph with the default damping, tolerance and
+     * maximum number of iterations.
+     *
+     * @param graph graph to rank; it must not be modified during the call,
+     *              unless it is a {@link PersistentGraph}
+     * @return the ranking of graph's vertices
+     */
+    public static PageRank compute(Graph<String> graph) {
+        return compute(graph, DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * Rank the vertices of a graph.
+     *
+     * @param graph graph to rank; it must not be modified during the call,
+     *              unless it is a {@link PersistentGraph}
+     * @param damping probability of following an edge rather than jumping,
+     *                in [0, 1)
+     * @param tolerance iteration stops once the scores change by less than
+     *                  this in total; positive
+     * @param maxIterations iteration stops after this many iterations even if
+     *                      the scores have not converged; positive
+     * @return the ranking of graph's vertices
+     * @throws IllegalArgumentException if a parameter is out of range
+     */
+    public static PageRank compute(Graph<String> graph, double damping, double tolerance, int maxIterations) {
+        if (!(damping >= 0 && damping < 1) || !(tolerance > 0) || maxIterations <= 0) {
+            throw new IllegalArgumentException("damping " + damping + ", tolerance " + tolerance
+                    + ", iterations " + maxIterations);
+        }
+        // vertices and edges from the same version of a persistent graph
+        Graph<String> view = graph instanceof PersistentGraph ? ((PersistentGraph) graph).snapshot() : graph;
+        Spliterator<WeightedEdge> edgeSpliterator = EdgeSpliterator.of(view);
+        String[] labels = view.vertices().toArray(new String[0]);
+        int n = labels.length;
+        Map<String, Integer> ids = new HashMap<>(n * 4 / 3 + 1);
+        for (int i = 0; i < n; i++) {
+            ids.put(labels[i], i);
+        }
+
+        // edges as parallel arrays, then counting-sorted by target into CSR
+        long size = edgeSpliterator.getExactSizeIfKnown();
+        int capacity = (int) Math.min(size < 0 ? 16 : size, Integer.MAX_VALUE - 8);
+        int[][] endpoints = { new int[capacity], new int[capacity], new int[capacity] };
+        int[] count = { 0 };
+        edgeSpliterator.forEachRemaining(edge -> {
+            if (count[0] == endpoints[0].length) {
+                for (int i = 0; i < endpoints.length; i++) {
+                    endpoints[i] = Arrays.copyOf(endpoints[i], Math.max(16, count[0] * 2));
+                }
+            }
+            endpoints[0][count[0]] = ids.get(edge.getSource());
+            endpoints[1][count[0]] = ids.get(edge.getTarget());
+            endpoints[2][count[0]] = edge.getWeight();
+            count[0]++;
+        });
+        int e = count[0];
+        int[] from = endpoints[0], to = endpoints[1], weight = endpoints[2];
+        long[] inStrength = new long[n], outStrength = new long[n];
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < e; i++) {
+            outStrength[from[i]] += weight[i];
+            inStrength[to[i]] += weight[i];
+            offsets[to[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] sources = new int[e];
+        double[] shares = new double[e];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < e; i++) {
+            int slot = fill[to[i]]++;
+            sources[slot] = from[i];
+            shares[slot] = (double) weight[i] / outStrength[from[i]];
+        }
+
+        double[] scores = new double[n];
+        Arrays.fill(scores, 1.0 / n);
+        double[] next = new double[n];
+        int iterations = 0;
+        double delta = n == 0 ? 0 : Double.POSITIVE_INFINITY;
+        while (delta >= tolerance && iterations < maxIterations) {
+            double dangling = 0;
+            for (int v = 0; v < n; v++) {
+                if (outStrength[v] == 0) {
+                    dangling += scores[v];
+                }
+            }
+            double base = (1 - damping + damping * dangling) / n;
+            delta = ForkJoinPool.commonPool().invoke(
+                    new Sweep(offsets, sources, shares, scores, next, base, damping, 0, n));
+            double[] swap = scores;
+            scores = next;
+            next = swap;
+            iterations++;
+        }
+        return new PageRank(labels, ids, scores, inStrength, outStrength, e, iterations, delta);
+    }
+
+    /**
+     * @param word label of a vertex
+     * @return the PageRank score of word, or 0 if it is not a vertex
+     */
+    public double score(String word) {
+        Integer id = ids.get(word);
+        return id == null ? 0 : scores[id];
+    }
+
+    /**
+     * @param word label of a vertex
+     * @return the sum of the weights of the edges into word, or 0 if it is
+     *         not a vertex
+     */
+    public long inStrength(String word) {
+        Integer id = ids.get(word);
+        return id == null ? 0 : inStrength[id];
+    }
+
+    /**
+     * @param word label of a vertex
+     * @return the sum of the weights of the edges out of word, or 0 if it is
+     *         not a vertex
+     */
+    public long outStrength(String word) {
+        Integer id = ids.get(word);
+        return id == null ? 0 : outStrength[id];
+    }
+
+    /**
+     * Get the highest-ranked vertices.
+     *
+     * @param k maximum number of vertices, nonnegative
+     * @return the min(k, n) vertices with the highest scores, highest first,
+     *         ties broken by label
+     */
+    public List<String> top(int k) {
+        Comparator<Integer> byRank = Comparator.<Integer>comparingDouble(i -> -scores[i])
+                .thenComparing(i -> labels[i]);
+        List<String> result = new ArrayList<>();
+        ids.values().stream().sorted(byRank).limit(k).forEach(i -> result.add(labels[i]));
+        return result;
+    }
+
+    /**
+     * @return number of vertices ranked
+     */
+    public int vertices() {
+        return labels.length;
+    }
+
+    /**
+     * @return number of edges of the ranked graph
+     */
+    public long edges() {
+        return edges;
+    }
+
+    /**
+     * @return number of iterations computed
+     */
+    public int iterations() {
+        return iterations;
+    }
+
+    /**
+     * @return total change of the scores in the last iteration; below the
+     *         tolerance unless the maximum number of iterations was reached
+     */
+    public double delta() {
+        return delta;
+    }
+
+    /**
+     * @return a string in the form "PageRank of V vertices, E edges, I
+     *         iterations, delta D"
+     */
+    @Override public String toString() {
+        return "PageRank of " + vertices() + " vertices, " + edges + " edges, "
+                + iterations + " iterations, delta " + delta;
+    }
+
+    /**
+     * Sweep is one iteration over a range of vertices, split into subranges
+     * of about {@link #EDGES_PER_TASK} incoming edges. It computes their next
+     * scores and returns the total change of their scores.
+     */
+    private static final class Sweep extends RecursiveTask<Double> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] offsets, sources;
+        private final double[] shares, scores, next;
+        private final double base, damping;
+        private final int low, high;
+
+        private Sweep(int[] offsets, int[] sources, double[] shares, double[] scores, double[] next,
+                double base, double damping, int low, int high) {
+            this.offsets = offsets;
+            this.sources = sources;
+            this.shares = shares;
+            this.scores = scores;
+            this.next = next;
+            this.base = base;
+            this.damping = damping;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override protected Double compute() {
+            if (high - low > 1 && offsets[high] - offsets[low] > EDGES_PER_TASK) {
+                // split at the vertex that halves the incoming edges
+                int middleEdge = offsets[low] + (offsets[high] - offsets[low]) / 2;
+                int middle = Arrays.binarySearch(offsets, low + 1, high, middleEdge);
+                middle = Math.max(low + 1, Math.min(middle < 0 ? -middle - 1 : middle, high - 1));
+                Sweep left = new Sweep(offsets, sources, shares, scores, next, base, damping, low, middle);
+                left.fork();
+                double right = new Sweep(offsets, sources, shares, scores, next, base, damping, middle, high)
+                        .compute();
+                return left.join() + right;
+            }
+            double delta = 0;
+            for (int v = low; v < high; v++) {
+                double sum = 0;
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    sum += scores[sources[i]] * shares[i];
+                }
+                next[v] = base + damping * sum;
+                delta += Math.abs(next[v] - scores[v]);
+            }
+            return delta;
+        }
+    }
+}
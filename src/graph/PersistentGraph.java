@@ -0,0 +1,250 @@
+package graph;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+
+/**
+ * An implementation of Graph backed by persistent hash tries, so that
+ * {@link #snapshot()} copies the graph in O(1) time.
+ *
+ * <p>A snapshot shares all of its structure with the graph it was taken from.
+ * Later mutations of either graph copy only the trie nodes on the paths they
+ * touch, O(log n) nodes per edge, and are never visible to the other graph.
+ * The sets and maps returned by {@link #vertices()}, {@link #sources(String)}
+ * and {@link #targets(String)} are likewise O(1), unmodifiable views of the
+ * graph at the time of the call.
+ */
+public class PersistentGraph implements Graph<String> {
+
+    private PersistentMap<String, PersistentMap<String, Integer>> targets;
+    private PersistentMap<String, PersistentMap<String, Integer>> sources;
+    private final boolean readOnly;
+    private long fingerprint;
+
+    // Abstraction function:
+    //   the key set of targets represents the vertices in the graph, and
+    //     targets.get(s).get(t) == w represents the edge from s to t with
+    //     weight w
+    //   sources is the transpose of targets, indexing the same edges by target
+    // Representation invariant:
+    //   targets and sources have the same key set
+    //   targets.get(s).get(t) == sources.get(t).get(s) for every edge, and
+    //     neither has any other entries
+    //   all weights are positive
+    //   if readOnly, targets and sources are never replaced
+    //   fingerprint == Fingerprint.compute(this)
+    // Safety from rep exposure:
+    //   targets and sources are private and immutable; they are only ever
+    //     replaced, never mutated, so sharing them with snapshots and views is
+    //     safe
+
+    /**
+     * Make an empty graph.
+     */
+    public PersistentGraph() {
+        this(PersistentMap.empty(), PersistentMap.empty(), false, 0);
+    }
+
+    private PersistentGraph(PersistentMap<String, PersistentMap<String, Integer>> targets,
+            PersistentMap<String, PersistentMap<String, Integer>> sources, boolean readOnly, long fingerprint) {
+        this.targets = targets;
+        this.sources = sources;
+        this.readOnly = readOnly;
+        this.fingerprint = fingerprint;
+        checkRep();
+    }
+
+    /**
+     * Make a persistent copy of a graph.
+     *
+     * @param graph graph to copy
+     * @return a new PersistentGraph with the vertices and edges of graph; if
+     *         graph is a PersistentGraph, this is an O(1) snapshot
+     */
+    public static PersistentGraph copyOf(Graph<String> graph) {
+        if (graph instanceof PersistentGraph) {
+            return ((PersistentGraph) graph).snapshot();
+        }
+        PersistentGraph result = new PersistentGraph();
+        for (String vertex : graph.vertices()) {
+            result.add(vertex);
+        }
+        EdgeSpliterator.of(graph).forEachRemaining(
+                edge -> result.set(edge.getSource(), edge.getTarget(), edge.getWeight()));
+        return result;
+    }
+
+    /**
+     * Check the rep invariant.
+     * Only the sizes are compared, and the fingerprint is not recomputed,
+     * keeping this O(1) per mutation.
+     */
+    private void checkRep() {
+        assert targets.size() == sources.size();
+    }
+
+    /**
+     * Take a snapshot of this graph in O(1) time.
+     *
+     * @return a new graph with the same vertices and edges as this graph;
+     *         later changes to either graph do not affect the other
+     */
+    public PersistentGraph snapshot() {
+        return new PersistentGraph(targets, sources, false, fingerprint);
+    }
+
+    /**
+     * Take a read-only snapshot of this graph in O(1) time.
+     *
+     * @return a new graph like {@link #snapshot()}, except that its mutators
+     *         throw UnsupportedOperationException
+     */
+    PersistentGraph readOnlySnapshot() {
+        return new PersistentGraph(targets, sources, true, fingerprint);
+    }
+
+    /**
+     * @throws UnsupportedOperationException if this graph is read-only
+     */
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("read-only graph");
+        }
+    }
+
+    @Override public boolean add(String vertex) {
+        checkWritable();
+        if (targets.containsKey(vertex)) {
+            return true;
+        }
+        targets = targets.put(vertex, PersistentMap.empty());
+        sources = sources.put(vertex, PersistentMap.empty());
+        fingerprint += Fingerprint.vertex(vertex);
+        checkRep();
+        return false;
+    }
+
+    @Override public int set(String source, String target, int weight) {
+        assert weight >= 0;
+        checkWritable();
+        PersistentMap<String, Integer> fromSource = targets.get(source);
+        Integer original = fromSource == null ? null : fromSource.get(target);
+        if (weight > 0) {
+            add(source);
+            add(target);
+            // one box shared by both indexes
+            Integer boxed = Weights.box(weight);
+            targets = targets.put(source, targets.get(source).put(target, boxed));
+            sources = sources.put(target, sources.get(target).put(source, boxed));
+            fingerprint += Fingerprint.edge(source, target, weight);
+        }
+        else if (original != null) {
+            targets = targets.put(source, fromSource.remove(target));
+            sources = sources.put(target, sources.get(target).remove(source));
+        }
+        if (original != null) {
+            fingerprint -= Fingerprint.edge(source, target, original);
+        }
+        checkRep();
+        return original == null ? 0 : original;
+    }
+
+    @Override public boolean remove(String vertex) {
+        checkWritable();
+        PersistentMap<String, Integer> outgoing = targets.get(vertex);
+        if (outgoing == null) {
+            return false;
+        }
+        PersistentMap<String, Integer> incoming = sources.get(vertex);
+        targets = targets.remove(vertex);
+        sources = sources.remove(vertex);
+        fingerprint -= Fingerprint.vertex(vertex);
+        for (Map.Entry<String, Integer> edge : outgoing) {
+            fingerprint -= Fingerprint.edge(vertex, edge.getKey(), edge.getValue());
+            PersistentMap<String, Integer> into = sources.get(edge.getKey());
+            if (into != null) {
+                sources = sources.put(edge.getKey(), into.remove(vertex));
+            }
+        }
+        for (Map.Entry<String, Integer> edge : incoming) {
+            PersistentMap<String, Integer> from = targets.get(edge.getKey());
+            if (from != null) {
+                // a self loop was subtracted with the outgoing edges
+                fingerprint -= Fingerprint.edge(edge.getKey(), vertex, edge.getValue());
+                targets = targets.put(edge.getKey(), from.remove(vertex));
+            }
+        }
+        checkRep();
+        return true;
+    }
+
+    /**
+     * Remove vertices from this graph; any edges to or from them are also
+     * removed. This touches only the removed vertices and their neighbours.
+     *
+     * @param vertices labels of the vertices to remove
+     * @return true if this graph included any of the vertices; otherwise false
+     *         (and this graph is not modified)
+     */
+    public boolean removeAll(Collection<String> vertices) {
+        checkWritable();
+        boolean included = false;
+        for (String vertex : vertices) {
+            included |= remove(vertex);
+        }
+        return included;
+    }
+
+    /**
+     * Get a spliterator over the edges of this graph, as of the call: later
+     * changes to this graph do not affect it. See {@link EdgeSpliterator}.
+     *
+     * @return an immutable spliterator over the edges of this graph
+     */
+    public Spliterator<WeightedEdge> edgeSpliterator() {
+        String[] labels = new String[targets.size()];
+        Map<String, Integer>[] edges = EdgeSpliterator.newTargets(labels.length);
+        int i = 0;
+        for (Map.Entry<String, PersistentMap<String, Integer>> vertex : targets) {
+            labels[i] = vertex.getKey();
+            edges[i] = vertex.getValue().asMap();
+            i++;
+        }
+        return new EdgeSpliterator(labels, edges, Spliterator.IMMUTABLE);
+    }
+
+    /**
+     * Get the fingerprint of this graph, kept up to date in O(1) time per
+     * vertex or edge changed. See {@link Fingerprint}.
+     *
+     * @return fingerprint of this graph
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    @Override public Set<String> vertices() {
+        return targets.keySet();
+    }
+
+    @Override public Map<String, Integer> sources(String target) {
+        PersistentMap<String, Integer> edges = sources.get(target);
+        return edges == null ? Collections.emptyMap() : edges.asMap();
+    }
+
+    @Override public Map<String, Integer> targets(String source) {
+        PersistentMap<String, Integer> edges = targets.get(source);
+        return edges == null ? Collections.emptyMap() : edges.asMap();
+    }
+
+    /**
+     * @return a list of strings in the form "(source -> target, weight)",
+     *         representing the edges in the graph
+     */
+    @Override public String toString() {
+        return GraphExporter.toText(this);
+    }
+}
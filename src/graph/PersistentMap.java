@@ -0,0 +1,487 @@
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * PersistentMap is an immutable hash array mapped trie (HAMT).
+ * Updates return a new map that shares all untouched nodes with the old one,
+ * so an update copies only the O(log32 n) nodes on the path to its key.
+ * This class is internal to the rep of PersistentGraph.
+ *
+ * @param <K> type of keys, must be immutable
+ * @param <V> type of values, must be immutable
+ */
+final class PersistentMap<K, V> implements Iterable<Map.Entry<K, V>> {
+
+    private static final int BITS = 5, MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    // Abstraction function:
+    //   represents the map from the keys to the values of the leaves reachable
+    //     from root, or the empty map if root is null
+    // Representation invariant:
+    //   size is the number of leaves reachable from root
+    //   a leaf with hash h reachable through bitmap nodes at depths
+    //     0..d-1 sits in slot (h >>> BITS*i) & MASK of the node at depth i
+    //   no two leaves have equal keys
+    //   no bitmap node except the root is empty, and no collision node has
+    //     fewer than two leaves
+    // Safety from rep exposure:
+    //   nodes are never mutated after construction, and never returned;
+    //     returned entries are immutable leaves
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param <K> type of keys
+     * @param <V> type of values
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Spread the higher bits of a hash code into the lower ones, which are
+     * consumed first.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return number of keys in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param key a key
+     * @return the value for key, or null if this map has no such key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (root == null) {
+            return null;
+        }
+        Leaf leaf = root.find(key, hash(key), 0);
+        return leaf == null ? null : (V) leaf.getValue();
+    }
+
+    /**
+     * @param key a key
+     * @return true iff this map has key
+     */
+    public boolean containsKey(Object key) {
+        return root != null && root.find(key, hash(key), 0) != null;
+    }
+
+    /**
+     * @param key a key
+     * @param value its new value, not null
+     * @return a map equal to this map except that key maps to value
+     */
+    public PersistentMap<K, V> put(K key, V value) {
+        Leaf leaf = new Leaf(key, hash(key), value);
+        if (root == null) {
+            return new PersistentMap<>(new BitmapNode(0, new Object[0]).put(leaf, 0), 1);
+        }
+        Node updated = root.put(leaf, 0);
+        if (updated == root) {
+            return this;
+        }
+        boolean added = root.find(key, leaf.hash, 0) == null;
+        return new PersistentMap<>(updated, added ? size + 1 : size);
+    }
+
+    /**
+     * @param key a key
+     * @return a map equal to this map except that it has no key
+     */
+    public PersistentMap<K, V> remove(Object key) {
+        if (root == null) {
+            return this;
+        }
+        int hash = hash(key);
+        if (root.find(key, hash, 0) == null) {
+            return this;
+        }
+        Node updated = root.remove(key, hash, 0);
+        return size == 1 ? empty() : new PersistentMap<>(updated, size - 1);
+    }
+
+    /**
+     * @return an iterator over the entries of this map, in an order determined
+     *         by the hashes of their keys
+     */
+    @Override public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(root);
+    }
+
+    /**
+     * @return an unmodifiable view of this map; since this map is immutable,
+     *         the view never changes
+     */
+    public Map<K, V> asMap() {
+        return new MapView<>(this);
+    }
+
+    /**
+     * @return an unmodifiable view of the keys of this map
+     */
+    public Set<K> keySet() {
+        return new KeySetView<>(this);
+    }
+
+    /**
+     * Node is an immutable node of the trie.
+     */
+    private abstract static class Node {
+
+        /**
+         * @return the leaf with key in the subtrie of this node at depth
+         *         shift / BITS, or null if there is none
+         */
+        abstract Leaf find(Object key, int hash, int shift);
+
+        /**
+         * @return this node if leaf is already in it with an identical value,
+         *         otherwise a node with leaf added or replacing the leaf of the
+         *         same key
+         */
+        abstract Node put(Leaf leaf, int shift);
+
+        /**
+         * @return a node without key, or null if that leaves it empty; key
+         *         must be in this node
+         */
+        abstract Node remove(Object key, int hash, int shift);
+    }
+
+    /**
+     * Leaf is an immutable entry of the trie.
+     */
+    private static final class Leaf extends AbstractMap.SimpleImmutableEntry<Object, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int hash;
+
+        Leaf(Object key, int hash, Object value) {
+            super(key, value);
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * BitmapNode holds the children for the hash fragments set in its bitmap,
+     * in fragment order; each child is a Leaf or a Node.
+     */
+    private static final class BitmapNode extends Node {
+
+        private final int bitmap;
+        private final Object[] children;
+
+        BitmapNode(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+            assert Integer.bitCount(bitmap) == children.length;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override Leaf find(Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = children[index(bit)];
+            if (child instanceof Leaf) {
+                Leaf leaf = (Leaf) child;
+                return leaf.hash == hash && leaf.getKey().equals(key) ? leaf : null;
+            }
+            return ((Node) child).find(key, hash, shift + BITS);
+        }
+
+        @Override Node put(Leaf leaf, int shift) {
+            int bit = 1 << ((leaf.hash >>> shift) & MASK);
+            int i = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] updated = new Object[children.length + 1];
+                System.arraycopy(children, 0, updated, 0, i);
+                updated[i] = leaf;
+                System.arraycopy(children, i, updated, i + 1, children.length - i);
+                return new BitmapNode(bitmap | bit, updated);
+            }
+            Object child = children[i];
+            Object replacement;
+            if (child instanceof Leaf) {
+                Leaf existing = (Leaf) child;
+                if (existing.hash == leaf.hash && existing.getKey().equals(leaf.getKey())) {
+                    if (existing.getValue().equals(leaf.getValue())) {
+                        return this;
+                    }
+                    replacement = leaf;
+                }
+                else {
+                    replacement = merge(existing, leaf, shift + BITS);
+                }
+            }
+            else {
+                Node node = (Node) child;
+                replacement = node.put(leaf, shift + BITS);
+                if (replacement == node) {
+                    return this;
+                }
+            }
+            Object[] updated = children.clone();
+            updated[i] = replacement;
+            return new BitmapNode(bitmap, updated);
+        }
+
+        /**
+         * @return a node holding two leaves with distinct keys
+         */
+        private static Node merge(Leaf a, Leaf b, int shift) {
+            if (shift >= Integer.SIZE) {
+                return new CollisionNode(a.hash, new Leaf[] { a, b });
+            }
+            int fragmentA = (a.hash >>> shift) & MASK, fragmentB = (b.hash >>> shift) & MASK;
+            if (fragmentA == fragmentB) {
+                return new BitmapNode(1 << fragmentA, new Object[] { merge(a, b, shift + BITS) });
+            }
+            Object[] children = fragmentA < fragmentB ? new Object[] { a, b } : new Object[] { b, a };
+            return new BitmapNode((1 << fragmentA) | (1 << fragmentB), children);
+        }
+
+        @Override Node remove(Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int i = index(bit);
+            Object child = children[i];
+            Object replacement = child instanceof Leaf ? null : ((Node) child).remove(key, hash, shift + BITS);
+            if (replacement instanceof BitmapNode) {
+                BitmapNode node = (BitmapNode) replacement;
+                if (node.children.length == 1 && node.children[0] instanceof Leaf) {
+                    replacement = node.children[0]; // pull a lone leaf up
+                }
+            }
+            else if (replacement instanceof CollisionNode && ((CollisionNode) replacement).leaves.length == 1) {
+                replacement = ((CollisionNode) replacement).leaves[0];
+            }
+            if (replacement != null) {
+                Object[] updated = children.clone();
+                updated[i] = replacement;
+                return new BitmapNode(bitmap, updated);
+            }
+            if (children.length == 1) {
+                return null;
+            }
+            Object[] updated = new Object[children.length - 1];
+            System.arraycopy(children, 0, updated, 0, i);
+            System.arraycopy(children, i + 1, updated, i, children.length - i - 1);
+            return new BitmapNode(bitmap & ~bit, updated);
+        }
+    }
+
+    /**
+     * CollisionNode holds leaves whose keys have identical hashes.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+        private final Leaf[] leaves;
+
+        CollisionNode(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].getKey().equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override Leaf find(Object key, int hash, int shift) {
+            int i = hash == this.hash ? indexOf(key) : -1;
+            return i < 0 ? null : leaves[i];
+        }
+
+        @Override Node put(Leaf leaf, int shift) {
+            assert leaf.hash == hash;
+            int i = indexOf(leaf.getKey());
+            if (i >= 0 && leaves[i].getValue().equals(leaf.getValue())) {
+                return this;
+            }
+            Leaf[] updated;
+            if (i >= 0) {
+                updated = leaves.clone();
+                updated[i] = leaf;
+            }
+            else {
+                updated = Arrays.copyOf(leaves, leaves.length + 1);
+                updated[leaves.length] = leaf;
+            }
+            return new CollisionNode(hash, updated);
+        }
+
+        @Override Node remove(Object key, int hash, int shift) {
+            int i = indexOf(key);
+            Leaf[] updated = new Leaf[leaves.length - 1];
+            System.arraycopy(leaves, 0, updated, 0, i);
+            System.arraycopy(leaves, i + 1, updated, i, leaves.length - i - 1);
+            return new CollisionNode(hash, updated);
+        }
+    }
+
+    /**
+     * EntryIterator walks the trie depth first.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+        private final Deque<Object[]> arrays = new ArrayDeque<>();
+        private final Deque<Integer> positions = new ArrayDeque<>();
+        private Leaf next;
+
+        EntryIterator(Node root) {
+            if (root != null) {
+                push(root);
+            }
+            advance();
+        }
+
+        private void push(Node node) {
+            arrays.push(node instanceof BitmapNode ? ((BitmapNode) node).children : ((CollisionNode) node).leaves);
+            positions.push(0);
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !arrays.isEmpty()) {
+                Object[] array = arrays.peek();
+                int position = positions.pop();
+                if (position == array.length) {
+                    arrays.pop();
+                    continue;
+                }
+                positions.push(position + 1);
+                Object child = array[position];
+                if (child instanceof Leaf) {
+                    next = (Leaf) child;
+                }
+                else {
+                    push((Node) child);
+                }
+            }
+        }
+
+        @Override public boolean hasNext() {
+            return next != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf result = next;
+            advance();
+            return (Map.Entry<K, V>) (Map.Entry<?, ?>) result;
+        }
+    }
+
+    /**
+     * MapView is an unmodifiable Map view of a PersistentMap.
+     */
+    private static final class MapView<K, V> extends AbstractMap<K, V> {
+
+        private final PersistentMap<K, V> map;
+
+        MapView(PersistentMap<K, V> map) {
+            this.map = map;
+        }
+
+        @Override public int size() {
+            return map.size();
+        }
+
+        @Override public boolean containsKey(Object key) {
+            return key != null && map.containsKey(key);
+        }
+
+        @Override public V get(Object key) {
+            return key == null ? null : map.get(key);
+        }
+
+        @Override public Set<K> keySet() {
+            return map.keySet();
+        }
+
+        @Override public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<Map.Entry<K, V>>() {
+                @Override public Iterator<Map.Entry<K, V>> iterator() {
+                    return map.iterator();
+                }
+
+                @Override public int size() {
+                    return map.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * KeySetView is an unmodifiable Set view of the keys of a PersistentMap.
+     */
+    private static final class KeySetView<K> extends AbstractSet<K> {
+
+        private final PersistentMap<K, ?> map;
+
+        KeySetView(PersistentMap<K, ?> map) {
+            this.map = map;
+        }
+
+        @Override public int size() {
+            return map.size();
+        }
+
+        @Override public boolean contains(Object key) {
+            return key != null && map.containsKey(key);
+        }
+
+        @Override public Iterator<K> iterator() {
+            Iterator<? extends Map.Entry<K, ?>> entries = map.iterator();
+            return new Iterator<K>() {
+                @Override public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override public K next() {
+                    return entries.next().getKey();
+                }
+            };
+        }
+    }
+}
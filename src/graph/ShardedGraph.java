@@ -0,0 +1,384 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A graph whose outgoing edges are hash-partitioned by source label across
+ * shards served by {@link GraphShardServer}s.
+ *
+ * <p>The edges from a source vertex all live on the shard selected by the hash
+ * of the source label, so {@link #targets(String)} costs one round trip to one
+ * shard. Queries that need every shard, such as {@link #sources(String)} and
+ * {@link #vertices()}, send their request to all shards before reading any
+ * answer, so they also cost a single round trip. The batched
+ * {@link #targets(Collection)} and {@link #sources(Collection)} answer many
+ * labels in one round trip.
+ *
+ * <p>Network failures are reported as {@link UncheckedIOException}.
+ * Instances are safe for concurrent use.
+ */
+public class ShardedGraph implements Graph<String>, Closeable {
+
+    private final List<ShardClient> shards = new ArrayList<>();
+
+    // Abstraction function:
+    //   represents the union of the graphs held by the servers behind shards:
+    //     a vertex is in the graph iff some shard includes it, and the edge
+    //     from source to target is the one held by shards[shardOf(source)]
+    // Representation invariant:
+    //   shards is nonempty
+    //   for every shard i, all edges held by shards[i] have a source s with
+    //     shardOf(s) == i
+    // Safety from rep exposure:
+    //   shards is private final and never returned; returned maps and sets
+    //     are fresh copies
+    // Thread safety argument:
+    //   all public methods are synchronized on this graph, so requests to the
+    //     shards never interleave
+
+    /**
+     * Connect to the servers of a sharded graph.
+     *
+     * @param addresses addresses of the shard servers, in shard order; every
+     *                  client of the same graph must list them in the same order
+     * @throws IOException if a shard cannot be reached
+     * @throws IllegalArgumentException if addresses is empty
+     */
+    public ShardedGraph(List<InetSocketAddress> addresses) throws IOException {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("at least one shard is required");
+        }
+        for (InetSocketAddress address : addresses) {
+            shards.add(new ShardClient(address));
+        }
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant.
+     */
+    private void checkRep() {
+        assert !shards.isEmpty();
+    }
+
+    /**
+     * Get the shard holding the outgoing edges of a vertex.
+     *
+     * @param source label of the source vertex
+     * @return the index of its shard
+     */
+    private int shardOf(String source) {
+        return Math.floorMod(source.hashCode(), shards.size());
+    }
+
+    @Override public synchronized boolean add(String vertex) {
+        try {
+            int home = shardOf(vertex);
+            for (int i = 0; i < shards.size(); i++) {
+                if (i == home) {
+                    shards.get(i).sendAdd(vertex);
+                }
+                else {
+                    shards.get(i).sendContains(vertex);
+                }
+            }
+            boolean included = false;
+            for (ShardClient shard : shards) {
+                included |= shard.readBoolean();
+            }
+            return included;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override public synchronized int set(String source, String target, int weight) {
+        assert weight >= 0;
+        try {
+            ShardClient shard = shards.get(shardOf(source));
+            shard.sendSet(source, target, weight);
+            return shard.readInt();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override public synchronized boolean remove(String vertex) {
+        return removeAll(Collections.singleton(vertex));
+    }
+
+    /**
+     * Remove vertices from this graph; any edges to or from them are also
+     * removed.
+     *
+     * @param vertices labels of the vertices to remove
+     * @return true if this graph included any of the vertices; otherwise false
+     *         (and this graph is not modified)
+     */
+    public synchronized boolean removeAll(Collection<String> vertices) {
+        try {
+            for (ShardClient shard : shards) {
+                shard.sendLabels(GraphShardServer.REMOVE, vertices);
+            }
+            boolean included = false;
+            for (ShardClient shard : shards) {
+                included |= shard.readBoolean();
+            }
+            return included;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override public synchronized Set<String> vertices() {
+        try {
+            for (ShardClient shard : shards) {
+                shard.sendVertices();
+            }
+            Set<String> result = new HashSet<>();
+            for (ShardClient shard : shards) {
+                shard.readLabels(result);
+            }
+            return result;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override public synchronized Map<String, Integer> sources(String target) {
+        return sources(Collections.singleton(target)).get(target);
+    }
+
+    @Override public synchronized Map<String, Integer> targets(String source) {
+        return targets(Collections.singleton(source)).get(source);
+    }
+
+    /**
+     * Get the target vertices and edge weights of many source vertices in a
+     * single round trip.
+     *
+     * @param sources labels
+     * @return a map whose key set is sources, and where the value for each key
+     *         is {@link #targets(String)} of that key
+     */
+    public synchronized Map<String, Map<String, Integer>> targets(Collection<String> sources) {
+        List<List<String>> byShard = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (String source : new HashSet<>(sources)) {
+            byShard.get(shardOf(source)).add(source);
+        }
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                if (!byShard.get(i).isEmpty()) {
+                    shards.get(i).sendLabels(GraphShardServer.TARGETS, byShard.get(i));
+                }
+            }
+            Map<String, Map<String, Integer>> result = new HashMap<>();
+            for (int i = 0; i < shards.size(); i++) {
+                for (String source : byShard.get(i)) {
+                    result.put(source, shards.get(i).readEdges(new HashMap<>()));
+                }
+            }
+            return result;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Get the source vertices and edge weights of many target vertices in a
+     * single round trip.
+     *
+     * @param targets labels
+     * @return a map whose key set is targets, and where the value for each key
+     *         is {@link #sources(String)} of that key
+     */
+    public synchronized Map<String, Map<String, Integer>> sources(Collection<String> targets) {
+        List<String> labels = new ArrayList<>(new HashSet<>(targets));
+        try {
+            for (ShardClient shard : shards) {
+                shard.sendLabels(GraphShardServer.SOURCES, labels);
+            }
+            Map<String, Map<String, Integer>> result = new HashMap<>();
+            for (String target : labels) {
+                result.put(target, new HashMap<>());
+            }
+            for (ShardClient shard : shards) {
+                for (String target : labels) {
+                    shard.readEdges(result.get(target));
+                }
+            }
+            return result;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Disconnect from all shard servers.
+     *
+     * @throws IOException if a connection cannot be closed
+     */
+    @Override public synchronized void close() throws IOException {
+        for (ShardClient shard : shards) {
+            shard.close();
+        }
+    }
+
+    /**
+     * @return a list of strings in the form "(source -> target, weight)",
+     *         representing the edges in the graph
+     */
+    @Override public synchronized String toString() {
+        StringBuilder result = new StringBuilder();
+        Map<String, Map<String, Integer>> edges = targets(vertices());
+        for (Map.Entry<String, Map<String, Integer>> vertex : edges.entrySet()) {
+            for (Map.Entry<String, Integer> edge : vertex.getValue().entrySet()) {
+                result.append("(").append(vertex.getKey())
+                        .append(" -> ").append(edge.getKey())
+                        .append(", ").append(edge.getValue())
+                        .append(")\n");
+            }
+        }
+        return result.toString().strip();
+    }
+}
+
+/**
+ * ShardClient is a connection to one {@link GraphShardServer}.
+ * Requests are split into a send half and a read half so that a request can be
+ * sent to every shard before any answer is awaited.
+ * This class is internal to the rep of ShardedGraph.
+ */
+class ShardClient implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    // Abstraction function:
+    //   represents the open connection socket to a shard server, with in and
+    //     out its buffered streams
+    // Representation invariant:
+    //   socket is connected
+    // Safety from rep exposure:
+    //   all fields are private final and never returned
+
+    /**
+     * Connect to a shard server.
+     *
+     * @param address address of the server
+     * @throws IOException if the server cannot be reached
+     */
+    public ShardClient(InetSocketAddress address) throws IOException {
+        this.socket = new Socket(address.getAddress(), address.getPort());
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        assert socket.isConnected();
+    }
+
+    public void sendAdd(String vertex) throws IOException {
+        out.writeByte(GraphShardServer.ADD);
+        out.writeUTF(vertex);
+        out.flush();
+    }
+
+    public void sendContains(String vertex) throws IOException {
+        out.writeByte(GraphShardServer.CONTAINS);
+        out.writeUTF(vertex);
+        out.flush();
+    }
+
+    public void sendSet(String source, String target, int weight) throws IOException {
+        out.writeByte(GraphShardServer.SET);
+        out.writeUTF(source);
+        out.writeUTF(target);
+        Weights.writeVarint(out, weight);
+        out.flush();
+    }
+
+    public void sendVertices() throws IOException {
+        out.writeByte(GraphShardServer.VERTICES);
+        out.flush();
+    }
+
+    /**
+     * Send a request whose arguments are a list of labels.
+     *
+     * @param op REMOVE, TARGETS or SOURCES
+     * @param labels arguments of the request
+     * @throws IOException if the connection fails
+     */
+    public void sendLabels(byte op, Collection<String> labels) throws IOException {
+        out.writeByte(op);
+        out.writeInt(labels.size());
+        for (String label : labels) {
+            out.writeUTF(label);
+        }
+        out.flush();
+    }
+
+    public boolean readBoolean() throws IOException {
+        return in.readBoolean();
+    }
+
+    public int readInt() throws IOException {
+        return in.readInt();
+    }
+
+    /**
+     * Read a list of labels.
+     *
+     * @param result set to add the labels to
+     * @throws IOException if the connection fails
+     */
+    public void readLabels(Set<String> result) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            result.add(in.readUTF());
+        }
+    }
+
+    /**
+     * Read a list of labels and weights.
+     *
+     * @param result map to put the labels and weights in
+     * @return result
+     * @throws IOException if the connection fails
+     */
+    public Map<String, Integer> readEdges(Map<String, Integer> result) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            String label = in.readUTF();
+            result.put(label, Weights.readVarint(in));
+        }
+        return result;
+    }
+
+    @Override public void close() throws IOException {
+        socket.close();
+    }
+}
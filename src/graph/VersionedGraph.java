@@ -0,0 +1,200 @@
+package graph;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A multi-version graph: a single writer applies updates in epochs, and each
+ * epoch is published as an immutable version that readers query without
+ * locks.
+ *
+ * <p>If the writer's graph is a {@link PersistentGraph}, publishing takes an
+ * O(1) snapshot, so a version never changes once published and readers see a
+ * consistent graph for as long as they hold it. An old version is reclaimed by
+ * the garbage collector as soon as no reader holds it; versions share all
+ * unchanged structure, so holding one costs only the trie nodes that later
+ * epochs replaced.
+ *
+ * <p>Any other graph, such as a {@link ShardedGraph}, is published by
+ * reference: every version is the writer's graph itself, so readers observe
+ * later updates as they happen, must not mutate it, and the graph must itself
+ * be safe for concurrent use.
+ */
+public class VersionedGraph {
+
+    private final Graph<String> writer;
+    private volatile Version current;
+    private final Set<Reference<Version>> published = new HashSet<>();
+    private final ReferenceQueue<Version> reclaimed = new ReferenceQueue<>();
+
+    // Abstraction function:
+    //   represents the sequence of versions published so far, the latest being
+    //     current; writer is the graph the next epoch's updates are applied to
+    // Representation invariant:
+    //   current.epoch is the number of epochs published so far
+    //   published holds a weak reference, registered with reclaimed, to every
+    //     published version whose reference has not been enqueued and removed
+    //   if writer is a PersistentGraph, current's graph equals writer between
+    //     updates
+    // Safety from rep exposure:
+    //   writer is only passed to updates while the writer lock is held; it is
+    //     only returned by versions when it is not a PersistentGraph, as
+    //     documented above
+    // Thread safety argument:
+    //   updates and published are guarded by the lock on this object, so there
+    //     is a single writer at a time; reclaimed is thread-safe
+    //   current is volatile and refers to an immutable Version, so readers
+    //     need no lock
+
+    /**
+     * Make a versioned graph whose first version (epoch 0) is graph.
+     *
+     * @param graph graph the writer updates; the versioned graph takes
+     *              ownership of it
+     */
+    public VersionedGraph(Graph<String> graph) {
+        this.writer = graph;
+        this.current = new Version(0, publish(graph));
+        published.add(new WeakReference<>(current, reclaimed));
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant.
+     */
+    private void checkRep() {
+        assert current.epoch >= 0;
+    }
+
+    /**
+     * @return the graph a version of writer is read from
+     */
+    private static Graph<String> publish(Graph<String> writer) {
+        return writer instanceof PersistentGraph ? ((PersistentGraph) writer).readOnlySnapshot() : writer;
+    }
+
+    /**
+     * Get the latest published version, without blocking.
+     *
+     * @return the latest version
+     */
+    public Version current() {
+        return current;
+    }
+
+    /**
+     * Apply one epoch of updates and publish the result as a new version.
+     * Updates are applied by one writer at a time; readers keep seeing the
+     * previous version until the update has finished.
+     *
+     * @param update mutations to apply to the writer's graph; it must not keep
+     *               a reference to the graph it is given
+     * @return the newly published version
+     */
+    public synchronized Version update(Consumer<? super Graph<String>> update) {
+        update.accept(writer);
+        Version version = new Version(current.epoch + 1, publish(writer));
+        current = version;
+        prune();
+        published.add(new WeakReference<>(version, reclaimed));
+        checkRep();
+        return version;
+    }
+
+    /**
+     * Count the versions that are still reachable, i.e. the current version
+     * and the old versions some reader still holds. The count is only
+     * approximate, because the garbage collector reclaims unreachable versions
+     * lazily.
+     *
+     * @return number of published versions not yet reclaimed
+     */
+    public synchronized int liveVersions() {
+        prune();
+        int live = 0;
+        for (Reference<Version> version : published) {
+            if (version.get() != null) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Forget the versions the garbage collector has reclaimed since the last
+     * call, in time proportional to their number, so that continuous updates
+     * track only the versions that are still reachable.
+     */
+    private void prune() {
+        for (Reference<? extends Version> version = reclaimed.poll(); version != null; version = reclaimed.poll()) {
+            published.remove(version);
+        }
+    }
+
+    /**
+     * Enqueue the references to the versions before an epoch, as the garbage
+     * collector does once it reclaims them, so that the next update prunes
+     * them; for testing without relying on the collector.
+     *
+     * @param epoch epoch of the oldest version to keep tracking
+     */
+    synchronized void reclaimBefore(long epoch) {
+        for (Reference<Version> version : published) {
+            Version referent = version.get();
+            if (referent == null || referent.epoch < epoch) {
+                version.enqueue();
+            }
+        }
+    }
+
+    /**
+     * @return number of versions tracked, reachable or reclaimed but not yet
+     *         pruned; for testing
+     */
+    synchronized int trackedVersions() {
+        return published.size();
+    }
+
+    /**
+     * Version is an immutable published version of a VersionedGraph.
+     */
+    public static final class Version {
+
+        private final long epoch;
+        private final Graph<String> graph;
+
+        // Abstraction function:
+        //   represents the graph as of the end of epoch epoch
+        // Representation invariant:
+        //   epoch >= 0
+        // Safety from rep exposure:
+        //   graph is a read-only snapshot (or the shared writer graph, as
+        //     documented above), and all fields are private final
+
+        private Version(long epoch, Graph<String> graph) {
+            this.epoch = epoch;
+            this.graph = graph;
+            assert epoch >= 0;
+        }
+
+        /**
+         * @return number of epochs published before this version
+         */
+        public long epoch() {
+            return epoch;
+        }
+
+        /**
+         * @return the graph of this version; for a PersistentGraph writer it
+         *         is a snapshot whose mutators throw
+         *         UnsupportedOperationException
+         */
+        public Graph<String> graph() {
+            return graph;
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A mutable map from target labels to positive weights, stored compactly for
+ * the skewed degrees and counts of affinity graphs.
+ *
+ * <p>Most words of natural text are followed by only one or two other words,
+ * and most of those adjacencies occur once. Targets are therefore stored by
+ * degree: up to {@link #SMALL_TARGETS} of them in a small array sorted by
+ * label and searched by binary search, and past that in an open-addressing
+ * hash table with linear probing. A map without targets shares an empty
+ * array, and a map promoted to a hash table stays one, as a HashMap never
+ * shrinks.
+ *
+ * <p>Weights are kept beside the targets in one byte each: a weight up to
+ * {@link #INLINE_MAX} is the byte itself, and a larger weight is marked by an
+ * overflow byte and kept in a side table by target. While every weight is 1,
+ * as it is for most words, there is no byte array at all. No weight is boxed
+ * except by the {@link #asMap()} view. Sums of weights saturate as by
+ * {@link Weights#add(int, int)}.
+ */
+public class WeightMap {
+
+    /** Largest number of targets kept in a sorted array. */
+    static final int SMALL_TARGETS = 8;
+
+    /** Largest weight kept in its byte; larger weights overflow. */
+    static final int INLINE_MAX = 254;
+
+    private static final byte OVERFLOW = (byte) 0xff;
+    private static final String[] NO_TARGETS = new String[0];
+
+    private String[] targets;
+    private byte[] weights;
+    private Map<String, Integer> overflow;
+    private int size;
+
+    // Abstraction function:
+    //   represents the map from each non-null targets[i] to its weight, which
+    //     is 1 if weights is null, overflow.get(targets[i]) if weights[i] is
+    //     OVERFLOW, and weights[i] as an unsigned byte otherwise
+    // Representation invariant:
+    //   weights is null or as long as targets
+    //   if targets.length <= SMALL_TARGETS (sorted mode): targets[0..size) are
+    //     non-null and strictly increasing, and the rest are null
+    //   otherwise (hashed mode): targets.length is a power of two, size of the
+    //     targets are non-null and distinct, and size <= 3/4 targets.length;
+    //     every target is found by probing from its home slot without
+    //     crossing a null slot
+    //   the byte of every non-null target is in [1, INLINE_MAX] or OVERFLOW
+    //   overflow is null or nonempty; its keys are exactly the targets whose
+    //     byte is OVERFLOW, and its values are greater than INLINE_MAX
+    // Safety from rep exposure:
+    //   the arrays and overflow are never returned; asMap() returns an
+    //     unmodifiable view whose entries are immutable
+
+    /**
+     * Make an empty map.
+     */
+    public WeightMap() {
+        this(0);
+    }
+
+    /**
+     * Make an empty map presized to hold a number of targets without regrowing
+     * its array of targets.
+     *
+     * @param expectedTargets expected number of targets, nonnegative
+     */
+    public WeightMap(int expectedTargets) {
+        if (expectedTargets == 0) {
+            this.targets = NO_TARGETS;
+        }
+        else if (expectedTargets <= SMALL_TARGETS) {
+            this.targets = new String[expectedTargets];
+        }
+        else {
+            this.targets = new String[Integer.highestOneBit(GraphBuilder.hashCapacity(expectedTargets) * 2 - 1)];
+        }
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant.
+     * Targets are only checked one by one in sorted mode, keeping this O(1)
+     * for maps of any size.
+     */
+    private void checkRep() {
+        assert weights == null || weights.length == targets.length;
+        assert overflow == null || !overflow.isEmpty();
+        if (hashed()) {
+            assert Integer.bitCount(targets.length) == 1 && size <= targets.length / 4 * 3;
+            return;
+        }
+        int overflowed = 0;
+        for (int i = 0; i < targets.length; i++) {
+            assert (targets[i] != null) == (i < size);
+            assert i == 0 || targets[i] == null || targets[i - 1].compareTo(targets[i]) < 0;
+            if (targets[i] != null && weights != null) {
+                assert weights[i] != 0;
+                overflowed += weights[i] == OVERFLOW ? 1 : 0;
+            }
+        }
+        assert overflowed == (overflow == null ? 0 : overflow.size());
+    }
+
+    /**
+     * @return true iff the targets are in a hash table
+     */
+    private boolean hashed() {
+        return targets.length > SMALL_TARGETS;
+    }
+
+    /**
+     * @return the slot at which probing for target starts in the hash table
+     */
+    private int home(String target) {
+        int h = target.hashCode() * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & (targets.length - 1);
+    }
+
+    /**
+     * Find a target.
+     *
+     * @param target label of a target
+     * @return the index of target if it is a target, otherwise -(i + 1) where
+     *         i is the index at which it would be inserted
+     */
+    private int find(String target) {
+        if (!hashed()) {
+            return Arrays.binarySearch(targets, 0, size, target);
+        }
+        int mask = targets.length - 1;
+        for (int i = home(target); ; i = (i + 1) & mask) {
+            if (targets[i] == null) {
+                return -(i + 1);
+            }
+            if (targets[i].equals(target)) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * @return the weight of the target at an index
+     */
+    private int weightAt(int index) {
+        if (weights == null) {
+            return 1;
+        }
+        byte weight = weights[index];
+        return weight == OVERFLOW ? overflow.get(targets[index]) : weight & 0xff;
+    }
+
+    /**
+     * Set the weight of the target at an index, creating the byte array or
+     * the overflow table if the weight needs them.
+     *
+     * @param weight positive weight
+     */
+    private void setWeightAt(int index, int weight) {
+        if (weights == null) {
+            if (weight == 1) {
+                return;
+            }
+            weights = new byte[targets.length];
+            for (int i = 0; i < targets.length; i++) {
+                if (targets[i] != null) {
+                    weights[i] = 1;
+                }
+            }
+        }
+        clearOverflow(index);
+        if (weight > INLINE_MAX) {
+            if (overflow == null) {
+                overflow = new HashMap<>();
+            }
+            overflow.put(targets[index], weight);
+            weights[index] = OVERFLOW;
+        }
+        else {
+            weights[index] = (byte) weight;
+        }
+    }
+
+    /**
+     * Remove the target at an index from the overflow table, if it is there.
+     */
+    private void clearOverflow(int index) {
+        if (weights != null && weights[index] == OVERFLOW) {
+            overflow.remove(targets[index]);
+            if (overflow.isEmpty()) {
+                overflow = null;
+            }
+        }
+    }
+
+    /**
+     * Insert a new target where find reported it would go, growing or
+     * promoting the arrays if they are full.
+     */
+    private void insert(int index, String target, int weight) {
+        if (!hashed() && size == targets.length) {
+            if (size == SMALL_TARGETS) {
+                rehash(SMALL_TARGETS * 2);
+            }
+            else {
+                targets = Arrays.copyOf(targets, Math.min(SMALL_TARGETS, Math.max(1, size * 2)));
+                if (weights != null) {
+                    weights = Arrays.copyOf(weights, targets.length);
+                }
+            }
+            index = -find(target) - 1;
+        }
+        if (!hashed()) {
+            System.arraycopy(targets, index, targets, index + 1, size - index);
+            if (weights != null) {
+                System.arraycopy(weights, index, weights, index + 1, size - index);
+            }
+        }
+        targets[index] = target;
+        if (weights != null) {
+            weights[index] = 1;
+        }
+        setWeightAt(index, weight);
+        size++;
+        if (hashed() && size > targets.length / 4 * 3) {
+            rehash(targets.length * 2);
+        }
+    }
+
+    /**
+     * Remove the target at an index.
+     */
+    private void removeAt(int index) {
+        clearOverflow(index);
+        size--;
+        if (!hashed()) {
+            System.arraycopy(targets, index + 1, targets, index, size - index);
+            targets[size] = null;
+            if (weights != null) {
+                System.arraycopy(weights, index + 1, weights, index, size - index);
+                weights[size] = 0;
+            }
+            return;
+        }
+        // shift later entries of the probe run back over the hole
+        int mask = targets.length - 1;
+        int hole = index;
+        for (int i = (hole + 1) & mask; targets[i] != null; i = (i + 1) & mask) {
+            int home = home(targets[i]);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                targets[hole] = targets[i];
+                if (weights != null) {
+                    weights[hole] = weights[i];
+                }
+                hole = i;
+            }
+        }
+        targets[hole] = null;
+        if (weights != null) {
+            weights[hole] = 0;
+        }
+    }
+
+    /**
+     * Move the targets into a new hash table.
+     *
+     * @param capacity power of two greater than SMALL_TARGETS
+     */
+    private void rehash(int capacity) {
+        String[] oldTargets = targets;
+        byte[] oldWeights = weights;
+        targets = new String[capacity];
+        weights = oldWeights == null ? null : new byte[capacity];
+        for (int i = 0; i < oldTargets.length; i++) {
+            if (oldTargets[i] != null) {
+                int slot = -find(oldTargets[i]) - 1;
+                targets[slot] = oldTargets[i];
+                if (weights != null) {
+                    weights[slot] = oldWeights[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of targets
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param target label of a target
+     * @return the weight of target, or 0 if it is not a target
+     */
+    public int get(String target) {
+        int index = find(target);
+        return index >= 0 ? weightAt(index) : 0;
+    }
+
+    /**
+     * Add, change, or remove a target.
+     * If weight is nonzero, add the target or update its weight.
+     * If weight is zero, remove the target if it exists.
+     *
+     * @param target label of the target
+     * @param weight nonnegative weight
+     * @return the previous weight of target, or zero if it was not a target
+     */
+    public int set(String target, int weight) {
+        assert weight >= 0;
+        int index = find(target);
+        int original = index >= 0 ? weightAt(index) : 0;
+        if (index >= 0 && weight > 0) {
+            setWeightAt(index, weight);
+        }
+        else if (index >= 0) {
+            removeAt(index);
+        }
+        else if (weight > 0) {
+            insert(-index - 1, target, weight);
+        }
+        checkRep();
+        return original;
+    }
+
+    /**
+     * Add to the weight of a target, adding the target if it is not one,
+     * saturating as by {@link Weights#add(int, int)}.
+     *
+     * @param target label of the target
+     * @param weight positive weight to add
+     * @return the previous weight of target, or zero if it was not a target
+     */
+    public int add(String target, int weight) {
+        assert weight > 0;
+        int index = find(target);
+        if (index < 0) {
+            insert(-index - 1, target, weight);
+            checkRep();
+            return 0;
+        }
+        int original = weightAt(index);
+        setWeightAt(index, Weights.add(original, weight));
+        checkRep();
+        return original;
+    }
+
+    /**
+     * Remove targets.
+     *
+     * @param removed labels of the targets to remove
+     */
+    public void removeAll(Set<String> removed) {
+        for (String target : removed) {
+            int index = find(target);
+            if (index >= 0) {
+                removeAt(index);
+            }
+        }
+        checkRep();
+    }
+
+    /**
+     * Call an action with every target and its weight, without boxing.
+     *
+     * @param action action to call; it must not modify this map
+     */
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] != null) {
+                action.accept(targets[i], weightAt(i));
+            }
+        }
+    }
+
+    /**
+     * @return number of targets this map holds before it regrows its array of
+     *         targets
+     */
+    public int capacity() {
+        return hashed() ? targets.length / 4 * 3 : targets.length;
+    }
+
+    /**
+     * @return number of bytes of weights stored in this map's byte array,
+     *         0 while every weight is 1; for testing
+     */
+    int weightBytes() {
+        return weights == null ? 0 : weights.length;
+    }
+
+    /**
+     * @return number of weights in the overflow table; for testing
+     */
+    int overflowed() {
+        return overflow == null ? 0 : overflow.size();
+    }
+
+    /**
+     * Get a read-only view of this map, for passing it where a Map is needed
+     * without a copy. Weights are boxed as by {@link Weights#box(int)}.
+     *
+     * @return an unmodifiable view of this map, which changes as it does
+     */
+    public Map<String, Integer> asMap() {
+        return new AbstractMap<String, Integer>() {
+            @Override public int size() {
+                return size;
+            }
+
+            @Override public boolean containsKey(Object key) {
+                return key instanceof String && find((String) key) >= 0;
+            }
+
+            @Override public Integer get(Object key) {
+                int index = key instanceof String ? find((String) key) : -1;
+                return index >= 0 ? Weights.box(weightAt(index)) : null;
+            }
+
+            @Override public Set<Map.Entry<String, Integer>> entrySet() {
+                return new AbstractSet<Map.Entry<String, Integer>>() {
+                    @Override public int size() {
+                        return size;
+                    }
+
+                    @Override public Iterator<Map.Entry<String, Integer>> iterator() {
+                        return new Iterator<Map.Entry<String, Integer>>() {
+                            private int next = skip(0);
+
+                            private int skip(int index) {
+                                while (index < targets.length && targets[index] == null) {
+                                    index++;
+                                }
+                                return index;
+                            }
+
+                            @Override public boolean hasNext() {
+                                return next < targets.length;
+                            }
+
+                            @Override public Map.Entry<String, Integer> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                Map.Entry<String, Integer> entry =
+                                        new AbstractMap.SimpleImmutableEntry<>(targets[next], Weights.box(weightAt(next)));
+                                next = skip(next + 1);
+                                return entry;
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+}
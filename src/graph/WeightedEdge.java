@@ -0,0 +1,91 @@
+package graph;
+
+import java.util.Comparator;
+
+/**
+ * WeightedEdge represents an immutable weighted directed edge between two
+ * labels, as streamed between graphs by {@link EdgeList} and
+ * {@link GraphMerger}.
+ */
+public final class WeightedEdge {
+
+    /**
+     * Orders edges by source label, then by target label, ignoring weights:
+     * the order of the edges in a sorted edge run.
+     */
+    public static final Comparator<WeightedEdge> BY_ENDPOINTS =
+            Comparator.comparing(WeightedEdge::getSource).thenComparing(WeightedEdge::getTarget);
+
+    private final String source, target;
+    private final int weight;
+
+    // Abstraction function:
+    //   represents the edge from source to target with weight
+    // Representation invariant:
+    //   source and target are not null, weight is positive
+    // Safety from rep exposure:
+    //   String and int are immutable, and are declared as private final
+
+    /**
+     * Make an edge.
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param weight positive weight of the edge
+     */
+    public WeightedEdge(String source, String target, int weight) {
+        this.source = source;
+        this.target = target;
+        this.weight = weight;
+        checkRep();
+    }
+
+    /**
+     * Check the rep invariant.
+     */
+    private void checkRep() {
+        assert source != null;
+        assert target != null;
+        assert weight > 0;
+    }
+
+    /**
+     * @return label of the source vertex
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return label of the target vertex
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * @return weight of the edge, a positive int
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override public boolean equals(Object that) {
+        if (!(that instanceof WeightedEdge)) {
+            return false;
+        }
+        WeightedEdge edge = (WeightedEdge) that;
+        return source.equals(edge.source) && target.equals(edge.target) && weight == edge.weight;
+    }
+
+    @Override public int hashCode() {
+        return (source.hashCode() * 31 + target.hashCode()) * 31 + weight;
+    }
+
+    /**
+     * @return a string in the form "(source -> target, weight)"
+     */
+    @Override public String toString() {
+        return "(" + source + " -> " + target + ", " + weight + ")";
+    }
+}
@@ -0,0 +1,129 @@
+package graph;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Summing, boxing and encoding edge weights without overflow.
+ *
+ * <p>Most weights of an affinity graph are small counts: in natural text the
+ * vast majority of word pairs occur once. In heap, a {@link WeightMap} keeps
+ * such a weight in one byte, or in no byte at all while every weight of the
+ * map is 1, and is used for the targets of a {@link ConcreteVerticesGraph}
+ * and for counting bigrams. A {@link PersistentGraph} keeps a reference to a
+ * box in each leaf of its tries instead, since a leaf object takes the same 24
+ * bytes whether it holds a byte, an int or a reference; {@link #box(int)}
+ * shares one box per weight below {@link #SHARED}, and the two indexes of an
+ * edge share its box. On the wire, {@link #writeVarint(DataOutput, int)}
+ * encodes weights below 128 in one byte.
+ *
+ * <p>Weights are ints, as in {@link Graph}, so sums that would exceed
+ * {@link #MAX} saturate there instead of wrapping around to negative weights.
+ */
+public final class Weights {
+
+    /** Largest weight; sums of weights saturate at this value. */
+    public static final int MAX = Integer.MAX_VALUE;
+
+    /** Weights below this value are boxed once and shared. */
+    public static final int SHARED = 1024;
+
+    private static final Integer[] BOXES = new Integer[SHARED];
+
+    static {
+        for (int i = 0; i < SHARED; i++) {
+            BOXES[i] = Integer.valueOf(i);
+        }
+    }
+
+    private Weights() {
+        // not instantiable
+    }
+
+    /**
+     * Add two weights, saturating at {@link #MAX}.
+     *
+     * @param a nonnegative weight
+     * @param b nonnegative weight
+     * @return min(a + b, MAX)
+     */
+    public static int add(int a, int b) {
+        assert a >= 0 && b >= 0;
+        int sum = a + b;
+        return sum < 0 ? MAX : sum;
+    }
+
+    /**
+     * Add two boxed weights, saturating at {@link #MAX}, for use with
+     * {@link java.util.Map#merge}.
+     *
+     * @param a nonnegative weight
+     * @param b nonnegative weight
+     * @return min(a + b, MAX), boxed as by {@link #box(int)}
+     */
+    public static Integer sum(Integer a, Integer b) {
+        return box(add(a, b));
+    }
+
+    /**
+     * Clamp a sum of weights to a weight.
+     *
+     * @param weight nonnegative sum of weights
+     * @return min(weight, MAX)
+     */
+    public static int saturate(long weight) {
+        assert weight >= 0;
+        return (int) Math.min(weight, MAX);
+    }
+
+    /**
+     * Box a weight, sharing the box if the weight is small.
+     *
+     * @param weight nonnegative weight
+     * @return a box holding weight; the same box for every weight below
+     *         {@link #SHARED}
+     */
+    public static Integer box(int weight) {
+        return 0 <= weight && weight < SHARED ? BOXES[weight] : Integer.valueOf(weight);
+    }
+
+    /**
+     * Write a weight as an unsigned varint: seven bits per byte, least
+     * significant first, with the high bit set on every byte but the last.
+     *
+     * @param out output to write to
+     * @param weight nonnegative weight
+     * @throws IOException if out cannot be written
+     */
+    public static void writeVarint(DataOutput out, int weight) throws IOException {
+        assert weight >= 0;
+        while ((weight & ~0x7f) != 0) {
+            out.writeByte((weight & 0x7f) | 0x80);
+            weight >>>= 7;
+        }
+        out.writeByte(weight);
+    }
+
+    /**
+     * Read a weight written by {@link #writeVarint(DataOutput, int)}.
+     *
+     * @param in input to read from
+     * @return the weight
+     * @throws IOException if in cannot be read, or holds no valid varint
+     */
+    public static int readVarint(DataInput in) throws IOException {
+        int weight = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            weight |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                if (weight < 0) {
+                    throw new IOException("varint out of range");
+                }
+                return weight;
+            }
+        }
+        throw new IOException("varint too long");
+    }
+}
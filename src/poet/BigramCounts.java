@@ -0,0 +1,260 @@
+package poet;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import graph.EdgeList;
+import graph.Graph;
+import graph.GraphBuilder;
+import graph.WeightMap;
+import graph.WeightedEdge;
+import graph.Weights;
+
+/**
+ * BigramCounts is a mutable table of word adjacency counts, used to count a
+ * corpus before its adjacencies are added to an affinity graph with one
+ * {@link Graph#set} per distinct edge.
+ * Words are lower-cased as described in {@link GraphPoet}.
+ * The words following each word are counted in a {@link WeightMap}, which
+ * keeps most counts in a byte and needs no byte at all while they are all 1.
+ */
+class BigramCounts {
+
+	private final Map<String, WeightMap> counts;
+	private volatile long edges;
+
+	// Abstraction function:
+	// represents the words in counts.keySet(), where counts.get(w1).get(w2) is
+	// the number of times w1 was followed by w2
+	// Representation invariant:
+	// every word in an inner map is also a key of counts
+	// all counts are positive
+	// edges is the number of entries in the inner maps
+	// Safety from rep exposure:
+	// counts is never returned, and is declared as private final; wordSet()
+	// returns an unmodifiable view of its keys, which are immutable
+	// Thread safety argument:
+	// not threadsafe, except that edges may be read by other threads while one
+	// thread is counting; it is only written by that thread
+
+	/**
+	 * Make an empty table.
+	 */
+	public BigramCounts() {
+		this.counts = new HashMap<>();
+	}
+
+	/**
+	 * Make an empty table presized for the graph it will count, so that
+	 * counting up to the expected number of words does not rehash it. The
+	 * words following each word are not presized: most words are followed by
+	 * only a few others, so sizing every word for the average would take far
+	 * more memory than the counts.
+	 *
+	 * @param hints expected number of words (vertices)
+	 */
+	public BigramCounts(GraphBuilder hints) {
+		this.counts = new HashMap<>(GraphBuilder.hashCapacity(hints.expectedVertices()));
+	}
+
+	/**
+	 * @return a new inner map, which grows with the word's adjacencies
+	 */
+	private WeightMap newTargets() {
+		return new WeightMap();
+	}
+
+	/**
+	 * Count the words and adjacencies read by a scanner. The first word read is
+	 * not adjacent to any word counted before.
+	 *
+	 * @param scanner scanner over a corpus
+	 */
+	public void add(Scanner scanner) {
+		add(scanner, null, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Count the words and adjacencies read by a scanner, stopping early once
+	 * this table holds a number of distinct adjacencies, so that counting can
+	 * resume in another table.
+	 *
+	 * @param scanner  scanner over a corpus
+	 * @param previous word read before the scanner's next word, which is
+	 *                 adjacent to it, or null if there is none
+	 * @param maxEdges number of distinct adjacencies at which to stop
+	 * @return the last word read, or previous if no word was read
+	 */
+	public String add(Scanner scanner, String previous, long maxEdges) {
+		String current = previous;
+		WeightMap targets = current == null ? null : counts.computeIfAbsent(current, w -> newTargets());
+		while (edges < maxEdges && scanner.hasNext()) {
+			String next = scanner.next().toLowerCase();
+			if (targets != null && targets.add(next, 1) == 0) {
+				edges++;
+			}
+			targets = counts.computeIfAbsent(next, w -> newTargets());
+			current = next;
+		}
+		return current;
+	}
+
+	/**
+	 * Count one word, adjacent to the word before it.
+	 *
+	 * @param previous word before word, as returned by the previous call, or
+	 *                 null if there is none
+	 * @param word     word to count, in any case
+	 * @return word in lower case, to pass as previous with the next word
+	 */
+	public String add(String previous, String word) {
+		String current = word.toLowerCase();
+		counts.computeIfAbsent(current, w -> newTargets());
+		if (previous != null
+				&& counts.computeIfAbsent(previous, w -> newTargets()).add(current, 1) == 0) {
+			edges++;
+		}
+		return current;
+	}
+
+	/**
+	 * Add all words and counts of another table to this one.
+	 *
+	 * @param other table to add; it is not modified
+	 */
+	public void merge(BigramCounts other) {
+		for (Map.Entry<String, WeightMap> word : other.counts.entrySet()) {
+			WeightMap targets = counts.computeIfAbsent(word.getKey(), w -> new WeightMap(word.getValue().size()));
+			word.getValue().forEach((target, count) -> {
+				if (targets.add(target, count) == 0) {
+					edges++;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Subtract the counts of this table from the weights of a graph's edges,
+	 * removing edges whose weight drops to zero, and then remove the words of
+	 * this table that are left with no edges, unless they are to be kept.
+	 * This undoes {@link #addTo}, except for weights that saturated.
+	 *
+	 * @param graph graph to subtract from
+	 * @param keep  true for the words to keep as vertices even without edges
+	 */
+	public void subtractFrom(Graph<String> graph, Predicate<String> keep) {
+		for (Map.Entry<String, WeightMap> word : counts.entrySet()) {
+			String source = word.getKey();
+			word.getValue().forEach((target, count) -> {
+				int original = graph.set(source, target, 0);
+				if (original > count) {
+					graph.set(source, target, original - count);
+				}
+			});
+		}
+		for (String word : counts.keySet()) {
+			if (!keep.test(word) && graph.targets(word).isEmpty() && graph.sources(word).isEmpty()) {
+				graph.remove(word);
+			}
+		}
+	}
+
+	/**
+	 * @param word word in lower case
+	 * @return true iff word was counted, alone or in an adjacency
+	 */
+	public boolean contains(String word) {
+		return counts.containsKey(word);
+	}
+
+	/**
+	 * @return the words counted, alone or in an adjacency, in lower case; an
+	 *         unmodifiable view that follows further counting
+	 */
+	public Set<String> wordSet() {
+		return Collections.unmodifiableSet(counts.keySet());
+	}
+
+	/**
+	 * Call an action on each distinct adjacency counted.
+	 *
+	 * @param action action to call with the first and the second word of each
+	 *               adjacency, in lower case
+	 */
+	public void forEachAdjacency(BiConsumer<String, String> action) {
+		counts.forEach((source, targets) -> targets.forEach((target, count) -> action.accept(source, target)));
+	}
+
+	/**
+	 * @return number of distinct adjacencies counted so far; may be read while
+	 *         another thread is counting
+	 */
+	public long edges() {
+		return edges;
+	}
+
+	/**
+	 * @return number of distinct words counted so far
+	 */
+	public int words() {
+		return counts.size();
+	}
+
+	/**
+	 * @return number of adjacencies the inner maps hold before they regrow;
+	 *         for testing
+	 */
+	long capacity() {
+		long capacity = 0;
+		for (WeightMap targets : counts.values()) {
+			capacity += targets.capacity();
+		}
+		return capacity;
+	}
+
+	/**
+	 * Write the words and counts of this table as a sorted edge list, with a
+	 * vertex line for each word that is followed by no other word.
+	 *
+	 * @param out writer to write the edge list to; it is not closed
+	 * @throws IOException if out cannot be written
+	 */
+	public void writeSorted(Writer out) throws IOException {
+		for (Map.Entry<String, WeightMap> word : new TreeMap<>(counts).entrySet()) {
+			if (word.getValue().size() == 0) {
+				EdgeList.writeVertex(word.getKey(), out);
+			}
+			for (Map.Entry<String, Integer> edge : new TreeMap<>(word.getValue().asMap()).entrySet()) {
+				EdgeList.writeEdge(new WeightedEdge(word.getKey(), edge.getKey(), edge.getValue()), out);
+			}
+		}
+	}
+
+	/**
+	 * Add the words of this table to a graph as vertices, and its counts to the
+	 * weights of the graph's edges, saturating as by {@link Weights#add}.
+	 *
+	 * @param graph graph to add to
+	 */
+	public void addTo(Graph<String> graph) {
+		for (Map.Entry<String, WeightMap> word : counts.entrySet()) {
+			String source = word.getKey();
+			graph.add(source);
+			word.getValue().forEach((target, count) -> {
+				int original = graph.set(source, target, count);
+				if (original != 0) {
+					graph.set(source, target, Weights.add(original, count));
+				}
+			});
+		}
+	}
+
+}
@@ -0,0 +1,250 @@
+package poet;
+
+import java.util.Map;
+
+import graph.Graph;
+
+/**
+ * BridgeFilter is an immutable blocked Bloom filter over the two-edge-long
+ * paths of an affinity graph, used to answer "no bridge word" without
+ * searching the graph.
+ *
+ * <p>
+ * A filter contains the pair (w1, w2) for every path w1 -> b -> w2 in the
+ * graph it was built from. {@link #mightBridge(String, String)} never returns
+ * false for such a pair, and returns true for other pairs with a probability
+ * close to the false positive rate it was built with. Each pair sets all of its
+ * bits within a single 512-bit block, so a lookup touches one cache line; this
+ * costs a slightly higher false positive rate than a classic Bloom filter of
+ * the same size.
+ *
+ * <p>
+ * When adjacencies are added to the graph, and none removed, a copy of the
+ * filter with the paths through the new adjacencies added to it covers the new
+ * graph, without walking every path again; see
+ * {@link #withAdjacencies(Graph, BigramCounts)}.
+ */
+public class BridgeFilter {
+
+	private static final int BLOCK_BITS = 512;
+	private static final int WORDS_PER_BLOCK = BLOCK_BITS / Long.SIZE;
+	private static final int MAX_HASHES = 16;
+
+	private final long[] bits;
+	private final int blocks;
+	private final int hashes;
+	private final long pairs;
+	private final long capacity;
+	private final double falsePositiveRate;
+
+	// Abstraction function:
+	// represents the set of word pairs whose hashes set bits in bits, grouped
+	// into blocks 512-bit blocks, each pair setting hashes bits in one block;
+	// pairs is the number of pairs added, and the filter was sized for
+	// capacity pairs at a false positive rate of falsePositiveRate
+	// Representation invariant:
+	// blocks > 0, bits.length == blocks * WORDS_PER_BLOCK
+	// 0 < hashes <= MAX_HASHES
+	// pairs >= 0, capacity > 0
+	// 0 < falsePositiveRate < 1
+	// Safety from rep exposure:
+	// all fields are private final, and bits is never returned; a copy gets
+	// its own bits
+
+	private BridgeFilter(int blocks, int hashes, long pairs, double falsePositiveRate) {
+		this.bits = new long[blocks * WORDS_PER_BLOCK];
+		this.blocks = blocks;
+		this.hashes = hashes;
+		this.pairs = pairs;
+		this.capacity = Math.max(1, pairs);
+		this.falsePositiveRate = falsePositiveRate;
+		checkRep();
+	}
+
+	/**
+	 * Make a copy of a filter, to add pairs to.
+	 *
+	 * @param pairs number of pairs the copy will hold
+	 */
+	private BridgeFilter(BridgeFilter filter, long pairs) {
+		this.bits = filter.bits.clone();
+		this.blocks = filter.blocks;
+		this.hashes = filter.hashes;
+		this.pairs = pairs;
+		this.capacity = filter.capacity;
+		this.falsePositiveRate = filter.falsePositiveRate;
+		checkRep();
+	}
+
+	/**
+	 * Check the rep invariant.
+	 */
+	private void checkRep() {
+		assert blocks > 0 && bits.length == blocks * WORDS_PER_BLOCK;
+		assert hashes > 0 && hashes <= MAX_HASHES;
+		assert pairs >= 0 && capacity > 0;
+		assert falsePositiveRate > 0 && falsePositiveRate < 1;
+	}
+
+	/**
+	 * Build a filter over all two-edge-long paths of a graph. This walks every
+	 * path twice, once to count them and once to add them, so it takes time
+	 * proportional to the number of such paths.
+	 *
+	 * @param graph             affinity graph whose words are lower case; it
+	 *                          must not be modified while the filter is built
+	 * @param falsePositiveRate target probability that a pair with no bridge
+	 *                          word is reported as possibly bridged, in (0, 1)
+	 * @return a filter over the two-edge-long paths of graph
+	 */
+	public static BridgeFilter build(Graph<String> graph, double falsePositiveRate) {
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("false positive rate must be in (0, 1)");
+		}
+		long pairs = 0;
+		for (String middle : graph.vertices()) {
+			pairs += (long) graph.sources(middle).size() * graph.targets(middle).size();
+		}
+		// optimal Bloom filter size and hash count for that many pairs
+		double ln2 = Math.log(2);
+		double optimalBits = Math.max(1, pairs) * -Math.log(falsePositiveRate) / (ln2 * ln2);
+		int blocks = (int) Math.min(Integer.MAX_VALUE / WORDS_PER_BLOCK,
+				Math.max(1, (long) Math.ceil(optimalBits / BLOCK_BITS)));
+		int hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(-Math.log(falsePositiveRate) / ln2)));
+		BridgeFilter filter = new BridgeFilter(blocks, hashes, pairs, falsePositiveRate);
+		for (String middle : graph.vertices()) {
+			Map<String, Integer> targets = graph.targets(middle);
+			for (String source : graph.sources(middle).keySet()) {
+				for (String target : targets.keySet()) {
+					filter.put(source, target);
+				}
+			}
+		}
+		return filter;
+	}
+
+	/**
+	 * Make a filter over the two-edge-long paths of a graph that adjacencies
+	 * were added to since this filter was built from it; this filter is not
+	 * modified. A new adjacency a -> b can only create the paths x -> a -> b
+	 * and a -> b -> y, so these are added to a copy of this filter, in time
+	 * proportional to their number plus the size of the filter rather than to
+	 * all paths of the graph. Once the copy would hold more than twice the
+	 * pairs this filter was sized for, its false positive rate would be well
+	 * past its target, so the filter is rebuilt from the graph instead.
+	 *
+	 * @param graph graph this filter covers, after the adjacencies were added
+	 *              to it and nothing removed; it must not be modified while
+	 *              the filter is made
+	 * @param added adjacencies added to graph
+	 * @return a filter over the two-edge-long paths of graph, with the false
+	 *         positive rate this filter was built with
+	 */
+	BridgeFilter withAdjacencies(Graph<String> graph, BigramCounts added) {
+		long[] paths = { 0 };
+		added.forEachAdjacency((source, target) -> paths[0] += graph.sources(source).size()
+				+ graph.targets(target).size());
+		if (pairs + paths[0] > 2 * capacity) {
+			return build(graph, falsePositiveRate);
+		}
+		BridgeFilter copy = new BridgeFilter(this, pairs + paths[0]);
+		added.forEachAdjacency((source, target) -> {
+			for (String before : graph.sources(source).keySet()) {
+				copy.put(before, target);
+			}
+			for (String after : graph.targets(target).keySet()) {
+				copy.put(source, after);
+			}
+		});
+		return copy;
+	}
+
+	/**
+	 * @return a well-mixed 64-bit hash of the pair (source, target)
+	 */
+	private static long hash(String source, String target) {
+		long h = ((long) source.hashCode() << 32) ^ (target.hashCode() & 0xffffffffL);
+		// finalizer of MurmurHash3
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * @return index in bits of the first word of the block of hash h
+	 */
+	private int block(long h) {
+		return (int) (((h >>> 32) * blocks) >>> 32) * WORDS_PER_BLOCK;
+	}
+
+	private void put(String source, String target) {
+		long h = hash(source, target);
+		int block = block(h);
+		int h1 = (int) h;
+		int h2 = (int) (h >>> 23) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+			bits[block + (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * Test whether there might be a bridge word between two words.
+	 *
+	 * @param source first word, lower case
+	 * @param target second word, lower case
+	 * @return false if the graph this filter was built from has no
+	 *         two-edge-long path from source to target; true if it might
+	 */
+	public boolean mightBridge(String source, String target) {
+		long h = hash(source, target);
+		int block = block(h);
+		int h1 = (int) h;
+		int h2 = (int) (h >>> 23) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+			if ((bits[block + (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of two-edge-long paths added to this filter; a path added
+	 *         again by {@link #withAdjacencies(Graph, BigramCounts)} is
+	 *         counted again
+	 */
+	public long pairs() {
+		return pairs;
+	}
+
+	/**
+	 * @return number of bytes used by the bits of this filter
+	 */
+	public long memoryBytes() {
+		return (long) bits.length * Long.BYTES;
+	}
+
+	/**
+	 * @return estimated probability that a pair with no bridge word is reported
+	 *         as possibly bridged, assuming pairs are spread evenly over blocks
+	 */
+	public double expectedFalsePositiveRate() {
+		double perBlock = (double) pairs / blocks;
+		return Math.pow(1 - Math.exp(-hashes * perBlock / BLOCK_BITS), hashes);
+	}
+
+	/**
+	 * @return a human-readable summary of the size of this filter
+	 */
+	@Override
+	public String toString() {
+		return String.format("%d pairs, %d bytes, %d hashes, expected false positive rate %.4f", pairs,
+				memoryBytes(), hashes, expectedFalsePositiveRate());
+	}
+
+}
@@ -0,0 +1,244 @@
+package poet;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import graph.EdgeList;
+import graph.GraphMerger;
+
+/**
+ * ExternalGraphBuilder builds the affinity graph of corpora too large for the
+ * graph to fit in heap, as a sorted edge list on disk.
+ *
+ * <p>
+ * Bigrams are counted in an in-memory table bounded by a memory budget. Each
+ * time the table fills up, it is spilled to a temporary file as a sorted run,
+ * and counting continues in an empty table, so that adjacencies spanning a
+ * spill are still counted. {@link #build(Path)} merges the runs with
+ * {@link GraphMerger}, summing the counts of adjacencies spilled more than
+ * once, and deletes them. At most {@link #MERGE_FAN_IN} runs are open at
+ * once: while there are more, groups of that many are merged into longer
+ * runs, so R runs take about log(R) / log(fan-in) streaming passes. The result can be loaded with
+ * {@link GraphPoet#fromEdgeLists(List)}, or merged with other edge lists.
+ *
+ * <p>
+ * Heap use stays within the budget, as estimated from
+ * {@link #ESTIMATED_BYTES_PER_ADJACENCY} and
+ * {@link #ESTIMATED_BYTES_PER_WORD}, plus O(fan-in) for merging.
+ */
+public class ExternalGraphBuilder {
+
+	/**
+	 * Estimated heap cost in bytes of one distinct word in the counting table
+	 * (its string, map entry and table of targets).
+	 */
+	public static final long ESTIMATED_BYTES_PER_WORD = 160;
+
+	/**
+	 * Estimated heap cost in bytes of one distinct adjacency in the counting
+	 * table (a label reference and a weight byte in its word's table of
+	 * targets, with slack for empty hash slots).
+	 */
+	public static final long ESTIMATED_BYTES_PER_ADJACENCY = 10;
+
+	/** Maximum number of runs merged, and files open, at once. */
+	public static final int MERGE_FAN_IN = 64;
+
+	private final Path tempDirectory;
+	private final long maxEdges;
+	private final int fanIn;
+	private final List<Path> runs = new ArrayList<>();
+	private BigramCounts counts = new BigramCounts();
+
+	// Abstraction function:
+	// represents the affinity graph of the corpora added so far, which is the
+	// sum of the graphs of the sorted edge lists in runs and of counts
+	// Representation invariant:
+	// maxEdges >= 1, and counts.edges() <= maxEdges
+	// fanIn >= 2
+	// each run is a sorted edge list in tempDirectory
+	// Safety from rep exposure:
+	// all fields are private; runs is only returned as an unmodifiable copy
+	// Thread safety argument:
+	// not threadsafe; a builder must be confined to one thread
+
+	/**
+	 * Make a builder that has counted no corpora.
+	 *
+	 * @param tempDirectory     existing directory for the temporary runs
+	 * @param memoryBudgetBytes heap in bytes that the counting table may use;
+	 *                          a budget too small for one edge counts one edge
+	 *                          per run
+	 * @throws IllegalArgumentException if memoryBudgetBytes is not positive
+	 */
+	public ExternalGraphBuilder(Path tempDirectory, long memoryBudgetBytes) {
+		this(tempDirectory, memoryBudgetBytes, MERGE_FAN_IN);
+	}
+
+	/**
+	 * Make a builder that has counted no corpora, merging a given number of
+	 * runs at once.
+	 *
+	 * @param fanIn maximum number of runs merged at once, at least 2
+	 * @see #ExternalGraphBuilder(Path, long)
+	 */
+	ExternalGraphBuilder(Path tempDirectory, long memoryBudgetBytes, int fanIn) {
+		if (memoryBudgetBytes <= 0 || fanIn < 2) {
+			throw new IllegalArgumentException("memory budget must be positive, fan-in at least 2: "
+					+ memoryBudgetBytes + ", " + fanIn);
+		}
+		this.tempDirectory = tempDirectory;
+		// each new edge adds at most one new word to the table
+		this.maxEdges = Math.max(1, memoryBudgetBytes / (ESTIMATED_BYTES_PER_ADJACENCY + ESTIMATED_BYTES_PER_WORD));
+		this.fanIn = fanIn;
+	}
+
+	/**
+	 * Count the words and adjacencies of a corpus, spilling runs as the
+	 * counting table fills up.
+	 *
+	 * @param corpus text file, plain or gzip-compressed
+	 * @throws IOException if the corpus cannot be found or read, or a run
+	 *                     cannot be written
+	 */
+	public void add(Path corpus) throws IOException {
+		try (Scanner scanner = new Scanner(GraphPoet.openCorpus(corpus), StandardCharsets.UTF_8)) {
+			String previous = counts.add(scanner, null, maxEdges);
+			while (scanner.hasNext()) {
+				spill();
+				previous = counts.add(scanner, previous, maxEdges);
+			}
+			if (scanner.ioException() != null) {
+				throw scanner.ioException();
+			}
+		}
+	}
+
+	/**
+	 * Write the counting table as a run, and empty it.
+	 */
+	private void spill() throws IOException {
+		Path run = Files.createTempFile(tempDirectory, "run", ".tsv");
+		runs.add(run);
+		try (Writer out = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+			counts.writeSorted(out);
+		}
+		counts = new BigramCounts();
+	}
+
+	/**
+	 * Merge groups of fanIn runs into longer runs until at most fanIn are
+	 * left. Every temporary file stays in runs until it is deleted, so that
+	 * {@link #discard()} deletes them if merging fails.
+	 */
+	private void mergePasses() throws IOException {
+		while (runs.size() > fanIn) {
+			List<Path> pass = new ArrayList<>(runs);
+			for (int from = 0; from + 1 < pass.size(); from += fanIn) {
+				List<Path> group = pass.subList(from, Math.min(from + fanIn, pass.size()));
+				Path run = Files.createTempFile(tempDirectory, "run", ".tsv");
+				runs.add(run);
+				try (Writer out = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+					GraphMerger.mergeEdgeLists(group, out);
+				}
+				for (Path merged : group) {
+					Files.delete(merged);
+					runs.remove(merged);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merge the counts of all corpora added so far into a sorted edge list,
+	 * and delete the temporary runs, even if merging fails. The builder is
+	 * empty afterwards.
+	 *
+	 * @param output file to write the edge list to, replacing any contents
+	 * @throws IOException if a run cannot be written or read, or output cannot
+	 *                     be written
+	 */
+	public void build(Path output) throws IOException {
+		try {
+			if (counts.words() > 0) {
+				spill();
+			}
+			mergePasses();
+			try (Writer out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+				GraphMerger.mergeEdgeLists(runs, out);
+			}
+		} finally {
+			discard();
+		}
+	}
+
+	/**
+	 * Delete the temporary runs and empty the builder.
+	 *
+	 * @throws IOException if a run cannot be deleted
+	 */
+	public void discard() throws IOException {
+		counts = new BigramCounts();
+		try {
+			for (Path run : runs) {
+				Files.deleteIfExists(run);
+			}
+		} finally {
+			runs.clear();
+		}
+	}
+
+	/**
+	 * Build the affinity graph of corpora as a sorted edge list on disk.
+	 *
+	 * @param corpora           text files, each plain or gzip-compressed
+	 * @param output            file to write the edge list to
+	 * @param tempDirectory     existing directory for the temporary runs
+	 * @param memoryBudgetBytes heap in bytes that counting may use
+	 * @throws IOException if a corpus cannot be found or read, or a file cannot
+	 *                     be written
+	 * @see EdgeList
+	 */
+	public static void build(List<Path> corpora, Path output, Path tempDirectory, long memoryBudgetBytes)
+			throws IOException {
+		ExternalGraphBuilder builder = new ExternalGraphBuilder(tempDirectory, memoryBudgetBytes);
+		try {
+			for (Path corpus : corpora) {
+				builder.add(corpus);
+			}
+		} catch (IOException | RuntimeException e) {
+			builder.discard();
+			throw e;
+		}
+		builder.build(output);
+	}
+
+	/**
+	 * @return paths of the runs spilled so far and not yet merged
+	 */
+	public List<Path> runs() {
+		return List.copyOf(runs);
+	}
+
+	/**
+	 * @return maximum number of distinct adjacencies counted in memory at once
+	 */
+	public long maxEdges() {
+		return maxEdges;
+	}
+
+	/**
+	 * @return a string in the form "R runs, E edges in memory of at most M"
+	 */
+	@Override
+	public String toString() {
+		return runs.size() + " runs, " + counts.edges() + " edges in memory of at most " + maxEdges;
+	}
+
+}
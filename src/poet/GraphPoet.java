@@ -3,16 +3,50 @@
  */
 package poet;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
+import graph.EdgeList;
+import graph.EdgeListImporter;
+import graph.EdgeSpliterator;
+import graph.Fingerprint;
 import graph.Graph;
+import graph.GraphBuilder;
+import graph.GraphExporter;
+import graph.GraphMerger;
+import graph.GraphPruner;
+import graph.PageRank;
+import graph.PersistentGraph;
+import graph.ShardedGraph;
+import graph.VersionedGraph;
+import graph.WeightedEdge;
 
 /**
  * A graph-based poetry generator.
@@ -78,14 +112,57 @@ import graph.Graph;
  */
 public class GraphPoet {
 
-	private final Graph<String> graph = Graph.empty();
+	/** Average size in bytes of a word of text, with the space after it. */
+	static final int BYTES_PER_WORD = 6;
+	/** Heaps' law constants for the vocabulary of English text, rounded up. */
+	static final double HEAPS_K = 50, HEAPS_BETA = 0.5;
+	/** Typical ratio of the size of text to its size compressed with gzip. */
+	static final int GZIP_RATIO = 3;
+
+	private final VersionedGraph versions;
+	private final SlidingWindow window;
+	private volatile BridgeIndex bridges;
+	private volatile Walker walker;
+	private volatile Ranking ranking;
+	private volatile GraphPruner.Report ingestionReport;
 
 	// Abstraction function:
-	// graph represents the generated word affinity graph
+	// versions.current() represents the generated word affinity graph; older
+	// versions are affinity graphs of corpora ingested so far
 	// Representation invariant:
-	// graph isn't modified by any functions
+	// the graph is only modified by ingest (and the constructors), one epoch at a
+	// time, through versions.update
+	// if window is not null, the graph holds the counts of window's buckets,
+	// and window is only used inside versions.update
+	// if bridges is not null, its filter was built from bridges.version
+	// if walker is not null, its walker walks walker.version's graph
+	// if ranking is not null, its rank was computed from ranking.version
+	// ingestionReport is only assigned by the constructors
 	// Safety from rep exposure:
-	// Graph<String> is never returned or modified, and is declared as private final
+	// versions is never returned, and is declared as private final; bridges
+	// only returns filters, which are immutable; walker only returns
+	// walkers, which never mutate their graph; ranking only returns
+	// rankings, which are immutable; ingestionReport is immutable; graphs
+	// are returned as copies; a graph passed to the constructor is owned by the
+	// poet from then on
+	// Thread safety argument:
+	// poem, getGraph and toString read one published version without locking,
+	// and VersionedGraph serializes writers, so poems can be generated while
+	// a corpus is being ingested
+	// bridges is volatile and refers to an immutable BridgeIndex; it is only
+	// replaced while holding the lock on this object, and poem only uses a
+	// filter built from the version it reads
+	// walker is volatile and refers to an immutable Walker; racing threads may
+	// each make a walker for the same version, which are equivalent
+	// ranking is likewise volatile and refers to an immutable Ranking
+
+	/**
+	 * Create a new poet with an empty affinity graph, to which corpora can be
+	 * added with {@link #ingest(Reader)}.
+	 */
+	public GraphPoet() {
+		this(new PersistentGraph());
+	}
 
 	/**
 	 * Create a new poet with the graph from corpus (as described above).
@@ -94,51 +171,662 @@ public class GraphPoet {
 	 * @throws IOException if the corpus file cannot be found or read
 	 */
 	public GraphPoet(File corpus) throws IOException {
+		this(corpus, hints(corpus.length()).build());
+	}
+
+	/**
+	 * Create a new poet with the graph from corpus (as described above), stored
+	 * in a given graph implementation such as a {@link ShardedGraph}.
+	 * 
+	 * @param corpus text file from which to derive the poet's affinity graph
+	 * @param graph  empty graph to hold the affinity graph; the poet takes
+	 *               ownership of it, and the caller must not use it afterwards
+	 * @throws IOException if the corpus file cannot be found or read
+	 */
+	public GraphPoet(File corpus, Graph<String> graph) throws IOException {
+		this(graph);
+		// not ingest(corpus), which a subclass could override
+		versions.update(count(corpus)::addTo);
+	}
+
+	/**
+	 * Create a new poet around a prebuilt affinity graph.
+	 * 
+	 * @param graph affinity graph; the poet takes ownership of it
+	 */
+	private GraphPoet(Graph<String> graph) {
+		this(graph, null);
+	}
+
+	/**
+	 * Create a new poet around a prebuilt affinity graph.
+	 * 
+	 * @param graph  affinity graph; the poet takes ownership of it
+	 * @param window window whose counts graph holds, or null if the poet keeps
+	 *               every adjacency ingested
+	 */
+	private GraphPoet(Graph<String> graph, SlidingWindow window) {
+		this.versions = new VersionedGraph(graph);
+		this.window = window;
+	}
+
+	/**
+	 * Create a new poet from a prebuilt affinity graph saved as an edge list
+	 * (see {@link EdgeList}), for example one written from
+	 * {@link #getGraph()}.
+	 * 
+	 * @param edgeList edge list file of the poet's affinity graph
+	 * @return a poet with the affinity graph in edgeList
+	 * @throws IOException if the edge list file cannot be found or read
+	 */
+	public static GraphPoet fromEdgeList(File edgeList) throws IOException {
+		Graph<String> graph = new PersistentGraph();
+		try (Reader in = Files.newBufferedReader(edgeList.toPath(), StandardCharsets.UTF_8)) {
+			EdgeList.read(in, graph);
+		}
+		return new GraphPoet(graph);
+	}
+
+	/**
+	 * Create a new poet from a large prebuilt affinity graph saved as an edge
+	 * list, such as bigram counts from another pipeline, parsing the file in
+	 * parallel; see {@link EdgeListImporter}.
+	 * 
+	 * @param edgeList UTF-8 edge list file of the poet's affinity graph
+	 * @param workers  number of chunks of the file parsed in parallel, positive
+	 * @return a poet with the affinity graph in edgeList
+	 * @throws IOException              if the edge list file cannot be found or
+	 *                                  read
+	 * @throws IllegalArgumentException if the edge list is malformed
+	 */
+	public static GraphPoet fromEdgeList(Path edgeList, int workers) throws IOException {
+		Graph<String> graph = new PersistentGraph();
+		EdgeListImporter.read(edgeList, graph, workers);
+		return new GraphPoet(graph);
+	}
+
+	/**
+	 * Create a new poet whose affinity graph merges the graphs of sorted edge
+	 * lists, summing the weights of their edges, for example graphs built from
+	 * separate corpora on separate machines. See {@link GraphMerger}.
+	 * 
+	 * @param edgeLists sorted UTF-8 edge lists, as written by
+	 *                  {@link EdgeList#writeSorted(Graph, java.io.Writer)}
+	 *                  from the graphs of other poets
+	 * @return a poet with the merged affinity graph
+	 * @throws IOException              if an edge list cannot be found or read
+	 * @throws IllegalArgumentException if an edge list is malformed or not
+	 *                                  sorted
+	 */
+	public static GraphPoet fromEdgeLists(List<Path> edgeLists) throws IOException {
+		return new GraphPoet(GraphMerger.mergeEdgeLists(edgeLists));
+	}
+
+	/**
+	 * Create a new poet whose affinity graph merges the current affinity graphs
+	 * of other poets, summing the weights of their edges.
+	 * 
+	 * @param poets poets to merge; they are not modified
+	 * @return a poet with the merged affinity graph
+	 */
+	public static GraphPoet merge(List<GraphPoet> poets) {
+		List<Graph<String>> graphs = new ArrayList<>(poets.size());
+		for (GraphPoet poet : poets) {
+			graphs.add(poet.versions.current().graph());
+		}
+		return new GraphPoet(GraphMerger.mergeGraphs(graphs));
+	}
+
+	/**
+	 * Create a new poet with an empty affinity graph that reflects only recent
+	 * text: it holds the adjacencies of the last words ingested, in the order
+	 * they were ingested, rather than of every corpus ingested, so that poems
+	 * follow trends and memory stays bounded on an endless stream such as a
+	 * {@link #subscriber(Executor, int, int, long) subscriber}'s. The window is
+	 * divided into buckets of words, and the adjacencies of the oldest bucket
+	 * are evicted, in amortized O(buckets) time per word, whenever the newest
+	 * one fills up; see {@link SlidingWindow}. Corpus files ingested together
+	 * are read one after another, in order.
+	 * 
+	 * @param window  minimum number of recent words whose adjacencies are kept,
+	 *                positive
+	 * @param buckets number of buckets the window is divided into, positive;
+	 *                the graph holds the adjacencies of up to about
+	 *                window / buckets words more than the window
+	 * @return a poet with an empty windowed affinity graph
+	 * @throws IllegalArgumentException if window or buckets is not positive
+	 */
+	public static GraphPoet windowed(int window, int buckets) {
+		return new GraphPoet(new PersistentGraph(), new SlidingWindow(window, buckets));
+	}
+
+	/**
+	 * Create a new poet with the graph from corpus (as described above),
+	 * compacted at ingestion time by a pruning pass. The corpus is counted,
+	 * added and pruned in one epoch, so the unpruned graph is never published:
+	 * no reader's snapshot keeps it alive while pruning replaces it, and the
+	 * heap holds it at most once. The pass's report is kept as
+	 * {@link #ingestionReport()}.
+	 * 
+	 * @param corpus text file from which to derive the poet's affinity graph
+	 * @param pruner pass that drops light edges, and any excluded words, from
+	 *               the affinity graph once the corpus has been counted;
+	 *               excluded words must be lower case to match
+	 * @throws IOException if the corpus file cannot be found or read
+	 */
+	public GraphPoet(File corpus, GraphPruner pruner) throws IOException {
+		this(new PersistentGraph());
+		BigramCounts counts = count(corpus);
+		AtomicReference<GraphPruner.Report> report = new AtomicReference<>();
+		versions.update(graph -> {
+			counts.addTo(graph);
+			report.set(pruner.prune(graph));
+		});
+		ingestionReport = report.get();
+	}
+
+	/**
+	 * Get the report of the pruning pass that compacted this poet's affinity
+	 * graph at ingestion time.
+	 * 
+	 * @return the report of the pass, with the edges removed and the memory
+	 *         reclaimed, if the poet was made by
+	 *         {@link #GraphPoet(File, GraphPruner)}; otherwise null
+	 */
+	public GraphPruner.Report ingestionReport() {
+		return ingestionReport;
+	}
+
+	/**
+	 * Prune the current affinity graph, for example to filter a vocabulary of
+	 * excluded words out of it, and publish the result as a new version.
+	 * Poems generated concurrently use the previous version until pruning has
+	 * finished.
+	 * 
+	 * @param pruner pass that drops light edges, and any excluded words, from
+	 *               the affinity graph; excluded words must be lower case to
+	 *               match
+	 * @return a report of the removed edges and the reclaimed memory
+	 */
+	public GraphPruner.Report prune(GraphPruner pruner) {
+		AtomicReference<GraphPruner.Report> report = new AtomicReference<>();
+		reindex(versions.update(graph -> report.set(pruner.prune(graph))));
+		return report.get();
+	}
+
+	/**
+	 * Add the adjacencies of another corpus to the affinity graph (as described
+	 * above; the last word of the graph's previous corpora is not adjacent to
+	 * the first word of this one), and publish the result as a new version.
+	 * Poems generated concurrently use the previous version until ingestion
+	 * has finished.
+	 * 
+	 * @param corpus text file to add to the poet's affinity graph
+	 * @throws IOException if the corpus file cannot be found or read
+	 */
+	public void ingest(File corpus) throws IOException {
+		if (window != null) {
+			try (Scanner scanner = new Scanner(corpus)) {
+				reindex(versions.update(graph -> window.add(scanner, graph)));
+			}
+			return;
+		}
+		ingest(count(corpus));
+	}
+
+	/**
+	 * Count the adjacencies of a corpus file.
+	 * 
+	 * @param corpus text file to count
+	 * @return the bigram counts of corpus
+	 * @throws IOException if the corpus file cannot be found or read
+	 */
+	private static BigramCounts count(File corpus) throws IOException {
+		BigramCounts counts = new BigramCounts(hints(corpus.length()));
+		try (Scanner scanner = new Scanner(corpus)) {
+			counts.add(scanner);
+		}
+		return counts;
+	}
+
+	/**
+	 * Add the adjacencies of another corpus to the affinity graph, like
+	 * {@link #ingest(File)}.
+	 * 
+	 * @param corpus text to add to the poet's affinity graph; it is not closed
+	 */
+	public void ingest(Reader corpus) {
 		Scanner scanner = new Scanner(corpus);
-		if (scanner.hasNext()) {
-			String current = scanner.next().toLowerCase();
-			graph.add(current);
-			while (scanner.hasNext()) {
-				String next = scanner.next().toLowerCase();
-				int original = graph.set(current, next, 1);
-				if (original != 0) {
-					graph.set(current, next, original + 1);
+		if (window != null) {
+			reindex(versions.update(graph -> window.add(scanner, graph)));
+			return;
+		}
+		BigramCounts counts = new BigramCounts();
+		counts.add(scanner);
+		ingest(counts);
+	}
+
+	/**
+	 * Add counted adjacencies to the affinity graph, and publish the result as
+	 * a new version.
+	 * 
+	 * @param counts adjacencies to add
+	 */
+	void ingest(BigramCounts counts) {
+		assert window == null;
+		reindex(versions.update(counts::addTo), counts);
+	}
+
+	/**
+	 * Add words that continue the text ingested into a windowed poet, and
+	 * publish the result as a new version.
+	 * 
+	 * @param words words in order, the first adjacent to the last word
+	 *              ingested before
+	 */
+	void ingestWords(List<String> words) {
+		reindex(versions.update(graph -> window.addAll(words, graph)));
+	}
+
+	/**
+	 * @return true iff this poet was made by {@link #windowed(int, int)}
+	 */
+	boolean windowed() {
+		return window != null;
+	}
+
+	/**
+	 * Estimate the size of the affinity graph of a corpus from its size, so that
+	 * tables can be presized. The vocabulary is estimated by Heaps' law, about
+	 * K * N^beta distinct words in N words of text. Only the vocabulary is
+	 * estimated, as it is the only hint that presizes a table; it presizes the
+	 * word table of the {@link BigramCounts} the corpus is counted into. The
+	 * graph the hints build is always a {@link PersistentGraph}, as a poet's
+	 * versions are snapshots.
+	 * 
+	 * @param corpusBytes size of the corpus text in bytes, nonnegative
+	 * @return hints for a snapshotting graph of that corpus
+	 */
+	static GraphBuilder hints(long corpusBytes) {
+		long words = corpusBytes / BYTES_PER_WORD + 1;
+		long vocabulary = Math.min(words, (long) Math.ceil(HEAPS_K * Math.pow(words, HEAPS_BETA)));
+		return new GraphBuilder()
+				.expectedVertices((int) Math.min(vocabulary, Integer.MAX_VALUE))
+				.snapshots(true);
+	}
+
+	/**
+	 * Get the size of a corpus file, as the text it holds.
+	 * 
+	 * @param corpus text file, plain or gzip-compressed
+	 * @return size of the file, times {@link #GZIP_RATIO} if its name ends in
+	 *         ".gz"
+	 * @throws IOException if the file cannot be found
+	 */
+	static long corpusBytes(Path corpus) throws IOException {
+		long size = Files.size(corpus);
+		return corpus.getFileName().toString().endsWith(".gz") ? size * GZIP_RATIO : size;
+	}
+
+	/**
+	 * Create a new poet with the graph from many corpus files (as described
+	 * above, where the last word of one file is not adjacent to the first word
+	 * of the next). Files are read and counted in parallel, and files compressed
+	 * with gzip are decompressed as they are read.
+	 * 
+	 * @param corpora text files, each plain or gzip-compressed
+	 * @param workers number of files read in parallel, positive
+	 * @return a poet with the affinity graph of corpora
+	 * @throws IOException if a corpus file cannot be found or read
+	 */
+	public static GraphPoet fromPaths(List<Path> corpora, int workers) throws IOException {
+		GraphPoet poet = new GraphPoet();
+		poet.ingest(corpora, workers);
+		return poet;
+	}
+
+	/**
+	 * Create a new poet with the graph from the corpus files in a directory tree
+	 * whose paths relative to the directory match a glob, such as
+	 * {@code "**.txt.gz"}; see {@link #fromPaths(List, int)}.
+	 * 
+	 * @param directory root of the directory tree to search
+	 * @param glob      glob pattern, in the syntax of
+	 *                  {@link java.nio.file.FileSystem#getPathMatcher(String)}
+	 * @param workers   number of files read in parallel, positive
+	 * @return a poet with the affinity graph of the matching files
+	 * @throws IOException if the directory or a corpus file cannot be read
+	 */
+	public static GraphPoet fromDirectory(Path directory, String glob, int workers) throws IOException {
+		PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+		List<Path> corpora;
+		try (Stream<Path> files = Files.walk(directory)) {
+			corpora = files.filter(Files::isRegularFile)
+					.filter(file -> matcher.matches(directory.relativize(file)))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+		return fromPaths(corpora, workers);
+	}
+
+	/**
+	 * Start loading a poet from many corpus files in the background, as by
+	 * {@link #fromPaths(List, int)} with one worker. The returned loader
+	 * reports progress, can cancel loading, and generates poems once loading
+	 * has finished.
+	 * 
+	 * @param corpora  text files, each plain or gzip-compressed
+	 * @param executor executor on which to load the corpora
+	 * @return a loader whose result is a poet with the affinity graph of
+	 *         corpora
+	 */
+	public static PoetLoader loadAsync(List<Path> corpora, Executor executor) {
+		PoetLoader loader = new PoetLoader(corpora);
+		executor.execute(loader::load);
+		return loader;
+	}
+
+	/**
+	 * Make a stage that ingests a stream of live text into this poet, for
+	 * example chat logs or a socket stream, with demand-based backpressure.
+	 * See {@link PoetSubscriber}; subscribe it to a {@link java.util.concurrent.Flow.Publisher}.
+	 * 
+	 * @param executor       executor on which chunks are counted and versions
+	 *                       published
+	 * @param buffer         maximum number of chunks requested and not yet
+	 *                       counted, positive
+	 * @param batchWords     number of words after which a new version is
+	 *                       published, positive
+	 * @param maxDelayMillis maximum delay in milliseconds after which counted
+	 *                       words are published, even if no further chunk
+	 *                       arrives, nonnegative
+	 * @return a subscriber that has not subscribed yet
+	 */
+	public PoetSubscriber subscriber(Executor executor, int buffer, int batchWords, long maxDelayMillis) {
+		return new PoetSubscriber(this, executor, buffer, batchWords, TimeUnit.MILLISECONDS.toNanos(maxDelayMillis));
+	}
+
+	/**
+	 * Add the adjacencies of many corpus files to the affinity graph, and
+	 * publish the result as a new version; see {@link #fromPaths(List, int)}
+	 * and {@link #ingest(File)}. Each worker counts the files it reads into its
+	 * own table, and the tables are merged once all files have been read. A
+	 * {@link #windowed(int, int) windowed} poet instead reads the files one
+	 * after another, in order, and publishes a version after each.
+	 * 
+	 * @param corpora text files, each plain or gzip-compressed
+	 * @param workers number of files read in parallel, positive
+	 * @throws IOException if a corpus file cannot be found or read
+	 */
+	public void ingest(List<Path> corpora, int workers) throws IOException {
+		if (workers <= 0) {
+			throw new IllegalArgumentException("workers must be positive");
+		}
+		if (window != null) {
+			for (Path corpus : corpora) {
+				try (Scanner scanner = new Scanner(openCorpus(corpus), StandardCharsets.UTF_8)) {
+					reindex(versions.update(graph -> window.add(scanner, graph)));
+					if (scanner.ioException() != null) {
+						throw scanner.ioException();
+					}
 				}
-				current = next;
 			}
+			return;
+		}
+		long total = 0;
+		for (Path corpus : corpora) {
+			total += corpusBytes(corpus);
+		}
+		GraphBuilder hints = hints(total);
+		GraphBuilder shareHints = hints(total / Math.min(workers, Math.max(1, corpora.size())));
+		Queue<Path> remaining = new ConcurrentLinkedQueue<>(corpora);
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(workers, corpora.size())));
+		List<Future<BigramCounts>> tables = new ArrayList<>();
+		try {
+			for (int i = 0; i < workers && i < corpora.size(); i++) {
+				tables.add(pool.submit(() -> {
+					BigramCounts counts = new BigramCounts(shareHints);
+					for (Path corpus = remaining.poll(); corpus != null; corpus = remaining.poll()) {
+						try (Scanner scanner = new Scanner(openCorpus(corpus), StandardCharsets.UTF_8)) {
+							counts.add(scanner);
+							if (scanner.ioException() != null) {
+								throw scanner.ioException();
+							}
+						}
+					}
+					return counts;
+				}));
+			}
+			BigramCounts merged = new BigramCounts(hints);
+			for (Future<BigramCounts> table : tables) {
+				merged.merge(table.get());
+			}
+			ingest(merged);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("corpus ingestion failed", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("corpus ingestion interrupted");
+		} finally {
+			pool.shutdownNow();
 		}
-		scanner.close();
 	}
 
 	/**
-	 * Get the generated word affinity graph
+	 * Open a corpus file, decompressing it on the fly if it starts with the
+	 * gzip magic number.
 	 * 
-	 * @return a copy of the generated word affinity graph
+	 * @param corpus plain or gzip-compressed text file
+	 * @return a stream of the decompressed contents of corpus
+	 * @throws IOException if the file cannot be opened
 	 */
-	public Graph<String> getGraph() {
-		Graph<String> result = Graph.empty();
-		for (String vertex : graph.vertices()) {
-			result.add(vertex);
-			Map<String, Integer> targets = graph.targets(vertex);
-			for (String target : targets.keySet()) {
-				result.set(vertex, target, targets.get(target));
+	static InputStream openCorpus(Path corpus) throws IOException {
+		return decompress(Files.newInputStream(corpus));
+	}
+
+	/**
+	 * Buffer a corpus stream, decompressing it on the fly if it starts with the
+	 * gzip magic number.
+	 * 
+	 * @param raw stream of a plain or gzip-compressed corpus
+	 * @return a stream of the decompressed contents of raw
+	 * @throws IOException if raw cannot be read
+	 */
+	static InputStream decompress(InputStream raw) throws IOException {
+		InputStream in = new BufferedInputStream(raw, 1 << 16);
+		in.mark(2);
+		boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+		in.reset();
+		return gzip ? new GZIPInputStream(in, 1 << 16) : in;
+	}
+
+	/**
+	 * Get the number of versions of the affinity graph published after the
+	 * first, i.e. the number of completed ingestion epochs.
+	 * 
+	 * @return the epoch of the current affinity graph
+	 */
+	public long epoch() {
+		return versions.current().epoch();
+	}
+
+	/**
+	 * Get a fingerprint of the current affinity graph, to tell cheaply whether
+	 * the graph has changed, for example before saving it again; see
+	 * {@link Fingerprint}. For the default {@link PersistentGraph} rep it is
+	 * kept up to date as the graph changes, and takes O(1) time.
+	 * 
+	 * @return the fingerprint of the current affinity graph; equal for equal
+	 *         graphs, and different for different graphs except with
+	 *         negligible probability
+	 */
+	public long fingerprint() {
+		return Fingerprint.of(versions.current().graph());
+	}
+
+	/**
+	 * Build a Bloom filter over the two-edge-long paths of the current affinity
+	 * graph, which poem consults to skip the search for a bridge word between
+	 * word pairs that definitely have none. The filter is kept up to date, with
+	 * the same false positive rate, as later versions are published: ingesting
+	 * into a poet that is not windowed adds the paths through the new
+	 * adjacencies to a copy of the filter, and pruning or evicting words from a
+	 * window rebuilds it. Until it has been updated, poems are generated
+	 * without a filter.
+	 * 
+	 * @param falsePositiveRate target probability that the filter fails to
+	 *                          skip the search for a pair with no bridge word,
+	 *                          in (0, 1)
+	 * @return the filter, for reporting its size
+	 */
+	public BridgeFilter indexBridges(double falsePositiveRate) {
+		return index(versions.current(), falsePositiveRate);
+	}
+
+	/**
+	 * Rebuild the bridge filter for a newly published version, if bridges are
+	 * indexed.
+	 * 
+	 * @param version version just published by versions.update
+	 */
+	private void reindex(VersionedGraph.Version version) {
+		BridgeIndex index = bridges;
+		if (index != null) {
+			index(version, index.falsePositiveRate);
+		}
+	}
+
+	/**
+	 * Update the bridge filter for a newly published version that only added
+	 * adjacencies, if bridges are indexed: by adding the paths through them to
+	 * a copy of the filter of the previous version, or by rebuilding it if the
+	 * filter in use is not for the previous version.
+	 * 
+	 * @param version version just published by versions.update
+	 * @param added   adjacencies the update added; it removed nothing
+	 */
+	private void reindex(VersionedGraph.Version version, BigramCounts added) {
+		BridgeIndex index = bridges;
+		if (index == null) {
+			return;
+		}
+		if (index.version.epoch() != version.epoch() - 1) {
+			index(version, index.falsePositiveRate);
+			return;
+		}
+		install(version, index.filter.withAdjacencies(version.graph(), added), index.falsePositiveRate);
+	}
+
+	/**
+	 * Build a bridge filter for a version, and use it unless a filter for a
+	 * later version is already in use.
+	 */
+	private BridgeFilter index(VersionedGraph.Version version, double falsePositiveRate) {
+		BridgeFilter filter = BridgeFilter.build(version.graph(), falsePositiveRate);
+		install(version, filter, falsePositiveRate);
+		return filter;
+	}
+
+	/**
+	 * Use a bridge filter for a version, unless a filter for a later version
+	 * is already in use.
+	 */
+	private void install(VersionedGraph.Version version, BridgeFilter filter, double falsePositiveRate) {
+		synchronized (this) {
+			if (bridges == null || bridges.version.epoch() <= version.epoch()) {
+				bridges = new BridgeIndex(version, filter, falsePositiveRate);
 			}
 		}
+	}
+
+	/**
+	 * Get a generator of free-running text by random walks over the current
+	 * affinity graph. The same walker is returned until another version is
+	 * published, so that the alias tables it builds are shared.
+	 * 
+	 * @return a walker over the current affinity graph
+	 */
+	public RandomWalker walker() {
+		VersionedGraph.Version version = versions.current();
+		Walker cached = walker;
+		if (cached != null && cached.version == version) {
+			return cached.walker;
+		}
+		RandomWalker result = new RandomWalker(version.graph());
+		walker = new Walker(version, result);
 		return result;
 	}
 
+	/**
+	 * Rank the words of the current affinity graph by weighted PageRank, for
+	 * example to choose the vocabulary to prune or to break ties between
+	 * bridge words. The ranking is computed in parallel, and the same ranking
+	 * is returned until another version is published.
+	 * 
+	 * @return the ranking of the words of the current affinity graph, with
+	 *         their in- and out-strengths
+	 */
+	public PageRank rank() {
+		VersionedGraph.Version version = versions.current();
+		Ranking cached = ranking;
+		if (cached != null && cached.version == version) {
+			return cached.rank;
+		}
+		PageRank result = PageRank.compute(version.graph());
+		ranking = new Ranking(version, result);
+		return result;
+	}
+
+	/**
+	 * Get the generated word affinity graph.
+	 * For the default {@link PersistentGraph} rep this is an O(1) snapshot.
+	 * 
+	 * @return a copy of the generated word affinity graph
+	 */
+	public Graph<String> getGraph() {
+		return PersistentGraph.copyOf(versions.current().graph());
+	}
+
+	/**
+	 * Stream the edges of the word affinity graph, without copying it, for
+	 * whole-graph statistics. See {@link EdgeSpliterator}.
+	 * 
+	 * @param parallel true for a parallel stream, false for a sequential one
+	 * @return a stream of the edges of the current version of the graph, in no
+	 *         particular order; for the default {@link PersistentGraph} rep,
+	 *         later ingestion does not affect it
+	 */
+	public Stream<WeightedEdge> edges(boolean parallel) {
+		return EdgeSpliterator.stream(versions.current().graph(), parallel);
+	}
+
 	/**
 	 * Try to find a bridge word in the word affinity graph
 	 * 
+	 * @param graph   version of the word affinity graph to search
 	 * @param current current word in the input poem
 	 * @param next    next word in the input poem
 	 * @return the bridge word if found, empty string if not found
 	 * @throws NoSuchElementException if not found
 	 */
-	private String findBridgeWord(String current, String next) throws NoSuchElementException {
+	private static String findBridgeWord(Graph<String> graph, String current, String next)
+			throws NoSuchElementException {
 		current = current.toLowerCase();
 		next = next.toLowerCase();
 		Set<String> targets = graph.targets(current).keySet();
+		if (graph instanceof ShardedGraph) {
+			// one batched round trip for all middle words instead of one each
+			Map<String, Map<String, Integer>> middles = ((ShardedGraph) graph).targets(targets);
+			for (String middle : targets) {
+				if (middles.get(middle).containsKey(next)) {
+					return middle;
+				}
+			}
+			throw new NoSuchElementException();
+		}
 		for (String middle : targets) {
 			if (graph.targets(middle).keySet().contains(next)) {
 				return middle;
@@ -154,6 +842,10 @@ public class GraphPoet {
 	 * @return poem (as described above)
 	 */
 	public String poem(String input) {
+		VersionedGraph.Version version = versions.current();
+		Graph<String> graph = version.graph();
+		BridgeIndex index = bridges;
+		BridgeFilter filter = index != null && index.version == version ? index.filter : null;
 		Scanner scanner = new Scanner(input);
 		List<String> words = new ArrayList<>();
 		if (scanner.hasNext()) {
@@ -161,9 +853,11 @@ public class GraphPoet {
 			words.add(current);
 			while (scanner.hasNext()) {
 				String next = scanner.next();
-				try {
-					words.add(findBridgeWord(current, next));
-				} catch (NoSuchElementException e) {
+				if (filter == null || filter.mightBridge(current.toLowerCase(), next.toLowerCase())) {
+					try {
+						words.add(findBridgeWord(graph, current, next));
+					} catch (NoSuchElementException e) {
+					}
 				}
 				words.add(next);
 				current = next;
@@ -174,11 +868,70 @@ public class GraphPoet {
 	}
 
 	/**
-	 * @return string representation of the word affinity graph
+	 * Write the word affinity graph for other tools, streaming its edges
+	 * without copying it. See {@link GraphExporter}.
+	 * 
+	 * @param format format to write
+	 * @param out    writer to write the graph to; it is flushed but not closed
+	 * @throws IOException if out cannot be written
+	 */
+	public void export(GraphExporter.Format format, Writer out) throws IOException {
+		GraphExporter.write(versions.current().graph(), format, out);
+	}
+
+	/**
+	 * @return string representation of the word affinity graph, written
+	 *         from the current version without copying it
 	 */
 	@Override
 	public String toString() {
-		return this.getGraph().toString();
+		return versions.current().graph().toString();
+	}
+
+	/**
+	 * BridgeIndex is an immutable bridge filter together with the version it
+	 * was built from.
+	 */
+	private static final class BridgeIndex {
+
+		private final VersionedGraph.Version version;
+		private final BridgeFilter filter;
+		private final double falsePositiveRate;
+
+		private BridgeIndex(VersionedGraph.Version version, BridgeFilter filter, double falsePositiveRate) {
+			this.version = version;
+			this.filter = filter;
+			this.falsePositiveRate = falsePositiveRate;
+		}
+	}
+
+	/**
+	 * Walker is an immutable random walker together with the version it walks.
+	 */
+	private static final class Walker {
+
+		private final VersionedGraph.Version version;
+		private final RandomWalker walker;
+
+		private Walker(VersionedGraph.Version version, RandomWalker walker) {
+			this.version = version;
+			this.walker = walker;
+		}
+	}
+
+	/**
+	 * Ranking is an immutable PageRank ranking together with the version it
+	 * ranks.
+	 */
+	private static final class Ranking {
+
+		private final VersionedGraph.Version version;
+		private final PageRank rank;
+
+		private Ranking(VersionedGraph.Version version, PageRank rank) {
+			this.version = version;
+			this.rank = rank;
+		}
 	}
 
 }
@@ -0,0 +1,96 @@
+package poet;
+
+import java.util.Arrays;
+
+/**
+ * A thread-safe mutable recorder of request latencies, reporting percentiles
+ * and throughput.
+ */
+public class LatencyStats {
+
+	private long[] latencies = new long[1024];
+	private int count = 0;
+	private final long start = System.nanoTime();
+	private long end = start;
+
+	// Abstraction function:
+	// represents the multiset of latencies[0..count-1] in nanoseconds, recorded
+	// between start and end (System.nanoTime() values)
+	// Representation invariant:
+	// 0 <= count <= latencies.length
+	// latencies[0..count-1] are nonnegative
+	// start <= end
+	// Safety from rep exposure:
+	// latencies is never returned, and only copies of it are sorted
+	// Thread safety argument:
+	// all access to mutable fields is synchronized on this
+
+	/**
+	 * Check the rep invariant.
+	 */
+	private void checkRep() {
+		assert 0 <= count && count <= latencies.length;
+		assert start <= end;
+	}
+
+	/**
+	 * Record one completed request.
+	 *
+	 * @param nanos latency of the request in nanoseconds, nonnegative
+	 */
+	public synchronized void record(long nanos) {
+		assert nanos >= 0;
+		if (count == latencies.length) {
+			latencies = Arrays.copyOf(latencies, count * 2);
+		}
+		latencies[count++] = nanos;
+		end = System.nanoTime();
+		checkRep();
+	}
+
+	/**
+	 * @return number of recorded requests
+	 */
+	public synchronized int count() {
+		return count;
+	}
+
+	/**
+	 * Get a latency percentile.
+	 *
+	 * @param percentile between 0 and 100
+	 * @return the smallest recorded latency in nanoseconds that is at least as
+	 *         large as the given percentage of recorded latencies, or 0 if none
+	 *         was recorded
+	 */
+	public synchronized long percentile(double percentile) {
+		assert 0 <= percentile && percentile <= 100;
+		if (count == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(latencies, count);
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(percentile / 100 * count);
+		return sorted[Math.max(rank - 1, 0)];
+	}
+
+	/**
+	 * @return recorded requests per second, from the creation of this recorder
+	 *         to the last recorded request
+	 */
+	public synchronized double throughput() {
+		long elapsed = end - start;
+		return elapsed == 0 ? 0 : count * 1e9 / elapsed;
+	}
+
+	/**
+	 * @return a string in the form
+	 *         "N requests, R req/s, p50 A ms, p99 B ms, max C ms"
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("%d requests, %.1f req/s, p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+				count, throughput(), percentile(50) / 1e6, percentile(99) / 1e6, percentile(100) / 1e6);
+	}
+
+}
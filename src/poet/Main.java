@@ -3,26 +3,185 @@
  */
 package poet;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Example program using GraphPoet.
- * 
+ * Batch poetry pipeline using GraphPoet.
+ *
+ * <p>Usage:
+ * <pre>
+ *     Main [--corpus FILE | --graph FILE] [--input FILE] [--output FILE]
+ *          [--threads N] [--queue N]
+ * </pre>
+ * The poet is built from a corpus text file, or loaded from a prebuilt graph
+ * saved as an edge list. Every line of the input (default standard input) is
+ * turned into a poem by a pool of worker threads, and the poems are written to
+ * the output (default standard output) one per line, in input order.
+ * Throughput and latency statistics are printed to standard error at the end.
+ * Without arguments, an example poem is generated.
+ *
  * <p>PS2 instructions: you are free to change this example class.
  */
 public class Main {
-    
+
+    /** Marks the end of the input in the queue of pending poems. */
+    private static final Future<String> END = CompletableFuture.completedFuture(null);
+
     /**
-     * Generate example poetry.
-     * 
-     * @param args unused
-     * @throws IOException if a poet corpus file cannot be found or read
+     * Generate poetry.
+     *
+     * @param args options as described above
+     * @throws IOException if a poet corpus, graph, input or output file cannot
+     *                     be found, read or written
      */
     public static void main(String[] args) throws IOException {
-        final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
-        final String input = "Test the system.";
-        System.out.println(input + "\n>>>\n" + nimoy.poem(input));
+        if (args.length == 0) {
+            final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+            final String input = "Test the system.";
+            System.out.println(input + "\n>>>\n" + nimoy.poem(input));
+            return;
+        }
+
+        String corpus = null, graph = null, input = null, output = null;
+        int threads = Runtime.getRuntime().availableProcessors(), capacity = 1024;
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                usage("missing value for " + args[i]);
+            }
+            switch (args[i]) {
+            case "--corpus": corpus = args[++i]; break;
+            case "--graph": graph = args[++i]; break;
+            case "--input": input = args[++i]; break;
+            case "--output": output = args[++i]; break;
+            case "--threads": threads = Integer.parseInt(args[++i]); break;
+            case "--queue": capacity = Integer.parseInt(args[++i]); break;
+            default: usage("unknown option " + args[i]);
+            }
+        }
+        if ((corpus == null) == (graph == null)) {
+            usage("exactly one of --corpus and --graph is required");
+        }
+        if (threads <= 0 || capacity <= 0) {
+            usage("--threads and --queue must be positive");
+        }
+
+        long start = System.nanoTime();
+        GraphPoet poet = corpus != null
+                ? new GraphPoet(new File(corpus))
+                : GraphPoet.fromEdgeList(new File(graph));
+        System.err.printf("loaded poet in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        try (BufferedReader in = input == null
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                    : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+                Writer out = output == null
+                    ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                    : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+            LatencyStats stats = run(poet, in, out, threads, capacity);
+            out.flush();
+            System.err.println(stats);
+        }
+    }
+
+    /**
+     * Print a usage error and exit.
+     *
+     * @param message what is wrong with the arguments
+     */
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("usage: Main [--corpus FILE | --graph FILE] [--input FILE] [--output FILE]"
+                + " [--threads N] [--queue N]");
+        System.exit(2);
     }
-    
+
+    /**
+     * Generate a poem for every line of the input, in a bounded
+     * producer/consumer pipeline: the calling thread reads lines and submits
+     * them to a pool of worker threads, and a writer thread writes the poems
+     * in input order. At most capacity poems are pending at any time, so a slow
+     * consumer throttles the reader instead of buffering the whole input.
+     *
+     * @param poet poet to generate poems with
+     * @param in input lines; it is not closed
+     * @param out writer for the poems, one per line; it is not closed or flushed
+     * @param threads number of worker threads, positive
+     * @param capacity maximum number of pending poems, positive
+     * @return latencies from reading each line to finishing its poem
+     * @throws IOException if in cannot be read or out cannot be written
+     */
+    public static LatencyStats run(GraphPoet poet, BufferedReader in, Writer out,
+            int threads, int capacity) throws IOException {
+        LatencyStats stats = new LatencyStats();
+        BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(capacity);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (Future<String> poem = pending.take(); poem != END; poem = pending.take()) {
+                    if (failure.get() != null) {
+                        continue; // keep draining so the reader never blocks
+                    }
+                    try {
+                        out.write(poem.get());
+                        out.write('\n');
+                    }
+                    catch (IOException | ExecutionException e) {
+                        failure.set(e);
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                failure.set(e);
+            }
+        }, "poem-writer");
+        writer.start();
+        try {
+            for (String line = in.readLine(); line != null && failure.get() == null; line = in.readLine()) {
+                final String input = line;
+                final long start = System.nanoTime();
+                pending.put(workers.submit(() -> {
+                    String poem = poet.poem(input);
+                    stats.record(System.nanoTime() - start);
+                    return poem;
+                }));
+            }
+            pending.put(END);
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", e);
+        }
+        finally {
+            writer.interrupt(); // no-op unless reading failed before END
+            workers.shutdownNow();
+        }
+        Exception e = failure.get();
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        else if (e != null) {
+            throw new IOException("poem pipeline failed", e);
+        }
+        return stats;
+    }
+
 }
@@ -0,0 +1,403 @@
+package poet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * NGramModel is an immutable table of the counts of all n-grams of a corpus up
+ * to a fixed order, i.e. of every sequence of at most order adjacent words,
+ * used to choose bridge words with more context than a bigram affinity graph.
+ * Words are lower-cased as described in {@link GraphPoet}, and n-grams do not
+ * cross the boundaries between corpora.
+ *
+ * <p>
+ * Words are interned to dense int ids, and the n-grams are stored as a trie
+ * laid out in sorted arrays, one level per n-gram length: each stored n-gram
+ * costs one word id, one count and one child offset, 12 bytes, however long
+ * it is. A child is found by binary search among its siblings.
+ *
+ * <p>
+ * A bridge word b between w1 and w2 is chosen by the count of the longest
+ * n-gram (..., w0, w1, b, w2) that fits the model's order and the preceding
+ * words of the poem, backing off to shorter contexts. If no such n-gram of at
+ * least three words exists, b is chosen as in {@link GraphPoet}, by the
+ * weight count(w1, b) + count(b, w2) of the two-edge-long path.
+ */
+public class NGramModel {
+
+	private static final int ROOT = -1;
+
+	private final int order;
+	private final Map<String, Integer> ids;
+	private final String[] words;
+	private final int[][] children;
+	private final int[][] counts;
+	private final int[][] firsts;
+
+	// Abstraction function:
+	// represents the counts of the n-grams of length 1..order of a corpus,
+	// where word i is words[i]; the (d+1)-grams are the nodes of level d of a
+	// trie: node j of level d has word children[d][j] and count counts[d][j],
+	// and its children are nodes firsts[d][j] until firsts[d][j+1] of level
+	// d+1; node i of level 0 is word i
+	// Representation invariant:
+	// order >= 1; ids maps words[i] to i
+	// children, counts have order levels, firsts has order - 1
+	// children[0] is null, and counts[0].length == words.length
+	// firsts[d] is nondecreasing, has one more entry than level d, and ends
+	// at the size of level d+1
+	// the children of each node are sorted by word id without duplicates
+	// all counts are positive
+	// Safety from rep exposure:
+	// all fields are private final, and no array or map is returned
+
+	private NGramModel(int order, Map<String, Integer> ids, String[] words, int[][] children, int[][] counts,
+			int[][] firsts) {
+		this.order = order;
+		this.ids = ids;
+		this.words = words;
+		this.children = children;
+		this.counts = counts;
+		this.firsts = firsts;
+		checkRep();
+	}
+
+	/**
+	 * Check the rep invariant.
+	 */
+	private void checkRep() {
+		assert order >= 1;
+		assert counts.length == order && children.length == order && firsts.length == order - 1;
+		assert counts[0].length == words.length && ids.size() == words.length;
+		for (int d = 0; d < order - 1; d++) {
+			assert firsts[d].length == counts[d].length + 1;
+			assert firsts[d][counts[d].length] == counts[d + 1].length;
+		}
+	}
+
+	/**
+	 * Count the n-grams of a corpus.
+	 *
+	 * @param corpus text to count; it is not closed
+	 * @param order  maximum number of words in an n-gram, positive
+	 * @return a model of the n-grams of corpus
+	 */
+	public static NGramModel fromReader(Reader corpus, int order) {
+		Counter counter = new Counter(order);
+		counter.add(new Scanner(corpus));
+		return counter.build();
+	}
+
+	/**
+	 * Count the n-grams of many corpus files.
+	 *
+	 * @param corpora text files, each plain or gzip-compressed
+	 * @param order   maximum number of words in an n-gram, positive
+	 * @return a model of the n-grams of corpora
+	 * @throws IOException if a corpus file cannot be found or read
+	 */
+	public static NGramModel fromPaths(List<Path> corpora, int order) throws IOException {
+		Counter counter = new Counter(order);
+		for (Path corpus : corpora) {
+			try (Scanner scanner = new Scanner(GraphPoet.openCorpus(corpus), StandardCharsets.UTF_8)) {
+				counter.add(scanner);
+				if (scanner.ioException() != null) {
+					throw scanner.ioException();
+				}
+			}
+		}
+		return counter.build();
+	}
+
+	/**
+	 * @return maximum number of words in an n-gram of this model
+	 */
+	public int order() {
+		return order;
+	}
+
+	/**
+	 * @return number of distinct words in this model
+	 */
+	public int vocabulary() {
+		return words.length;
+	}
+
+	/**
+	 * @return number of distinct n-grams stored, of every length
+	 */
+	public long size() {
+		long size = 0;
+		for (int[] level : counts) {
+			size += level.length;
+		}
+		return size;
+	}
+
+	/**
+	 * @return number of bytes used by the arrays of the n-gram trie, excluding
+	 *         the dictionary of words
+	 */
+	public long memoryBytes() {
+		long bytes = 0;
+		for (int d = 0; d < order; d++) {
+			bytes += (long) counts[d].length * Integer.BYTES;
+			if (children[d] != null) {
+				bytes += (long) children[d].length * Integer.BYTES;
+			}
+			if (d < order - 1) {
+				bytes += (long) firsts[d].length * Integer.BYTES;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Get the count of an n-gram.
+	 *
+	 * @param ngram words of the n-gram, case-insensitive
+	 * @return the number of times ngram occurs in the corpus; zero if it does
+	 *         not occur, or is empty or longer than the order of this model
+	 */
+	public int count(List<String> ngram) {
+		if (ngram.isEmpty() || ngram.size() > order) {
+			return 0;
+		}
+		int node = ROOT;
+		for (int d = 0; d < ngram.size(); d++) {
+			Integer id = ids.get(ngram.get(d).toLowerCase());
+			node = id == null ? -1 : child(d, node, id);
+			if (node < 0) {
+				return 0;
+			}
+		}
+		return counts[ngram.size() - 1][node];
+	}
+
+	/**
+	 * Find a child in the trie.
+	 *
+	 * @param d    level of the child
+	 * @param node index of the parent in level d - 1, or ROOT if d is 0
+	 * @param id   word id of the child
+	 * @return index of the child in level d, or a negative number if none
+	 */
+	private int child(int d, int node, int id) {
+		if (d == 0) {
+			return id;
+		}
+		int from = firsts[d - 1][node], to = firsts[d - 1][node + 1];
+		int found = Arrays.binarySearch(children[d], from, to, id);
+		return found >= 0 ? found : -1;
+	}
+
+	/**
+	 * Find a bridge word between two words, using the words before them as
+	 * context, as described above.
+	 *
+	 * @param context words before the bridge, the last being w1; may be in any
+	 *                case
+	 * @param next    word after the bridge, w2; may be in any case
+	 * @return the bridge word in lower case, or null if there is none
+	 */
+	public String bridge(List<String> context, String next) {
+		if (context.isEmpty()) {
+			return null;
+		}
+		Integer nextId = ids.get(next.toLowerCase());
+		if (nextId == null) {
+			return null;
+		}
+		int[] path = new int[context.size()];
+		for (int i = 0; i < path.length; i++) {
+			Integer id = ids.get(context.get(i).toLowerCase());
+			path[i] = id == null ? -1 : id;
+		}
+		// longest context first: (c..., b, next) must fit in order words
+		for (int length = Math.min(order - 2, path.length); length >= 1; length--) {
+			int node = ROOT;
+			for (int d = 0; d < length && (d == 0 || node >= 0); d++) {
+				int id = path[path.length - length + d];
+				node = id < 0 ? -1 : child(d, node, id);
+			}
+			if (node < 0) {
+				continue;
+			}
+			int best = -1, bestCount = 0;
+			for (int b = firsts[length - 1][node]; b < firsts[length - 1][node + 1]; b++) {
+				int n = child(length + 1, b, nextId);
+				if (n >= 0 && counts[length + 1][n] > bestCount) {
+					best = children[length][b];
+					bestCount = counts[length + 1][n];
+				}
+			}
+			if (best >= 0) {
+				return words[best];
+			}
+		}
+		return order >= 2 ? bigramBridge(path[path.length - 1], nextId) : null;
+	}
+
+	/**
+	 * @return the bridge word chosen by the weight of the two-edge-long path,
+	 *         or null if there is none
+	 */
+	private String bigramBridge(int current, int next) {
+		if (current < 0) {
+			return null;
+		}
+		int best = -1;
+		long bestWeight = 0;
+		for (int b = firsts[0][current]; b < firsts[0][current + 1]; b++) {
+			int middle = children[1][b];
+			int n = child(1, middle, next);
+			if (n >= 0 && (long) counts[1][b] + counts[1][n] > bestWeight) {
+				best = middle;
+				bestWeight = (long) counts[1][b] + counts[1][n];
+			}
+		}
+		return best >= 0 ? words[best] : null;
+	}
+
+	/**
+	 * Generate a poem, like {@link GraphPoet#poem(String)} but choosing bridge
+	 * words as described above. Bridge words inserted earlier in the poem are
+	 * part of the context of later ones.
+	 *
+	 * @param input string from which to create the poem
+	 * @return poem (as described above)
+	 */
+	public String poem(String input) {
+		List<String> words = new ArrayList<>();
+		Scanner scanner = new Scanner(input);
+		while (scanner.hasNext()) {
+			String next = scanner.next();
+			String bridge = bridge(words.subList(Math.max(0, words.size() - order), words.size()), next);
+			if (bridge != null) {
+				words.add(bridge);
+			}
+			words.add(next);
+		}
+		scanner.close();
+		return String.join(" ", words);
+	}
+
+	/**
+	 * @return a human-readable summary of the size of this model
+	 */
+	@Override
+	public String toString() {
+		long size = size();
+		return String.format("%d-gram model: %d words, %d n-grams, %d bytes (%.1f bytes per n-gram)", order,
+				words.length, size, memoryBytes(), size == 0 ? 0.0 : (double) memoryBytes() / size);
+	}
+
+	/**
+	 * Counter is a mutable trie of n-gram counts, used to count corpora before
+	 * they are laid out in the arrays of an NGramModel.
+	 */
+	private static final class Counter {
+
+		private final int order;
+		private final Map<String, Integer> ids = new HashMap<>();
+		private final List<String> words = new ArrayList<>();
+		private final Node root = new Node();
+
+		// Abstraction function:
+		// represents the counts of n-grams in the trie under root, where word
+		// i is words.get(i)
+		// Representation invariant:
+		// ids maps words.get(i) to i; the trie is at most order deep
+		// Safety from rep exposure:
+		// all fields are private final, and never returned
+
+		private Counter(int order) {
+			if (order < 1) {
+				throw new IllegalArgumentException("order must be positive");
+			}
+			this.order = order;
+		}
+
+		/**
+		 * Count the n-grams of the words read by a scanner.
+		 */
+		private void add(Scanner scanner) {
+			// the nodes of the n-grams ending at the current word, by length
+			Node[] ending = new Node[order];
+			int ended = 0;
+			while (scanner.hasNext()) {
+				String word = scanner.next().toLowerCase();
+				Integer id = ids.get(word);
+				if (id == null) {
+					id = words.size();
+					ids.put(word, id);
+					words.add(word);
+				}
+				ended = Math.min(ended + 1, order);
+				for (int length = ended; length >= 1; length--) {
+					Node parent = length == 1 ? root : ending[length - 2];
+					Node node = parent.children.computeIfAbsent(id, i -> new Node());
+					node.count++;
+					ending[length - 1] = node;
+				}
+			}
+		}
+
+		/**
+		 * Lay out the trie in sorted arrays, level by level.
+		 */
+		private NGramModel build() {
+			int[][] children = new int[order][];
+			int[][] counts = new int[order][];
+			int[][] firsts = new int[order - 1][];
+			// level 0 is indexed by word id, so it needs no word array
+			Node[] level = new Node[words.size()];
+			for (Map.Entry<Integer, Node> entry : root.children.entrySet()) {
+				level[entry.getKey()] = entry.getValue();
+			}
+			for (int d = 0; d < order; d++) {
+				counts[d] = new int[level.length];
+				for (int j = 0; j < level.length; j++) {
+					counts[d][j] = level[j].count;
+				}
+				if (d == order - 1) {
+					break;
+				}
+				firsts[d] = new int[level.length + 1];
+				List<Node> next = new ArrayList<>();
+				List<Integer> nextIds = new ArrayList<>();
+				for (int j = 0; j < level.length; j++) {
+					firsts[d][j] = next.size();
+					Integer[] sorted = level[j].children.keySet().toArray(new Integer[0]);
+					Arrays.sort(sorted);
+					for (Integer id : sorted) {
+						nextIds.add(id);
+						next.add(level[j].children.get(id));
+					}
+				}
+				firsts[d][level.length] = next.size();
+				children[d + 1] = nextIds.stream().mapToInt(Integer::intValue).toArray();
+				level = next.toArray(new Node[0]);
+			}
+			return new NGramModel(order, new HashMap<>(ids), words.toArray(new String[0]), children, counts,
+					firsts);
+		}
+	}
+
+	/**
+	 * Node is a mutable node of a Counter's trie.
+	 */
+	private static final class Node {
+		private int count;
+		private final Map<Integer, Node> children = new HashMap<>(4);
+	}
+
+}
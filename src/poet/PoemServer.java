@@ -0,0 +1,230 @@
+package poet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A long-running poem service around one {@link GraphPoet}, speaking a
+ * line-oriented protocol over TCP on the loopback interface.
+ *
+ * <p>Each line a client sends is an input string, and is answered by one line:
+ * either "OK " followed by the poem, or "BUSY" if the server is overloaded and
+ * rejected the request without processing it. A client may send any number of
+ * lines on one connection.
+ *
+ * <p>Connections are served on virtual threads. Accepted requests wait in a
+ * bounded queue, from which worker threads take micro-batches of up to a
+ * maximum size and generate their poems back to back, so one worker keeps the
+ * hot part of the affinity graph in its cache across a batch. A request that
+ * finds the queue full is answered "BUSY" immediately, which bounds the
+ * memory and latency of the server under overload.
+ */
+public class PoemServer implements Closeable {
+
+	private final GraphPoet poet;
+	private final int maxBatch;
+	private final BlockingQueue<Request> queue;
+	private final ServerSocket serverSocket;
+	private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+	private final List<Thread> workers = new ArrayList<>();
+
+	// Abstraction function:
+	// represents a server generating poems with poet for the clients of
+	// serverSocket, with queue the accepted requests waiting for a worker
+	// Representation invariant:
+	// maxBatch > 0
+	// serverSocket is bound to the loopback address
+	// Safety from rep exposure:
+	// all fields are private final and never returned
+	// Thread safety argument:
+	// poet is only read after construction, and GraphPoet.poem is safe for
+	// concurrent readers
+	// queue is a thread-safe blocking queue, and every request is completed by
+	// exactly the worker that took it from the queue
+
+	/**
+	 * Start a poem server on the loopback interface.
+	 *
+	 * @param poet          poet to generate poems with
+	 * @param port          port to listen on, or 0 for any free port
+	 * @param workers       number of worker threads generating poems, positive
+	 * @param queueCapacity maximum number of accepted requests waiting for a
+	 *                      worker, positive
+	 * @param maxBatch      maximum number of requests a worker takes at once,
+	 *                      positive
+	 * @throws IOException if the server socket cannot be opened
+	 */
+	public PoemServer(GraphPoet poet, int port, int workers, int queueCapacity, int maxBatch) throws IOException {
+		if (workers <= 0 || queueCapacity <= 0 || maxBatch <= 0) {
+			throw new IllegalArgumentException("workers, queueCapacity and maxBatch must be positive");
+		}
+		this.poet = poet;
+		this.maxBatch = maxBatch;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+		for (int i = 0; i < workers; i++) {
+			Thread worker = new Thread(this::work, "poem-worker-" + i);
+			worker.setDaemon(true);
+			worker.start();
+			this.workers.add(worker);
+		}
+		// not a daemon, so that an open server keeps the JVM alive
+		new Thread(this::acceptLoop, "poem-acceptor").start();
+		checkRep();
+	}
+
+	/**
+	 * Check the rep invariant.
+	 */
+	private void checkRep() {
+		assert maxBatch > 0;
+		assert serverSocket.getInetAddress().isLoopbackAddress();
+	}
+
+	/**
+	 * Get the port this server listens on.
+	 *
+	 * @return the local port of the server socket
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Accept client connections until the server is closed.
+	 */
+	private void acceptLoop() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				try {
+					connections.execute(() -> serve(socket));
+				} catch (RejectedExecutionException e) {
+					socket.close(); // closed concurrently
+				}
+			} catch (IOException e) {
+				// server socket closed
+			}
+		}
+	}
+
+	/**
+	 * Answer the lines of one connection until the client disconnects.
+	 *
+	 * @param socket connection to a client
+	 */
+	private void serve(Socket socket) {
+		try (Socket s = socket;
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				BufferedWriter out = new BufferedWriter(
+						new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				Request request = new Request(line);
+				if (queue.offer(request)) {
+					out.write("OK " + request.poem.get());
+				} else {
+					out.write("BUSY");
+				}
+				out.newLine();
+				out.flush();
+			}
+		} catch (IOException | ExecutionException e) {
+			// drop the connection; the client sees it closed
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Take micro-batches of requests from the queue and answer them, until the
+	 * worker is interrupted.
+	 */
+	private void work() {
+		List<Request> batch = new ArrayList<>(maxBatch);
+		try {
+			while (true) {
+				batch.add(queue.take());
+				queue.drainTo(batch, maxBatch - 1);
+				for (Request request : batch) {
+					try {
+						request.poem.complete(poet.poem(request.input));
+					} catch (RuntimeException e) {
+						request.poem.completeExceptionally(e);
+					}
+				}
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			// server closed
+		}
+	}
+
+	/**
+	 * Stop the server: close the server socket, stop the workers, and drop all
+	 * client connections.
+	 *
+	 * @throws IOException if the server socket cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		for (Thread worker : workers) {
+			worker.interrupt();
+		}
+		connections.shutdownNow();
+	}
+
+	/**
+	 * Run a poem server until the process is killed.
+	 *
+	 * @param args corpus file, then optionally port (default 4949), workers
+	 *             (default the number of processors), queue capacity (default
+	 *             1024) and maximum batch size (default 32)
+	 * @throws IOException if the corpus cannot be read or the port is in use
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: PoemServer corpus [port [workers [queueCapacity [maxBatch]]]]");
+			System.exit(2);
+		}
+		GraphPoet poet = new GraphPoet(new File(args[0]));
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 4949;
+		int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int capacity = args.length > 3 ? Integer.parseInt(args[3]) : 1024;
+		int maxBatch = args.length > 4 ? Integer.parseInt(args[4]) : 32;
+		PoemServer server = new PoemServer(poet, port, workers, capacity, maxBatch);
+		System.err.println("serving poems on localhost:" + server.getPort());
+	}
+
+	/**
+	 * Request represents one accepted input awaiting its poem.
+	 */
+	private static class Request {
+		private final String input;
+		private final CompletableFuture<String> poem = new CompletableFuture<>();
+
+		private Request(String input) {
+			this.input = input;
+		}
+	}
+
+}
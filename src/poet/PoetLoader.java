@@ -0,0 +1,221 @@
+package poet;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PoetLoader is a handle on a poet being loaded from corpus files in the
+ * background, created by {@link GraphPoet#loadAsync(List, java.util.concurrent.Executor)}.
+ *
+ * <p>
+ * While loading, a service can answer health checks with {@link #isReady()} and
+ * the progress counters, and queue poems with {@link #poemAsync(String)}, which
+ * are generated as soon as loading has finished. Loading can be cancelled at
+ * any time; it then stops within one buffer of input, and the loaded poet is
+ * never published.
+ */
+public class PoetLoader {
+
+	private final List<Path> corpora;
+	private final CompletableFuture<GraphPoet> result = new CompletableFuture<>();
+	private final AtomicLong bytesRead = new AtomicLong();
+	private volatile long totalBytes = -1;
+	private volatile BigramCounts counting;
+	private volatile boolean cancelled;
+
+	// Abstraction function:
+	// represents the loading of a poet from corpora, which has read bytesRead
+	// of their totalBytes (-1 until known) bytes; counting is the table being
+	// counted, if any; result completes with the poet once loading is done
+	// Representation invariant:
+	// 0 <= bytesRead, and bytesRead <= totalBytes once totalBytes is known
+	// if cancelled, result is cancelled
+	// Safety from rep exposure:
+	// corpora is an unmodifiable copy; result is only returned as a copy that
+	// completes with it, so callers cannot complete it
+	// Thread safety argument:
+	// progress counters are atomic or volatile; load runs on one thread, and
+	// the only state it shares is published through them and result
+
+	/**
+	 * Make a loader that has not started loading.
+	 *
+	 * @param corpora text files, each plain or gzip-compressed
+	 */
+	PoetLoader(List<Path> corpora) {
+		this.corpora = List.copyOf(corpora);
+	}
+
+	/**
+	 * Load the corpora and complete the result, on the calling thread.
+	 */
+	void load() {
+		try {
+			long total = 0, text = 0;
+			for (Path corpus : corpora) {
+				total += Files.size(corpus);
+				text += GraphPoet.corpusBytes(corpus);
+			}
+			totalBytes = total;
+			BigramCounts counts = new BigramCounts(GraphPoet.hints(text));
+			counting = counts;
+			for (Path corpus : corpora) {
+				try (Scanner scanner = new Scanner(GraphPoet.decompress(new Counting(Files.newInputStream(corpus))),
+						StandardCharsets.UTF_8)) {
+					counts.add(scanner);
+					checkCancelled();
+					if (scanner.ioException() != null) {
+						throw scanner.ioException();
+					}
+				}
+			}
+			GraphPoet poet = new GraphPoet();
+			poet.ingest(counts);
+			result.complete(poet);
+		} catch (IOException | RuntimeException e) {
+			result.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * @throws InterruptedIOException if loading has been cancelled
+	 */
+	private void checkCancelled() throws InterruptedIOException {
+		if (cancelled) {
+			throw new InterruptedIOException("loading cancelled");
+		}
+	}
+
+	/**
+	 * @return true iff loading has finished successfully
+	 */
+	public boolean isReady() {
+		return result.isDone() && !result.isCompletedExceptionally();
+	}
+
+	/**
+	 * Wait for loading to finish.
+	 *
+	 * @return the loaded poet
+	 * @throws IOException           if a corpus file cannot be found or read
+	 * @throws CancellationException if loading was cancelled
+	 * @throws InterruptedException  if interrupted while waiting
+	 */
+	public GraphPoet awaitReady() throws IOException, InterruptedException {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("loading failed", e.getCause());
+		}
+	}
+
+	/**
+	 * @return a future that completes with the loaded poet, or exceptionally if
+	 *         loading fails or is cancelled
+	 */
+	public CompletableFuture<GraphPoet> future() {
+		return result.thenApply(poet -> poet);
+	}
+
+	/**
+	 * Generate a poem once loading has finished.
+	 *
+	 * @param input string from which to create the poem
+	 * @return a future that completes with the poem, as by
+	 *         {@link GraphPoet#poem(String)}, or exceptionally if loading fails
+	 *         or is cancelled
+	 */
+	public CompletableFuture<String> poemAsync(String input) {
+		return result.thenApply(poet -> poet.poem(input));
+	}
+
+	/**
+	 * Cancel loading, unless it has already finished.
+	 *
+	 * @return true iff loading was cancelled by this call
+	 */
+	public boolean cancel() {
+		cancelled = true;
+		return result.cancel(false);
+	}
+
+	/**
+	 * @return number of bytes of the corpus files read so far, before
+	 *         decompression
+	 */
+	public long bytesRead() {
+		return bytesRead.get();
+	}
+
+	/**
+	 * @return total size of the corpus files in bytes, or -1 if not yet known
+	 */
+	public long totalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * @return number of distinct edges of the affinity graph counted so far
+	 */
+	public long edges() {
+		BigramCounts counts = counting;
+		return counts == null ? 0 : counts.edges();
+	}
+
+	/**
+	 * @return a string in the form "R of T bytes read, E edges, S", where S is
+	 *         "loading", "ready", "failed" or "cancelled"
+	 */
+	@Override
+	public String toString() {
+		String state = !result.isDone() ? "loading"
+				: result.isCancelled() ? "cancelled" : result.isCompletedExceptionally() ? "failed" : "ready";
+		return bytesRead() + " of " + totalBytes() + " bytes read, " + edges() + " edges, " + state;
+	}
+
+	/**
+	 * Counting is a stream that adds the bytes read from it to bytesRead, and
+	 * fails once loading has been cancelled.
+	 */
+	private final class Counting extends FilterInputStream {
+
+		private Counting(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			checkCancelled();
+			int b = super.read();
+			if (b >= 0) {
+				bytesRead.incrementAndGet();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			checkCancelled();
+			int n = super.read(buffer, offset, length);
+			if (n > 0) {
+				bytesRead.addAndGet(n);
+			}
+			return n;
+		}
+	}
+
+}
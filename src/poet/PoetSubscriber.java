@@ -0,0 +1,345 @@
+package poet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PoetSubscriber is a stage that ingests live text, such as chat logs or a
+ * socket stream, into a poet continuously, created by
+ * {@link GraphPoet#subscriber(Executor, int, int, long)}.
+ *
+ * <p>
+ * It subscribes to a {@link Flow.Publisher} of text chunks. A chunk may end in
+ * the middle of a word, which is then completed by the next chunk; the last
+ * word of a chunk is adjacent to the first word of the next, so the stream is
+ * counted as one corpus. Chunks are tokenized and counted on the executor, one
+ * chunk at a time, into a batch of bigram counts. A batch is added to the
+ * poet's affinity graph and published as a new version once it holds a number
+ * of words, or a maximum delay after the last version was published, whether
+ * or not another chunk arrives, and when the stream completes. A
+ * {@link GraphPoet#windowed(int, int) windowed} poet is given the words of a
+ * batch in order instead, so that its graph follows the stream's most recent
+ * words.
+ *
+ * <p>
+ * Backpressure is by demand: the subscriber never has more chunks requested
+ * than fit in its buffer, and requests another chunk only after it has counted
+ * one, so a publisher faster than ingestion is slowed down to its pace and the
+ * memory held by the stage stays bounded. A publisher that sends more chunks
+ * than requested stops ingestion, as if it were cancelled.
+ */
+public class PoetSubscriber implements Flow.Subscriber<CharSequence> {
+
+	private final GraphPoet poet;
+	private final Executor executor;
+	private final int buffer;
+	private final int batchWords;
+	private final long maxDelayNanos;
+	private final Queue<CharSequence> chunks = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger draining = new AtomicInteger();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	private final CompletableFuture<Long> completion = new CompletableFuture<>();
+	private final AtomicLong words = new AtomicLong();
+	private final AtomicLong versions = new AtomicLong();
+	private final AtomicLong demand = new AtomicLong();
+	private volatile Flow.Subscription subscription;
+	private volatile Throwable error;
+	private volatile boolean done;
+	private volatile int maxBuffered;
+
+	// state of the drain, confined to the thread draining
+	private BigramCounts batch;
+	private final List<String> windowBatch = new ArrayList<>();
+	private long batchSize;
+	private long lastPublished = System.nanoTime();
+	private String previous;
+	private final StringBuilder pending = new StringBuilder();
+
+	// Abstraction function:
+	// represents the ingestion into poet of the stream of chunks received so
+	// far, of which those in chunks are not yet counted; batch holds the
+	// counts not yet published, of batchSize words, or if poet is windowed
+	// windowBatch holds those words in order; pending is the start of a
+	// word split across chunks, and previous the last complete word counted;
+	// completion completes with the number of words ingested once the stream
+	// has ended and been published, or exceptionally once it fails or is
+	// cancelled; flushScheduled is true while a delayed drain is pending;
+	// demand is the number of chunks requested and not yet received
+	// Representation invariant:
+	// buffer, batchWords > 0, maxDelayNanos >= 0
+	// demand plus the number of chunks in chunks is at most buffer, and
+	// demand >= 0, unless completion is done
+	// while batchSize > 0 and completion is not done, a drain is running or
+	// flushScheduled
+	// Safety from rep exposure:
+	// all fields are private; completion is only returned as a copy
+	// Thread safety argument:
+	// onNext, onComplete and onError are called serially by the publisher;
+	// they only add to thread-safe chunks and set volatile flags, then
+	// schedule a drain; the delayed flush drains on the executor too;
+	// the draining counter lets one drain run at a time, and the drain's
+	// state is only touched while draining, with the counter's atomic updates
+	// ordering successive drains
+
+	/**
+	 * Make a subscriber that has not subscribed yet.
+	 *
+	 * @param poet          poet to ingest into
+	 * @param executor      executor to count and publish on
+	 * @param buffer        maximum number of chunks requested and not yet
+	 *                      counted, positive
+	 * @param batchWords    number of words after which a version is published,
+	 *                      positive
+	 * @param maxDelayNanos maximum delay of words between versions,
+	 *                      nonnegative
+	 */
+	PoetSubscriber(GraphPoet poet, Executor executor, int buffer, int batchWords, long maxDelayNanos) {
+		if (buffer <= 0 || batchWords <= 0 || maxDelayNanos < 0) {
+			throw new IllegalArgumentException("buffer and batchWords must be positive, maxDelay nonnegative");
+		}
+		this.poet = poet;
+		this.executor = executor;
+		this.buffer = buffer;
+		this.batchWords = batchWords;
+		this.maxDelayNanos = maxDelayNanos;
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		if (this.subscription != null) {
+			subscription.cancel();
+			return;
+		}
+		this.subscription = subscription;
+		demand.addAndGet(buffer);
+		subscription.request(buffer);
+	}
+
+	/**
+	 * Count a chunk. If the publisher sent more chunks than requested, stop
+	 * ingesting as by {@link #cancel()}, and complete the result exceptionally
+	 * with an IllegalStateException instead.
+	 */
+	@Override
+	public void onNext(CharSequence chunk) {
+		if (completion.isDone()) {
+			return;
+		}
+		if (demand.decrementAndGet() < 0) {
+			subscription.cancel();
+			completion.completeExceptionally(new IllegalStateException("chunk not requested"));
+			return;
+		}
+		chunks.add(chunk);
+		drain();
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		error = throwable;
+		done = true;
+		drain();
+	}
+
+	@Override
+	public void onComplete() {
+		done = true;
+		drain();
+	}
+
+	/**
+	 * Schedule a drain on the executor, unless one is already running, in which
+	 * case it drains again before it returns.
+	 */
+	private void drain() {
+		if (draining.getAndIncrement() == 0) {
+			executor.execute(this::drainLoop);
+		}
+	}
+
+	private void drainLoop() {
+		try {
+			int missed = 1;
+			while (missed != 0) {
+				for (CharSequence chunk = chunks.poll(); chunk != null; chunk = chunks.poll()) {
+					if (completion.isDone()) {
+						chunks.clear();
+						break;
+					}
+					maxBuffered = Math.max(maxBuffered, chunks.size() + 1);
+					count(chunk);
+					if (batchSize >= batchWords || (batchSize > 0 && System.nanoTime() - lastPublished >= maxDelayNanos)) {
+						publish();
+					}
+					if (!completion.isDone()) {
+						demand.incrementAndGet();
+						subscription.request(1);
+					}
+				}
+				if (done && chunks.isEmpty() && !completion.isDone()) {
+					if (pending.length() > 0) {
+						word();
+					}
+					publish();
+					if (error != null) {
+						completion.completeExceptionally(error);
+					} else {
+						completion.complete(words.get());
+					}
+				}
+				if (batchSize > 0 && !completion.isDone()) {
+					flushWhenDue();
+				}
+				missed = draining.addAndGet(-missed);
+			}
+		} catch (RuntimeException e) {
+			Flow.Subscription current = subscription;
+			if (current != null) {
+				current.cancel();
+			}
+			completion.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Publish the batch if it has waited the maximum delay, or else schedule a
+	 * drain on the executor for when it will have, unless one is scheduled.
+	 */
+	private void flushWhenDue() {
+		long delay = maxDelayNanos - (System.nanoTime() - lastPublished);
+		if (delay <= 0) {
+			publish();
+		} else if (flushScheduled.compareAndSet(false, true)) {
+			// already on the executor, so drain here rather than schedule a drain
+			CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, executor).execute(() -> {
+				flushScheduled.set(false);
+				if (!completion.isDone() && draining.getAndIncrement() == 0) {
+					drainLoop();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Count the words of a chunk into the batch, keeping a word that the chunk
+	 * ends in the middle of in pending.
+	 */
+	private void count(CharSequence chunk) {
+		for (int i = 0; i < chunk.length(); i++) {
+			char c = chunk.charAt(i);
+			if (Character.isWhitespace(c)) {
+				if (pending.length() > 0) {
+					word();
+				}
+			} else {
+				pending.append(c);
+			}
+		}
+	}
+
+	/**
+	 * Count the word in pending, and empty it.
+	 */
+	private void word() {
+		if (poet.windowed()) {
+			windowBatch.add(pending.toString());
+		} else {
+			if (batch == null) {
+				batch = new BigramCounts();
+			}
+			previous = batch.add(previous, pending.toString());
+		}
+		pending.setLength(0);
+		batchSize++;
+		words.incrementAndGet();
+	}
+
+	/**
+	 * Add the batch to the poet's graph as a new version, if it is not empty
+	 * and ingestion has not been stopped; otherwise discard it.
+	 */
+	private void publish() {
+		if (completion.isDone()) {
+			batch = null;
+			windowBatch.clear();
+		} else if (batch != null) {
+			poet.ingest(batch);
+			versions.incrementAndGet();
+			batch = null;
+		} else if (!windowBatch.isEmpty()) {
+			poet.ingestWords(windowBatch);
+			versions.incrementAndGet();
+			windowBatch.clear();
+		}
+		batchSize = 0;
+		lastPublished = System.nanoTime();
+	}
+
+	/**
+	 * Stop ingesting: cancel the subscription, and complete the result
+	 * exceptionally. Words not yet published are discarded, except by a
+	 * version already being published when this is called.
+	 *
+	 * @return true iff ingestion was stopped by this call
+	 */
+	public boolean cancel() {
+		Flow.Subscription current = subscription;
+		if (current != null) {
+			current.cancel();
+		}
+		return completion.completeExceptionally(new CancellationException("ingestion cancelled"));
+	}
+
+	/**
+	 * @return a future that completes with the number of words ingested once
+	 *         the stream has completed and its last words have been published,
+	 *         or exceptionally if the stream fails or is cancelled; words
+	 *         received before a failure are still published
+	 */
+	public CompletableFuture<Long> completion() {
+		return completion.thenApply(count -> count);
+	}
+
+	/**
+	 * @return number of words counted so far, published or not
+	 */
+	public long words() {
+		return words.get();
+	}
+
+	/**
+	 * @return number of versions of the graph published so far
+	 */
+	public long versions() {
+		return versions.get();
+	}
+
+	/**
+	 * @return the largest number of chunks that were waiting to be counted at
+	 *         once; at most the buffer size
+	 */
+	public int maxBuffered() {
+		return maxBuffered;
+	}
+
+	/**
+	 * @return a string in the form "W words, V versions, B of N chunks
+	 *         buffered"
+	 */
+	@Override
+	public String toString() {
+		return words() + " words, " + versions() + " versions, " + chunks.size() + " of " + buffer
+				+ " chunks buffered";
+	}
+
+}
@@ -0,0 +1,203 @@
+package poet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import graph.Graph;
+
+/**
+ * RandomWalker generates free-running text by random walks over a word
+ * affinity graph: each step follows an edge from the current word, chosen with
+ * probability proportional to its weight.
+ *
+ * <p>
+ * Each step samples in O(1) time from a Walker/Vose alias table of the current
+ * word's outgoing edges. Tables are built lazily, the first time a walk visits
+ * a word, and shared by all later walks. Walks are reproducible: the same seed
+ * always generates the same words. RandomWalker is safe for concurrent use, and
+ * {@link #walks(int, int, long)} generates many walks in parallel.
+ */
+public class RandomWalker {
+
+	private final Graph<String> graph;
+	private final Map<String, AliasTable> tables = new ConcurrentHashMap<>();
+	private volatile String[] starts;
+
+	// Abstraction function:
+	// represents the random walks over graph; tables.get(w) is the alias table
+	// of the edges from w, and starts, if not null, lists graph's vertices
+	// Representation invariant:
+	// each table in tables was built from graph.targets() of its key
+	// Safety from rep exposure:
+	// all fields are private; tables and starts are never returned
+	// Thread safety argument:
+	// graph is only read; tables is a thread-safe map of immutable tables;
+	// starts is volatile, and racing threads compute equal arrays
+
+	/**
+	 * Make a walker over a graph.
+	 *
+	 * @param graph affinity graph whose words are lower case; it must not be
+	 *              modified while the walker is in use
+	 */
+	public RandomWalker(Graph<String> graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Generate one random walk.
+	 *
+	 * @param start  first word of the walk, case-insensitive
+	 * @param length maximum number of words in the walk, nonnegative
+	 * @param seed   seed of the walk's random choices
+	 * @return the words of the walk in lower case, starting with start; the
+	 *         walk ends early at a word with no outgoing edges
+	 */
+	public List<String> walk(String start, int length, long seed) {
+		return walk(start.toLowerCase(), length, new SplittableRandom(seed));
+	}
+
+	/**
+	 * Generate many random walks in parallel, each starting at a word chosen
+	 * uniformly at random from the graph.
+	 *
+	 * @param count  number of walks, nonnegative
+	 * @param length maximum number of words in each walk, nonnegative
+	 * @param seed   seed of the walks' random choices; walk i depends only on
+	 *               seed and i
+	 * @return count walks, as by {@link #walk(String, int, long)}; empty walks
+	 *         if the graph has no vertices
+	 */
+	public List<List<String>> walks(int count, int length, long seed) {
+		String[] starts = starts();
+		return IntStream.range(0, count).parallel().mapToObj(i -> {
+			SplittableRandom random = new SplittableRandom(seed + i * 0x9e3779b97f4a7c15L);
+			if (starts.length == 0) {
+				return List.<String>of();
+			}
+			return walk(starts[random.nextInt(starts.length)], length, random);
+		}).collect(Collectors.toList());
+	}
+
+	/**
+	 * @return number of alias tables built so far, i.e. the number of distinct
+	 *         words walks have stepped from
+	 */
+	public int tablesBuilt() {
+		return tables.size();
+	}
+
+	private List<String> walk(String start, int length, SplittableRandom random) {
+		List<String> words = new ArrayList<>(length);
+		String word = start;
+		while (words.size() < length) {
+			words.add(word);
+			if (words.size() == length) {
+				break;
+			}
+			AliasTable table = tables.computeIfAbsent(word, w -> new AliasTable(graph.targets(w)));
+			if (table.targets.length == 0) {
+				break;
+			}
+			word = table.sample(random);
+		}
+		return words;
+	}
+
+	/**
+	 * @return the vertices of the graph, listed once on first use
+	 */
+	private String[] starts() {
+		String[] result = starts;
+		if (result == null) {
+			result = graph.vertices().stream().sorted().toArray(String[]::new);
+			starts = result;
+		}
+		return result;
+	}
+
+	/**
+	 * AliasTable is an immutable Walker/Vose alias table over the weighted edges
+	 * from one word.
+	 */
+	private static final class AliasTable {
+
+		private final String[] targets;
+		private final double[] probability;
+		private final int[] alias;
+
+		// Abstraction function:
+		// represents the distribution that picks column i uniformly, then
+		// targets[i] with probability probability[i] and targets[alias[i]]
+		// otherwise
+		// Representation invariant:
+		// targets, probability and alias have the same length
+		// 0 <= probability[i] <= 1, and 0 <= alias[i] < targets.length
+
+		/**
+		 * Build an alias table in O(n) time by Vose's method.
+		 *
+		 * @param edges targets and positive weights of the edges from a word
+		 */
+		private AliasTable(Map<String, Integer> edges) {
+			int n = edges.size();
+			targets = new String[n];
+			probability = new double[n];
+			alias = new int[n];
+			double[] scaled = new double[n];
+			long total = 0;
+			int i = 0;
+			for (Map.Entry<String, Integer> edge : edges.entrySet()) {
+				targets[i] = edge.getKey();
+				scaled[i] = edge.getValue();
+				total += edge.getValue();
+				i++;
+			}
+			// columns below and above the average weight, as stacks
+			int[] small = new int[n];
+			int[] large = new int[n];
+			int smalls = 0, larges = 0;
+			for (i = 0; i < n; i++) {
+				scaled[i] = scaled[i] * n / total;
+				if (scaled[i] < 1) {
+					small[smalls++] = i;
+				} else {
+					large[larges++] = i;
+				}
+			}
+			while (smalls > 0 && larges > 0) {
+				int less = small[--smalls];
+				int more = large[--larges];
+				probability[less] = scaled[less];
+				alias[less] = more;
+				scaled[more] = scaled[more] + scaled[less] - 1;
+				if (scaled[more] < 1) {
+					small[smalls++] = more;
+				} else {
+					large[larges++] = more;
+				}
+			}
+			// the rest are full columns, up to rounding error
+			while (larges > 0) {
+				probability[large[--larges]] = 1;
+			}
+			while (smalls > 0) {
+				probability[small[--smalls]] = 1;
+			}
+		}
+
+		/**
+		 * Sample a target in O(1) time, without allocating.
+		 */
+		private String sample(SplittableRandom random) {
+			int column = random.nextInt(targets.length);
+			return random.nextDouble() < probability[column] ? targets[column] : targets[alias[column]];
+		}
+	}
+
+}
@@ -0,0 +1,212 @@
+package poet;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import graph.Graph;
+
+/**
+ * SlidingWindow is the mutable state of an affinity graph that holds only the
+ * adjacencies of the most recent words of an endless stream of text.
+ *
+ * <p>
+ * The window is a ring of buckets, each the bigram counts of a run of
+ * consecutive words. Words are counted into the newest bucket; once it holds
+ * {@link #bucketWords()} words, the oldest bucket is subtracted from the graph,
+ * words left with no adjacencies in the graph and no occurrence in the window
+ * are removed from it, and its slot becomes the newest bucket. The number of
+ * buckets each word occurs in is kept, so that whether an evicted word still
+ * occurs in the window is one lookup. Every adjacency is thus added to the
+ * graph once and subtracted once, in amortized O(1) time per word, and the
+ * graph never holds more than the
+ * adjacencies of the words in the ring, so its size stays bounded however long
+ * the stream is.
+ *
+ * <p>
+ * The graph holds the adjacencies of at least the last {@code window} words
+ * counted, and of fewer than {@code (buckets + 1) * bucketWords()} words; an
+ * adjacency belongs to the bucket of its second word.
+ */
+class SlidingWindow {
+
+	private final int bucketWords;
+	private final BigramCounts[] buckets;
+	private final Map<String, Integer> occurrences = new HashMap<>();
+	private int newest;
+	private int newestWords;
+	private long words;
+	private BigramCounts pending = new BigramCounts();
+	private String previous;
+
+	// Abstraction function:
+	// represents a window over a stream of words, of which the last words
+	// were counted into buckets[newest] (newestWords of them), the ones before
+	// into buckets[newest - 1], and so on around the ring, bucketWords words per
+	// bucket; the slots not yet used are null; occurrences maps each word in
+	// the buckets to the number of buckets it occurs in; pending holds the
+	// counts of the newest words that are not yet in the graph; previous is
+	// the last word counted, adjacent to the next one, or null if there is
+	// none
+	// Representation invariant:
+	// bucketWords > 0, buckets.length >= 2
+	// 0 <= newest < buckets.length, buckets[newest] != null
+	// 0 <= newestWords < bucketWords
+	// occurrences.get(w) is the number of non-null buckets b with
+	// b.contains(w), and is positive
+	// the graph the window is used with holds the counts of all buckets,
+	// minus pending
+	// Safety from rep exposure:
+	// all fields are private, and buckets are never returned
+	// Thread safety argument:
+	// not threadsafe; GraphPoet only uses it while updating its graph, which
+	// VersionedGraph serializes
+
+	/**
+	 * Make an empty window.
+	 *
+	 * @param window  minimum number of recent words whose adjacencies are kept,
+	 *                positive
+	 * @param buckets number of buckets the window is divided into, positive;
+	 *                more buckets evict more often and overshoot the window by
+	 *                less
+	 * @throws IllegalArgumentException if window or buckets is not positive
+	 */
+	SlidingWindow(int window, int buckets) {
+		if (window <= 0 || buckets <= 0) {
+			throw new IllegalArgumentException("window and buckets must be positive");
+		}
+		this.bucketWords = (window + buckets - 1) / buckets;
+		this.buckets = new BigramCounts[buckets + 1];
+		this.buckets[newest] = new BigramCounts();
+		checkRep();
+	}
+
+	/**
+	 * Check the rep invariant.
+	 */
+	private void checkRep() {
+		assert bucketWords > 0 && buckets.length >= 2;
+		assert 0 <= newest && newest < buckets.length && buckets[newest] != null;
+		assert 0 <= newestWords && newestWords < bucketWords;
+	}
+
+	/**
+	 * Count the words read by a scanner, as a corpus whose first word is not
+	 * adjacent to any word counted before, and bring a graph up to date.
+	 *
+	 * @param scanner scanner over a corpus
+	 * @param graph   graph holding the counts of this window
+	 */
+	public void add(Scanner scanner, Graph<String> graph) {
+		previous = null;
+		while (scanner.hasNext()) {
+			add(scanner.next(), graph);
+		}
+		flush(graph);
+	}
+
+	/**
+	 * Count words that continue the stream counted so far, and bring a graph
+	 * up to date.
+	 *
+	 * @param words words in order, in any case
+	 * @param graph graph holding the counts of this window
+	 */
+	public void addAll(List<String> words, Graph<String> graph) {
+		for (String word : words) {
+			add(word, graph);
+		}
+		flush(graph);
+	}
+
+	/**
+	 * Count one word, evicting the oldest bucket if the newest is then full.
+	 */
+	private void add(String word, Graph<String> graph) {
+		String last = previous;
+		String current = word.toLowerCase();
+		BigramCounts bucket = buckets[newest];
+		// both words of the adjacency are counted in the bucket
+		if (last != null && !bucket.contains(last)) {
+			occurrences.merge(last, 1, Integer::sum);
+		}
+		if (!current.equals(last) && !bucket.contains(current)) {
+			occurrences.merge(current, 1, Integer::sum);
+		}
+		previous = bucket.add(last, current);
+		pending.add(last, previous);
+		words++;
+		if (++newestWords == bucketWords) {
+			flush(graph);
+			newest = (newest + 1) % buckets.length;
+			BigramCounts evicted = buckets[newest];
+			buckets[newest] = new BigramCounts();
+			newestWords = 0;
+			if (evicted != null) {
+				for (String evictedWord : evicted.wordSet()) {
+					occurrences.computeIfPresent(evictedWord, (w, count) -> count == 1 ? null : count - 1);
+				}
+				evicted.subtractFrom(graph, this::contains);
+			}
+		}
+		checkRep();
+	}
+
+	/**
+	 * Add the counts not yet in a graph to it.
+	 */
+	private void flush(Graph<String> graph) {
+		if (pending.words() > 0) {
+			pending.addTo(graph);
+			pending = new BigramCounts();
+		}
+	}
+
+	/**
+	 * @param word word in lower case
+	 * @return true iff word occurs in a bucket of the window
+	 */
+	private boolean contains(String word) {
+		return occurrences.containsKey(word);
+	}
+
+	/**
+	 * @return number of distinct words in the buckets of the window; for
+	 *         testing
+	 */
+	int distinctWords() {
+		return occurrences.size();
+	}
+
+	/**
+	 * @return number of words per bucket
+	 */
+	public int bucketWords() {
+		return bucketWords;
+	}
+
+	/**
+	 * @return number of words whose adjacencies are in the window
+	 */
+	public long words() {
+		long full = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			if (i != newest && buckets[i] != null) {
+				full += bucketWords;
+			}
+		}
+		return full + newestWords;
+	}
+
+	/**
+	 * @return a string in the form "window of W of T words, B buckets of N
+	 *         words"
+	 */
+	@Override
+	public String toString() {
+		return "window of " + words() + " of " + words + " words, " + (buckets.length - 1) + " buckets of "
+				+ bucketWords + " words";
+	}
+}
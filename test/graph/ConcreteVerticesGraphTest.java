@@ -130,4 +130,4 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
                 "(source -> source, 2)\n(source -> target, 1)", vertex.toString());
     }
 
-}
\ No newline at end of file
+}
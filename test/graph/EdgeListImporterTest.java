@@ -0,0 +1,159 @@
+package graph;
+
+import static org.junit.Assert.*;
+import static graph.TestGraphs.assertSameGraph;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for EdgeListImporter.
+ */
+public class EdgeListImporterTest {
+
+    // Testing strategy
+    //   read
+    //     file: empty, one line without newline, many lines; missing
+    //     lines: empty, vertex, edge, CRLF, escaped labels, non-ASCII labels,
+    //       same edge twice; malformed edge, malformed, overflowing and
+    //       nonpositive weights; lines before a malformed line added, in the
+    //       same chunk or earlier ones
+    //     chunks: 1, many; lines longer than a chunk
+    //     workers: 1, >1, nonpositive
+    //     graph: PersistentGraph, ConcreteVerticesGraph, ConcreteEdgesGraph;
+    //       already holding edges
+    //   large random edge list compared to EdgeList.read
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static Path file(String text) throws IOException {
+        Path file = Files.createTempFile("edges", ".tsv");
+        file.toFile().deleteOnExit();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static Graph<String> expected(String text) throws IOException {
+        Graph<String> graph = new PersistentGraph();
+        EdgeList.read(new StringReader(text), graph);
+        return graph;
+    }
+
+    @Test
+    public void testReadEmpty() throws IOException {
+        Graph<String> graph = new PersistentGraph();
+        EdgeListImporter.read(file(""), graph, 2);
+        assertEquals("expected no vertices", Set.of(), graph.vertices());
+    }
+
+    @Test
+    public void testReadOneLineNoNewline() throws IOException {
+        Graph<String> graph = new ConcreteVerticesGraph();
+        EdgeListImporter.read(file("a\tb\t3"), graph, 1);
+        assertEquals("expected edge", Map.of("b", 3), graph.targets("a"));
+    }
+
+    @Test
+    public void testReadLines() throws IOException {
+        String text = "a\tb\t3\r\n\nlonely\n\u00e9t\u00e9\tb\t+2\ntab\\there\tnew\\nline\t1\n"
+                + "a\tb\t7\n\\\\\r\n";
+        for (int chunk : new int[] { 1, 3, 7, 1 << 20 }) {
+            for (int workers : new int[] { 1, 3 }) {
+                Graph<String> graph = new ConcreteEdgesGraph();
+                EdgeListImporter.read(file(text), graph, workers, chunk);
+                assertSameGraph("chunks of " + chunk, expected(text), graph);
+            }
+        }
+        Graph<String> graph = new PersistentGraph();
+        EdgeListImporter.read(file(text), graph, 2, 5);
+        assertEquals("expected later line to win", (Integer) 7, graph.targets("a").get("b"));
+        assertEquals("expected unescaped", Map.of("new\nline", 1), graph.targets("tab\there"));
+        assertTrue("expected vertex", graph.vertices().containsAll(Set.of("lonely", "\\")));
+    }
+
+    @Test
+    public void testReadOverwrites() throws IOException {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("a", "b", 10);
+        graph.set("a", "c", 1);
+        EdgeListImporter.read(file("a\tb\t2\n"), graph, 1);
+        assertEquals("expected overwritten", Map.of("b", 2, "c", 1), graph.targets("a"));
+    }
+
+    @Test
+    public void testReadMalformed() throws IOException {
+        for (String line : new String[] { "a\tb", "a\tb\t", "a\tb\tx", "a\tb\t1\t2", "a\tb\t-3", "a\tb\t0",
+                "a\tb\t2147483648", "a\tb\t99999999999", "a\tb\t+" }) {
+            try {
+                EdgeListImporter.read(file("x\ty\t1\n" + line + "\n"), new PersistentGraph(), 2, 4);
+                fail("expected malformed line: " + line);
+            }
+            catch (IllegalArgumentException e) {
+                assertTrue("expected line in message: " + e.getMessage(), e.getMessage().endsWith(line));
+            }
+        }
+        for (int chunk : new int[] { 4, 1 << 20 }) {
+            Graph<String> partial = new PersistentGraph();
+            try {
+                EdgeListImporter.read(file("x\ty\t1\na\tb\t2\na\tc\n\nc\td\t1\n"), partial, 2, chunk);
+                fail("expected malformed line");
+            }
+            catch (IllegalArgumentException e) {
+                assertEquals("expected lines before it, chunks of " + chunk, Set.of("x", "y", "a", "b"),
+                        partial.vertices());
+                assertEquals("expected edge before it", Map.of("b", 2), partial.targets("a"));
+            }
+        }
+        Graph<String> graph = new PersistentGraph();
+        EdgeListImporter.read(file("a\tb\t2147483647\n"), graph, 1);
+        assertEquals("expected largest weight", Map.of("b", Integer.MAX_VALUE), graph.targets("a"));
+    }
+
+    @Test(expected=NoSuchFileException.class)
+    public void testReadMissing() throws IOException {
+        EdgeListImporter.read(Path.of("test/graph/xyz.tsv"), new PersistentGraph(), 2);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testReadNoWorkers() throws IOException {
+        EdgeListImporter.read(file("a\tb\t1\n"), new PersistentGraph(), 0);
+    }
+
+    @Test
+    public void testReadLargeParallel() throws IOException {
+        Random random = new Random(6005);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            // skewed targets, as in natural text, and some escaped labels
+            text.append('w').append(random.nextInt(5000)).append(i % 1000 == 0 ? "\\t" : "").append('\t')
+                    .append('w').append((int) Math.pow(5000, random.nextDouble())).append('\t')
+                    .append(1 + random.nextInt(100000)).append(i % 3 == 0 ? "\r\n" : "\n");
+            if (i % 10000 == 0) {
+                text.append("v").append(i).append('\n');
+            }
+        }
+        Path edgeList = file(text.toString());
+
+        Graph<String> sequential = new PersistentGraph();
+        try (var in = Files.newBufferedReader(edgeList, StandardCharsets.UTF_8)) {
+            EdgeList.read(in, sequential);
+        }
+        Graph<String> parallel = new PersistentGraph();
+        EdgeListImporter.read(edgeList, parallel, 4, 1 << 16);
+
+        assertEquals("expected same fingerprint", Fingerprint.of(sequential), Fingerprint.of(parallel));
+        assertSameGraph("expected same graph", sequential, parallel);
+    }
+}
@@ -0,0 +1,96 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for EdgeList.
+ */
+public class EdgeListTest {
+
+    // Testing strategy
+    //   write then read
+    //     edges: 0, 1, >1; vertices without edges: 0, >0
+    //     labels contain escaped characters or don't
+    //   read
+    //     lines: empty, vertex, edge, malformed
+    //   escape, unescape
+    //     escapes: none, each kind, invalid, dangling
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEdgeListRoundTripEmpty() throws IOException {
+        StringWriter out = new StringWriter();
+        EdgeList.write(Graph.empty(), out);
+        assertEquals("expected empty edge list", "", out.toString());
+        Graph<String> graph = Graph.empty();
+        EdgeList.read(new StringReader(out.toString()), graph);
+        assertEquals("expected no vertices", Collections.emptySet(), graph.vertices());
+    }
+
+    @Test
+    public void testEdgeListRoundTrip() throws IOException {
+        Graph<String> original = Graph.empty();
+        original.set("a", "b", 3);
+        original.set("b", "a\tc", 1);
+        original.set("back\\slash", "new\nline", 7);
+        original.add("alone");
+        StringWriter out = new StringWriter();
+        EdgeList.write(original, out);
+        Graph<String> graph = new ConcreteEdgesGraph();
+        EdgeList.read(new StringReader(out.toString()), graph);
+        assertEquals("expected vertices",
+                Set.of("a", "b", "a\tc", "back\\slash", "new\nline", "alone"), graph.vertices());
+        assertEquals("expected edges from a", Map.of("b", 3), graph.targets("a"));
+        assertEquals("expected edges from b", Map.of("a\tc", 1), graph.targets("b"));
+        assertEquals("expected edges from back\\slash", Map.of("new\nline", 7), graph.targets("back\\slash"));
+    }
+
+    @Test
+    public void testEdgeListReadSkipsEmptyLines() throws IOException {
+        Graph<String> graph = Graph.empty();
+        EdgeList.read(new StringReader("\nx\ty\t2\n\nz\n"), graph);
+        assertEquals("expected vertices", Set.of("x", "y", "z"), graph.vertices());
+        assertEquals("expected edge", Map.of("y", 2), graph.targets("x"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testEdgeListReadMissingWeight() throws IOException {
+        EdgeList.read(new StringReader("x\ty\n"), Graph.empty());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testEdgeListReadZeroWeight() throws IOException {
+        EdgeList.read(new StringReader("x\ty\t0\n"), Graph.empty());
+    }
+
+    @Test
+    public void testEscapeUnescape() {
+        assertEquals("expected unchanged label", "plain", EdgeList.escape("plain"));
+        assertEquals("expected escapes", "a\\\\b\\tc\\nd\\r", EdgeList.escape("a\\b\tc\nd\r"));
+        assertEquals("expected unescaped label", "a\\b\tc\nd\r", EdgeList.unescape("a\\\\b\\tc\\nd\\r"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testUnescapeInvalid() {
+        EdgeList.unescape("a\\x");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testUnescapeDangling() {
+        EdgeList.unescape("a\\");
+    }
+
+}
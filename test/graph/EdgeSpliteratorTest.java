@@ -0,0 +1,149 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * Tests for EdgeSpliterator and the edgeSpliterator() methods of the graph
+ * implementations.
+ */
+public class EdgeSpliteratorTest {
+
+    // Testing strategy
+    //   graph: PersistentGraph, ConcreteVerticesGraph, ConcreteEdgesGraph,
+    //     another Graph implementation
+    //     empty, vertices without edges, skewed degrees
+    //   stream: sequential, parallel
+    //   tryAdvance, forEachRemaining, estimateSize before and after splitting
+    //     and partial iteration
+    //   trySplit: splits by edges rather than vertices; after partial
+    //     iteration; too few groups
+    //   PersistentGraph: spliterator unaffected by later mutation
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * Fill a graph with one hub vertex with edges to 100 words, and 100
+     * vertices with one edge each.
+     */
+    private static Set<WeightedEdge> skewed(Graph<String> graph) {
+        Set<WeightedEdge> edges = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            edges.add(new WeightedEdge("hub", "w" + i, i + 1));
+            edges.add(new WeightedEdge("v" + i, "hub", 1));
+        }
+        for (WeightedEdge edge : edges) {
+            graph.set(edge.getSource(), edge.getTarget(), edge.getWeight());
+        }
+        graph.add("lonely");
+        return edges;
+    }
+
+    @Test
+    public void testStreamEmpty() {
+        for (Supplier<Graph<String>> empty : TestGraphs.EMPTIES) {
+            Graph<String> graph = empty.get();
+            assertEquals("expected no edges", 0, EdgeSpliterator.stream(graph, false).count());
+            graph.add("a");
+            assertEquals("expected no edges", 0, EdgeSpliterator.stream(graph, true).count());
+            assertEquals("expected size 0", 0, EdgeSpliterator.of(graph).estimateSize());
+        }
+    }
+
+    @Test
+    public void testStreamEdges() {
+        for (Supplier<Graph<String>> empty : TestGraphs.EMPTIES) {
+            Graph<String> graph = empty.get();
+            Set<WeightedEdge> edges = skewed(graph);
+            assertEquals("expected all edges sequentially",
+                    edges, EdgeSpliterator.stream(graph, false).collect(Collectors.toSet()));
+            assertEquals("expected each edge once in parallel",
+                    edges.size(), EdgeSpliterator.stream(graph, true).count());
+            assertEquals("expected all edges in parallel",
+                    edges, EdgeSpliterator.stream(graph, true).collect(Collectors.toSet()));
+            assertEquals("expected summed weights",
+                    100 * 101 / 2 + 100, EdgeSpliterator.stream(graph, true).mapToInt(WeightedEdge::getWeight).sum());
+            Spliterator<WeightedEdge> edgeSpliterator = EdgeSpliterator.of(graph);
+            assertEquals("expected exact size", edges.size(), edgeSpliterator.estimateSize());
+            assertTrue("expected sized", edgeSpliterator.hasCharacteristics(Spliterator.SIZED));
+        }
+    }
+
+    @Test
+    public void testTrySplitByEdges() {
+        ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+        skewed(graph);
+        String[] sources = new String[101];
+        Map<String, Integer>[] targets = EdgeSpliterator.newTargets(101);
+        sources[0] = "hub";
+        targets[0] = graph.targets("hub");
+        for (int i = 0; i < 100; i++) {
+            sources[i + 1] = "v" + i;
+            targets[i + 1] = graph.targets("v" + i);
+        }
+        Spliterator<WeightedEdge> suffix = new EdgeSpliterator(sources, targets, 0);
+        Spliterator<WeightedEdge> prefix = suffix.trySplit();
+        // the hub holds half the edges, so a split by vertices would be 150:50
+        assertEquals("expected hub split off", 100, prefix.estimateSize());
+        assertEquals("expected rest", 100, suffix.estimateSize());
+    }
+
+    @Test
+    public void testTrySplitPartial() {
+        PersistentGraph graph = new PersistentGraph();
+        Set<WeightedEdge> edges = skewed(graph);
+        Spliterator<WeightedEdge> suffix = graph.edgeSpliterator();
+        assertTrue("expected immutable", suffix.hasCharacteristics(Spliterator.IMMUTABLE));
+        Spliterator<WeightedEdge> prefix = suffix.trySplit();
+        assertNotNull("expected split", prefix);
+        assertEquals("expected sizes to add up", edges.size(), prefix.estimateSize() + suffix.estimateSize());
+
+        List<WeightedEdge> seen = new ArrayList<>();
+        assertTrue("expected an edge", suffix.tryAdvance(seen::add));
+        long before = suffix.estimateSize();
+        assertEquals("expected size to count down", prefix.estimateSize() + before + 1, edges.size());
+        Spliterator<WeightedEdge> middle = suffix.trySplit();
+        if (middle != null) {
+            assertEquals("expected sizes to add up after advancing",
+                    before, middle.estimateSize() + suffix.estimateSize());
+            middle.forEachRemaining(seen::add);
+        }
+        suffix.forEachRemaining(seen::add);
+        prefix.forEachRemaining(seen::add);
+        assertEquals("expected size 0 when done", 0, suffix.estimateSize());
+        assertEquals("expected each edge once", edges.size(), seen.size());
+        assertEquals("expected all edges", edges, new HashSet<>(seen));
+    }
+
+    @Test
+    public void testTrySplitOneGroup() {
+        PersistentGraph graph = new PersistentGraph();
+        graph.set("a", "a", 1);
+        assertNull("expected no split", graph.edgeSpliterator().trySplit());
+    }
+
+    @Test
+    public void testPersistentGraphSnapshot() {
+        PersistentGraph graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        Spliterator<WeightedEdge> edges = graph.edgeSpliterator();
+        graph.set("a", "b", 0);
+        graph.set("b", "c", 2);
+        List<WeightedEdge> seen = new ArrayList<>();
+        edges.forEachRemaining(seen::add);
+        assertEquals("expected edges at time of call", List.of(new WeightedEdge("a", "b", 1)), seen);
+    }
+}
@@ -0,0 +1,170 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * Tests for Fingerprint and the fingerprint() methods of the graph
+ * implementations.
+ */
+public class FingerprintTest {
+
+    // Testing strategy
+    //   graph: PersistentGraph, ConcreteVerticesGraph, ConcreteEdgesGraph,
+    //     another Graph implementation
+    //     empty, vertices without edges, self loops
+    //   of: equals compute after add, set (new edge, new weight, weight 0,
+    //     missing edge), remove (source, target, self loop, missing vertex),
+    //     removeAll; random sequences of mutations
+    //   equal graphs built in different orders and implementations have equal
+    //     fingerprints; graphs differing in a vertex, an edge's direction or
+    //     weight have different fingerprints
+    //   PersistentGraph: snapshot keeps its fingerprint after the graph changes
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static void assertUpToDate(Graph<String> graph) {
+        assertEquals("expected fingerprint of " + graph.getClass().getSimpleName() + " up to date",
+                Fingerprint.compute(graph), Fingerprint.of(graph));
+    }
+
+    @Test
+    public void testEmpty() {
+        for (Supplier<Graph<String>> empty : TestGraphs.EMPTIES) {
+            Graph<String> graph = empty.get();
+            assertEquals("expected 0 for empty graph", 0, Fingerprint.of(graph));
+            graph.add("a");
+            assertNotEquals("expected vertex to count", 0, Fingerprint.of(graph));
+            assertUpToDate(graph);
+        }
+    }
+
+    @Test
+    public void testMutations() {
+        for (Supplier<Graph<String>> empty : TestGraphs.EMPTIES) {
+            Graph<String> graph = empty.get();
+            long none = Fingerprint.of(graph);
+            graph.set("a", "b", 1);
+            assertUpToDate(graph);
+            long ab1 = Fingerprint.of(graph);
+            graph.set("a", "b", 2);
+            assertUpToDate(graph);
+            assertNotEquals("expected weight to count", ab1, Fingerprint.of(graph));
+            graph.set("a", "b", 1);
+            assertEquals("expected same fingerprint for same graph", ab1, Fingerprint.of(graph));
+            graph.set("b", "a", 0);
+            assertEquals("expected missing edge to change nothing", ab1, Fingerprint.of(graph));
+            graph.set("a", "a", 3);
+            graph.set("c", "a", 1);
+            graph.add("lonely");
+            assertUpToDate(graph);
+            graph.set("a", "b", 0);
+            assertUpToDate(graph);
+            assertFalse("expected missing vertex", graph.remove("x"));
+            graph.remove("a");
+            assertUpToDate(graph);
+            graph.remove("b");
+            graph.remove("c");
+            graph.remove("lonely");
+            assertEquals("expected fingerprint of empty graph", none, Fingerprint.of(graph));
+        }
+    }
+
+    @Test
+    public void testRemoveAll() {
+        for (Supplier<Graph<String>> empty : TestGraphs.EMPTIES) {
+            Graph<String> graph = empty.get();
+            graph.set("a", "b", 1);
+            graph.set("b", "b", 2);
+            graph.set("c", "a", 3);
+            graph.set("c", "d", 4);
+            GraphPruner.removeAll(graph, Set.of("a", "b", "x"));
+            assertUpToDate(graph);
+            Graph<String> expected = empty.get();
+            expected.set("c", "d", 4);
+            assertEquals("expected fingerprint of remaining graph", Fingerprint.of(expected), Fingerprint.of(graph));
+        }
+    }
+
+    @Test
+    public void testOrderAndImplementationIndependent() {
+        List<WeightedEdge> edges = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            edges.add(new WeightedEdge("w" + i % 7, "w" + i % 11, i + 1));
+        }
+        Set<Long> fingerprints = new HashSet<>();
+        Random random = new Random(6005);
+        for (Supplier<Graph<String>> empty : TestGraphs.EMPTIES) {
+            Collections.shuffle(edges, random);
+            Graph<String> graph = empty.get();
+            for (WeightedEdge edge : edges) {
+                graph.set(edge.getSource(), edge.getTarget(), edge.getWeight());
+            }
+            fingerprints.add(Fingerprint.of(graph));
+        }
+        assertEquals("expected one fingerprint", 1, fingerprints.size());
+    }
+
+    @Test
+    public void testDifferentGraphs() {
+        Graph<String> ab = new PersistentGraph();
+        ab.set("a", "b", 1);
+        Graph<String> ba = new PersistentGraph();
+        ba.set("b", "a", 1);
+        Graph<String> ab2 = new PersistentGraph();
+        ab2.set("a", "b", 2);
+        Graph<String> abc = new PersistentGraph();
+        abc.set("a", "b", 1);
+        abc.add("c");
+        Set<Long> fingerprints = Set.of(Fingerprint.of(ab), Fingerprint.of(ba), Fingerprint.of(ab2),
+                Fingerprint.of(abc));
+        assertEquals("expected different fingerprints", 4, fingerprints.size());
+    }
+
+    @Test
+    public void testRandomMutations() {
+        Random random = new Random(6005);
+        for (Supplier<Graph<String>> empty : TestGraphs.EMPTIES) {
+            Graph<String> graph = empty.get();
+            for (int i = 0; i < 2000; i++) {
+                String source = "w" + random.nextInt(30);
+                String target = "w" + random.nextInt(30);
+                int choice = random.nextInt(10);
+                if (choice == 0) {
+                    graph.remove(source);
+                }
+                else if (choice == 1) {
+                    graph.add(source);
+                }
+                else {
+                    graph.set(source, target, random.nextInt(4));
+                }
+            }
+            assertUpToDate(graph);
+        }
+    }
+
+    @Test
+    public void testSnapshot() {
+        PersistentGraph graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        PersistentGraph snapshot = graph.snapshot();
+        long before = graph.fingerprint();
+        graph.set("a", "c", 1);
+        assertEquals("expected snapshot unaffected", before, snapshot.fingerprint());
+        assertNotEquals("expected graph changed", before, graph.fingerprint());
+        assertEquals("expected copy to match", graph.fingerprint(), PersistentGraph.copyOf(graph).fingerprint());
+    }
+}
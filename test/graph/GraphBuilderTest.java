@@ -0,0 +1,84 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphBuilder.
+ */
+public class GraphBuilderTest {
+
+    // Testing strategy
+    //   expectedVertices: 0, positive, negative
+    //   build: no hints, small, SMALL_VERTICES, larger; snapshots or not;
+    //     filled past the hints; skewed degrees
+    //   hashCapacity: 0, 1, 12, 13, large; holds entries without rehashing
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testHints() {
+        GraphBuilder builder = new GraphBuilder();
+        assertEquals("expected no vertices", 0, builder.expectedVertices());
+        assertSame("expected fluent", builder, builder.expectedVertices(10));
+        assertEquals("expected vertices", 10, builder.expectedVertices());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testExpectedVerticesNegative() {
+        new GraphBuilder().expectedVertices(-1);
+    }
+
+    @Test
+    public void testBuildChoosesImplementation() {
+        assertTrue("expected small graph", new GraphBuilder().build() instanceof ConcreteVerticesGraph);
+        assertTrue("expected small graph", new GraphBuilder().expectedVertices(GraphBuilder.SMALL_VERTICES)
+                .build() instanceof ConcreteVerticesGraph);
+        assertTrue("expected persistent graph", new GraphBuilder().expectedVertices(GraphBuilder.SMALL_VERTICES + 1)
+                .build() instanceof PersistentGraph);
+        assertTrue("expected persistent graph for snapshots", new GraphBuilder().expectedVertices(2)
+                .snapshots(true).build() instanceof PersistentGraph);
+    }
+
+    @Test
+    public void testBuildSkewedDegrees() {
+        // one hub holds most edges, so no one size would suit every vertex
+        ConcreteVerticesGraph graph = (ConcreteVerticesGraph) new GraphBuilder()
+                .expectedVertices(GraphBuilder.SMALL_VERTICES).build();
+        for (int i = 1; i < GraphBuilder.SMALL_VERTICES; i++) {
+            graph.set("hub", "v" + i, 1);
+            graph.set("v" + i, "hub", 1);
+        }
+        long edges = 2 * (GraphBuilder.SMALL_VERTICES - 1);
+        assertTrue("expected targets sized by degree, " + graph.targetsCapacity() + " for " + edges + " edges",
+                graph.targetsCapacity() <= 2 * edges);
+    }
+
+    @Test
+    public void testBuildPastHints() {
+        Graph<String> graph = new GraphBuilder().expectedVertices(2).build();
+        for (int i = 0; i < 100; i++) {
+            graph.set("a", "b" + i, i + 1);
+        }
+        assertEquals("expected all vertices", 101, graph.vertices().size());
+        assertEquals("expected all edges", 100, graph.targets("a").size());
+        assertEquals("expected weight", (Integer) 100, graph.targets("a").get("b99"));
+        assertEquals("expected sources", Map.of("a", 1), graph.sources("b0"));
+    }
+
+    @Test
+    public void testHashCapacity() {
+        for (long entries : new long[] { 0, 1, 12, 13, 100, 1 << 20 }) {
+            int capacity = GraphBuilder.hashCapacity(entries);
+            int table = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+            assertTrue("expected no rehash for " + entries, entries <= table * 3 / 4);
+        }
+        assertEquals("expected maximum capacity", 1 << 30, GraphBuilder.hashCapacity(Long.MAX_VALUE / 8));
+    }
+}
@@ -0,0 +1,138 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphExporter.
+ */
+public class GraphExporterTest {
+
+    // Testing strategy
+    //   graph: PersistentGraph, ConcreteVerticesGraph, ConcreteEdgesGraph
+    //     empty, vertices without edges, self loops, labels needing escapes
+    //   format: TEXT, EDGE_LIST, DOT, JSON
+    //   output: Writer (buffered, unbuffered), OutputStream; non-ASCII labels
+    //   toText: equals toString(); one vertex's edges
+    //   large graph written in each format
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static String write(Graph<String> graph, GraphExporter.Format format) throws IOException {
+        StringWriter out = new StringWriter();
+        GraphExporter.write(graph, format, out);
+        return out.toString();
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        for (Supplier<Graph<String>> empty : TestGraphs.EMPTIES) {
+            Graph<String> graph = empty.get();
+            assertEquals("expected empty text", "", GraphExporter.toText(graph));
+            assertEquals("expected empty edge list", "", write(graph, GraphExporter.Format.EDGE_LIST));
+            assertEquals("expected empty digraph", "digraph {\n}\n", write(graph, GraphExporter.Format.DOT));
+            assertEquals("expected empty JSON", "{\"vertices\": [],\n\"edges\": []}\n",
+                    write(graph, GraphExporter.Format.JSON));
+        }
+    }
+
+    @Test
+    public void testTextIsToString() throws IOException {
+        for (Supplier<Graph<String>> empty : TestGraphs.EMPTIES) {
+            Graph<String> graph = empty.get();
+            graph.set("a", "b", 1);
+            graph.set("b", "b", 2);
+            graph.set("c", "a", 3);
+            graph.add("lonely");
+            assertEquals("expected toString", graph.toString(), GraphExporter.toText(graph));
+            assertEquals("expected toString", graph.toString(), write(graph, GraphExporter.Format.TEXT));
+            assertEquals("expected one line per edge", 3, graph.toString().split("\n").length);
+        }
+        assertEquals("expected vertex's edges", "(a -> b, 1)",
+                GraphExporter.toText("a", Map.of("b", 1)));
+    }
+
+    @Test
+    public void testEdgeListRoundTrip() throws IOException {
+        for (Supplier<Graph<String>> empty : TestGraphs.EMPTIES) {
+            Graph<String> graph = empty.get();
+            graph.set("a", "b\tc", 1);
+            graph.set("b", "b", 2);
+            graph.add("lonely");
+            Graph<String> read = new PersistentGraph();
+            EdgeList.read(new StringReader(write(graph, GraphExporter.Format.EDGE_LIST)), read);
+            assertEquals("expected same vertices", graph.vertices(), read.vertices());
+            for (String vertex : graph.vertices()) {
+                assertEquals("expected same targets", graph.targets(vertex), read.targets(vertex));
+            }
+        }
+    }
+
+    @Test
+    public void testDot() throws IOException {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        graph.set("say \"hi\"", "back\\slash", 3);
+        graph.set("back\\slash", "back\\slash", 1);
+        graph.add("new\nline");
+        assertEquals("expected digraph",
+                "digraph {\n"
+                + "  \"say \\\"hi\\\"\" -> \"back\\\\slash\" [weight=3, label=3];\n"
+                + "  \"back\\\\slash\" -> \"back\\\\slash\" [weight=1, label=1];\n"
+                + "  \"new\\nline\";\n"
+                + "}\n",
+                write(graph, GraphExporter.Format.DOT));
+    }
+
+    @Test
+    public void testJson() throws IOException {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        graph.set("a", "b\u0001", 3);
+        graph.set("b\u0001", "a", 1);
+        String json = write(graph, GraphExporter.Format.JSON);
+        assertTrue("expected vertices: " + json, json.startsWith("{\"vertices\": [\"")
+                && json.contains("\"a\"") && json.contains("\"b\\u0001\""));
+        assertTrue("expected edges: " + json, json.endsWith("\"edges\": [\n"
+                + "{\"source\": \"a\", \"target\": \"b\\u0001\", \"weight\": 3},\n"
+                + "{\"source\": \"b\\u0001\", \"target\": \"a\", \"weight\": 1}]}\n"));
+    }
+
+    @Test
+    public void testOutputStreamAndUnbufferedWriter() throws IOException {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("caf\u00e9", "na\u00efve", 2);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GraphExporter.write(graph, GraphExporter.Format.TEXT, bytes);
+        assertEquals("expected UTF-8 text, flushed", "(caf\u00e9 -> na\u00efve, 2)", bytes.toString(StandardCharsets.UTF_8));
+        CharArrayWriter chars = new CharArrayWriter();
+        GraphExporter.write(graph, GraphExporter.Format.EDGE_LIST, chars);
+        assertEquals("expected edge list, flushed", "caf\u00e9\tna\u00efve\t2\nna\u00efve\n", chars.toString());
+    }
+
+    @Test
+    public void testLargeGraph() throws IOException {
+        Random random = new Random(6005);
+        Graph<String> graph = new PersistentGraph();
+        for (int i = 0; i < 100_000; i++) {
+            graph.set("w" + random.nextInt(20_000), "w" + random.nextInt(20_000), 1 + random.nextInt(5));
+        }
+        for (GraphExporter.Format format : GraphExporter.Format.values()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            GraphExporter.write(graph, format, bytes);
+            assertTrue("expected output", bytes.size() > 100_000);
+        }
+    }
+}
@@ -6,6 +6,7 @@ package graph;
 import static org.junit.Assert.*;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -40,6 +41,9 @@ public abstract class GraphInstanceTest {
     //     vertex: exists, doesn't exist
     //     vertices in graph: 0, 1, >1
     //     observe with vertices(), sources(), targets()
+    //   bulk removal with GraphPruner.removeAll(graph, vertices)
+    //     vertices: none included, some included; with edges between them
+    //     observe with vertices(), sources(), targets()
     //   vertices()
     //     vertices in graph: 0, 1, >1
     //   sources(target)
@@ -126,4 +130,23 @@ public abstract class GraphInstanceTest {
         assertTrue("expected graph included target vertex", result);
     }
     
+    @Test
+    public void testRemoveAllVertices() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        graph.set("c", "a", 3);
+        graph.set("c", "d", 4);
+        graph.set("b", "b", 5);
+        boolean result = GraphPruner.removeAll(graph, List.of("b", "d", "x"));
+        assertTrue("expected graph included some vertices", result);
+        assertEquals("expected remaining vertices", Set.of("a", "c"), graph.vertices());
+        assertEquals("expected no edges from a", Collections.emptyMap(), graph.targets("a"));
+        assertEquals("expected edge from c", Map.of("a", 3), graph.targets("c"));
+        assertEquals("expected no edges to c", Collections.emptyMap(), graph.sources("c"));
+        assertFalse("expected graph included no vertices",
+                GraphPruner.removeAll(graph, List.of("x", "y")));
+        assertEquals("expected unchanged vertices", Set.of("a", "c"), graph.vertices());
+    }
+    
 }
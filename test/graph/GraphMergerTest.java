@@ -0,0 +1,163 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphMerger and WeightedEdge.
+ */
+public class GraphMergerTest {
+
+    // Testing strategy
+    //   sortedEdges
+    //     graph: empty, vertices without edges, >1 edge per source
+    //   merge
+    //     runs: 0, 1, >1; empty runs; edges shared by runs or not
+    //     weights summing past Integer.MAX_VALUE
+    //     many random runs, compared against summing with set
+    //   mergeGraphs: vertices without edges kept
+    //   mergeEdgeLists
+    //     to a graph, to a writer; file unsorted, doesn't exist
+    //   WeightedEdge: equals, hashCode, toString
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static List<WeightedEdge> list(Iterator<WeightedEdge> edges) {
+        List<WeightedEdge> result = new ArrayList<>();
+        edges.forEachRemaining(result::add);
+        return result;
+    }
+
+    @Test
+    public void testSortedEdges() {
+        Graph<String> graph = new ConcreteVerticesGraph();
+        graph.set("b", "a", 1);
+        graph.set("a", "c", 2);
+        graph.set("a", "b", 3);
+        graph.add("z");
+        assertEquals("expected edges in sorted order", List.of(
+                new WeightedEdge("a", "b", 3), new WeightedEdge("a", "c", 2), new WeightedEdge("b", "a", 1)),
+                list(GraphMerger.sortedEdges(graph)));
+        assertFalse("expected no edges", GraphMerger.sortedEdges(Graph.empty()).hasNext());
+    }
+
+    @Test
+    public void testMergeRuns() {
+        List<WeightedEdge> first = List.of(new WeightedEdge("a", "b", 1), new WeightedEdge("b", "c", 2));
+        List<WeightedEdge> second = List.of(new WeightedEdge("a", "b", 4), new WeightedEdge("a", "c", 1),
+                new WeightedEdge("c", "a", Integer.MAX_VALUE));
+        List<WeightedEdge> third = List.of(new WeightedEdge("c", "a", 5));
+        assertEquals("expected merged runs", List.of(
+                new WeightedEdge("a", "b", 5), new WeightedEdge("a", "c", 1), new WeightedEdge("b", "c", 2),
+                new WeightedEdge("c", "a", Integer.MAX_VALUE)),
+                list(GraphMerger.merge(List.of(first.iterator(), second.iterator(),
+                        Collections.<WeightedEdge>emptyIterator(), third.iterator()))));
+        assertFalse("expected no edges", GraphMerger.merge(List.of()).hasNext());
+    }
+
+    @Test
+    public void testMergeGraphsRandom() {
+        Random random = new Random(6005);
+        List<Graph<String>> graphs = new ArrayList<>();
+        Map<String, Integer> expected = new HashMap<>();
+        for (int g = 0; g < 7; g++) {
+            Graph<String> graph = new PersistentGraph();
+            for (int i = 0; i < 300; i++) {
+                String source = "v" + random.nextInt(50), target = "v" + random.nextInt(50);
+                int weight = 1 + random.nextInt(10);
+                int original = graph.set(source, target, weight);
+                expected.merge(source + " " + target, weight - original, Integer::sum);
+            }
+            graph.add("lonely" + g);
+            graphs.add(graph);
+        }
+        PersistentGraph merged = GraphMerger.mergeGraphs(graphs);
+        Map<String, Integer> actual = new HashMap<>();
+        for (String source : merged.vertices()) {
+            for (Map.Entry<String, Integer> edge : merged.targets(source).entrySet()) {
+                actual.put(source + " " + edge.getKey(), edge.getValue());
+            }
+        }
+        assertEquals("expected summed weights", expected, actual);
+        assertTrue("expected vertices without edges", merged.vertices().contains("lonely6"));
+    }
+
+    @Test
+    public void testMergeEdgeLists() throws IOException {
+        Graph<String> day1 = new PersistentGraph();
+        day1.set("hello,", "world", 2);
+        day1.set("world", "hello,", 1);
+        day1.add("tab\there");
+        Graph<String> day2 = new ConcreteEdgesGraph();
+        day2.set("hello,", "world", 3);
+        day2.set("hello,", "again", 1);
+        List<Path> files = new ArrayList<>();
+        for (Graph<String> graph : List.of(day1, day2)) {
+            Path file = Files.createTempFile("day", ".tsv");
+            file.toFile().deleteOnExit();
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                EdgeList.writeSorted(graph, out);
+            }
+            files.add(file);
+        }
+        PersistentGraph merged = GraphMerger.mergeEdgeLists(files);
+        assertEquals("expected vertices", Set.of("hello,", "world", "again", "tab\there"), merged.vertices());
+        assertEquals("expected summed edges", Map.of("world", 5, "again", 1), merged.targets("hello,"));
+        StringWriter out = new StringWriter();
+        GraphMerger.mergeEdgeLists(files, out);
+        List<String> edgeLines = new ArrayList<>();
+        for (String line : out.toString().split("\n")) {
+            if (line.contains("\t")) {
+                edgeLines.add(line);
+            }
+        }
+        assertEquals("expected merged edges in sorted order",
+                List.of("hello,\tagain\t1", "hello,\tworld\t5", "world\thello,\t1"), edgeLines);
+        Graph<String> reread = new PersistentGraph();
+        EdgeList.read(new StringReader(out.toString()), reread);
+        assertEquals("expected same graph", merged.toString(), reread.toString());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testMergeEdgeListsUnsorted() throws IOException {
+        Path file = Files.createTempFile("unsorted", ".tsv");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, "b\ta\t1\na\tb\t1\n");
+        GraphMerger.mergeEdgeLists(List.of(file));
+    }
+
+    @Test(expected=IOException.class)
+    public void testMergeEdgeListsNotFound() throws IOException {
+        GraphMerger.mergeEdgeLists(List.of(Path.of("test/graph/xyz.tsv")));
+    }
+
+    @Test
+    public void testWeightedEdge() {
+        WeightedEdge edge = new WeightedEdge("a", "b", 2);
+        assertEquals("expected equal edges", new WeightedEdge("a", "b", 2), edge);
+        assertEquals("expected equal hash codes", new WeightedEdge("a", "b", 2).hashCode(), edge.hashCode());
+        assertNotEquals("expected different weights unequal", new WeightedEdge("a", "b", 3), edge);
+        assertEquals("expected string", "(a -> b, 2)", edge.toString());
+    }
+
+}
@@ -0,0 +1,118 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphPruner.
+ */
+public class GraphPrunerTest {
+
+    // Testing strategy
+    //   constructor
+    //     minWeight: nonpositive, positive
+    //     maxOutDegree: negative, zero, positive
+    //   prune(graph)
+    //     edges below minWeight: 0, >0
+    //     out-degree of a vertex: below, at, above maxOutDegree
+    //     heaviest edges tie or don't
+    //     excluded vertices: none, some; with edges between them, and to kept
+    //       vertices that exceed maxOutDegree
+    //     observe with vertices(), targets(), and the report
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testPrunerNonpositiveMinWeight() {
+        new GraphPruner(0, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testPrunerNegativeMaxOutDegree() {
+        new GraphPruner(1, -1);
+    }
+
+    @Test
+    public void testPruneNothing() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        GraphPruner.Report report = new GraphPruner(1, 2).prune(graph);
+        assertEquals("expected all edges kept",
+                Map.of("b", 1, "c", 2), graph.targets("a"));
+        assertEquals("expected no edges removed", 0, report.getEdgesRemoved());
+        assertEquals("expected edges retained", 2, report.getEdgesRetained());
+        assertEquals("expected no memory reclaimed", 0, report.getBytesReclaimed());
+    }
+
+    @Test
+    public void testPruneMinWeight() {
+        Graph<String> graph = new ConcreteEdgesGraph();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 3);
+        graph.set("c", "a", 1);
+        GraphPruner.Report report = new GraphPruner(2, 10).prune(graph);
+        assertEquals("expected vertices kept",
+                Set.of("a", "b", "c"), graph.vertices());
+        assertEquals("expected heavy edge kept", Map.of("c", 3), graph.targets("a"));
+        assertEquals("expected light edge dropped",
+                Collections.emptyMap(), graph.targets("c"));
+        assertEquals("expected light edges removed", 2, report.getEdgesRemoved());
+        assertEquals("expected weight removed", 2, report.getWeightRemoved());
+        assertEquals("expected memory reclaimed",
+                2 * GraphPruner.estimatedBytesPerEdge(graph), report.getBytesReclaimed());
+    }
+
+    @Test
+    public void testPruneMaxOutDegree() {
+        Graph<String> graph = new ConcreteVerticesGraph();
+        graph.set("a", "b", 5);
+        graph.set("a", "c", 2);
+        graph.set("a", "d", 2);
+        graph.set("a", "e", 1);
+        GraphPruner.Report report = new GraphPruner(1, 2).prune(graph);
+        assertEquals("expected heaviest edges kept, ties broken by label",
+                Map.of("b", 5, "c", 2), graph.targets("a"));
+        assertEquals("expected edges removed", 2, report.getEdgesRemoved());
+        assertEquals("expected edges retained", 2, report.getEdgesRetained());
+    }
+
+    @Test
+    public void testPruneZeroOutDegree() {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 5);
+        new GraphPruner(1, 0).prune(graph);
+        assertEquals("expected vertices kept", Set.of("a", "b"), graph.vertices());
+        assertEquals("expected no edges", Collections.emptyMap(), graph.targets("a"));
+    }
+
+    @Test
+    public void testPruneExcluded() {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("a", "the", 9);
+        graph.set("a", "b", 2);
+        graph.set("a", "c", 1);
+        graph.set("the", "of", 4);
+        graph.set("of", "b", 3);
+        graph.set("b", "c", 1);
+        GraphPruner pruner = new GraphPruner(1, 1, List.of("the", "of", "x"));
+        GraphPruner.Report report = pruner.prune(graph);
+        assertEquals("expected excluded vertices removed", Set.of("a", "b", "c"), graph.vertices());
+        assertEquals("expected heaviest kept edge", Map.of("b", 2), graph.targets("a"));
+        assertEquals("expected edge kept", Map.of("c", 1), graph.targets("b"));
+        assertEquals("expected edges removed", 4, report.getEdgesRemoved());
+        assertEquals("expected weight removed", 17, report.getWeightRemoved());
+        assertEquals("expected edges retained", 2, report.getEdgesRetained());
+        assertEquals("expected excluded words", Set.of("the", "of", "x"), pruner.getExcluded());
+    }
+
+}
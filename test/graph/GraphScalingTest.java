@@ -0,0 +1,159 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * Scaling tests for the Graph implementations: each operation is timed at
+ * geometrically increasing sizes, and must not grow faster than its declared
+ * complexity class. See {@link Scaling}.
+ *
+ * <p>Times are for a whole batch of operations on a graph with n vertices and
+ * 2n edges: building the graph with 2n calls to set, one call to toString, or
+ * a fixed number of lookups or removals.
+ */
+public class GraphScalingTest {
+
+    // Testing strategy
+    //   implementation: ConcreteEdgesGraph, ConcreteVerticesGraph,
+    //     PersistentGraph
+    //   operation: set (building the graph), toString, targets, sources,
+    //     remove, removeAll (one pass over the graph)
+    //   declared class: O(1), O(log n), O(n), O(n log n) and O(n^2) for
+    //     building graphs whose set is O(log n) or O(n)
+    //   quadratic growth is detected
+
+    private static final int LOOKUPS = 500;
+    private static final int REMOVALS = 50;
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * @return a graph with n vertices "v0" ... and 2n edges, each vertex
+     *         having two outgoing edges
+     */
+    private static Graph<String> build(Supplier<Graph<String>> empty, int n) {
+        Graph<String> graph = empty.get();
+        for (int i = 0; i < n; i++) {
+            graph.set("v" + i, "v" + (i + 1) % n, 1);
+            graph.set("v" + i, "v" + (i * 31L + 7) % n, 2);
+        }
+        return graph;
+    }
+
+    /**
+     * Check the growth of each operation of an implementation.
+     *
+     * @param empty    makes empty graphs of the implementation
+     * @param smallest smallest graph size
+     * @param steps    number of graph sizes
+     * @param set      declared exponent of one set
+     * @param lookup   declared exponent of one targets, sources or remove
+     * @param logs     declared exponent of the log factor of set, targets,
+     *                 sources and remove
+     */
+    private static void assertScaling(Supplier<Graph<String>> empty, int smallest, int steps,
+            double set, double lookup, int logs) {
+        Scaling.assertGrowth("building a graph", set + 1, logs, smallest, steps,
+                n -> () -> Scaling.consume(build(empty, n)));
+        // graphs for read-only operations are built once per size
+        Map<Integer, Graph<String>> graphs = new HashMap<>();
+        IntFunction<Graph<String>> shared = n -> graphs.computeIfAbsent(n, size -> build(empty, size));
+        Scaling.assertGrowth("toString", 1, 0, smallest, steps, n -> {
+            Graph<String> graph = shared.apply(n);
+            return () -> {
+                for (int i = 0; i < 10; i++) {
+                    Scaling.consume(graph.toString());
+                }
+            };
+        });
+        Scaling.assertGrowth("targets", lookup, logs, smallest, steps, n -> {
+            Graph<String> graph = shared.apply(n);
+            return () -> {
+                for (int i = 0; i < LOOKUPS; i++) {
+                    Scaling.consume(graph.targets("v" + i % n));
+                }
+            };
+        });
+        Scaling.assertGrowth("sources", lookup, logs, smallest, steps, n -> {
+            Graph<String> graph = shared.apply(n);
+            return () -> {
+                for (int i = 0; i < LOOKUPS; i++) {
+                    Scaling.consume(graph.sources("v" + i % n));
+                }
+            };
+        });
+        Scaling.assertGrowth("remove", lookup, logs, smallest, steps, n -> {
+            Graph<String> graph = build(empty, n);
+            return () -> {
+                for (int i = 0; i < REMOVALS; i++) {
+                    graph.remove("v" + (long) i * n / REMOVALS);
+                }
+            };
+        });
+        Scaling.assertGrowth("removeAll of half the vertices", lookup + 1, logs, smallest, steps, n -> {
+            Graph<String> graph = build(empty, n);
+            List<String> removed = new ArrayList<>();
+            for (int i = 0; i < n; i += 2) {
+                removed.add("v" + i);
+            }
+            return () -> GraphPruner.removeAll(graph, removed);
+        });
+    }
+
+    @Test
+    public void testConcreteEdgesGraphScaling() {
+        // edges are a list, so set, targets, sources and remove scan all edges
+        assertScaling(ConcreteEdgesGraph::new, 64, 4, 1, 1, 0);
+    }
+
+    @Test
+    public void testConcreteVerticesGraphScaling() {
+        // vertices are a list, so set, targets, sources and remove scan all
+        // vertices
+        assertScaling(ConcreteVerticesGraph::new, 64, 4, 1, 1, 0);
+    }
+
+    @Test
+    public void testPersistentGraphScaling() {
+        // hash tries are O(log n) deep
+        assertScaling(PersistentGraph::new, 256, 5, 0, 0, 1);
+    }
+
+    @Test
+    public void testPersistentGraphSnapshotScaling() {
+        Scaling.assertGrowth("snapshot", 0, 0, 256, 5, n -> {
+            PersistentGraph graph = (PersistentGraph) build(PersistentGraph::new, n);
+            return () -> {
+                for (int i = 0; i < LOOKUPS; i++) {
+                    Scaling.consume(graph.snapshot());
+                }
+            };
+        });
+    }
+
+    @Test
+    public void testScalingDetectsQuadraticGrowth() {
+        double exponent = Scaling.exponent(0, 256, 4, n -> () -> {
+            String result = "";
+            for (int i = 0; i < n; i++) {
+                result = result.concat("(source -> target, 1)\n");
+            }
+            Scaling.consume(result);
+        });
+        assertTrue("expected quadratic growth to be fitted, was n^" + exponent,
+                exponent > 1 + Scaling.TOLERANCE);
+    }
+
+}
@@ -0,0 +1,170 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for PageRank.
+ */
+public class PageRankTest {
+
+    // Testing strategy
+    //   compute
+    //     graph: empty, one vertex, cycle, star, dangling vertex, weighted
+    //       edges, self loop; PersistentGraph, ConcreteVerticesGraph
+    //     parameters: defaults, out of range; maxIterations reached
+    //     large random graph, split into many fork-join tasks, compared to a
+    //       sequential power iteration
+    //   score, inStrength, outStrength: vertex, not a vertex
+    //   top: k = 0, < n, > n; ties
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static final double EPSILON = 1e-6;
+
+    @Test
+    public void testComputeEmpty() {
+        PageRank rank = PageRank.compute(new PersistentGraph());
+        assertEquals("expected no vertices", 0, rank.vertices());
+        assertEquals("expected no iterations", 0, rank.iterations());
+        assertEquals("expected no top", List.of(), rank.top(3));
+        assertEquals("expected 0 for missing", 0, rank.score("a"), 0);
+    }
+
+    @Test
+    public void testComputeOneVertex() {
+        Graph<String> graph = new ConcreteVerticesGraph();
+        graph.add("a");
+        PageRank rank = PageRank.compute(graph);
+        assertEquals("expected all rank", 1, rank.score("a"), EPSILON);
+    }
+
+    @Test
+    public void testComputeCycleAndStrength() {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("a", "b", 2);
+        graph.set("b", "c", 2);
+        graph.set("c", "a", 2);
+        PageRank rank = PageRank.compute(graph);
+        for (String vertex : List.of("a", "b", "c")) {
+            assertEquals("expected uniform", 1.0 / 3, rank.score(vertex), EPSILON);
+            assertEquals("expected in-strength", 2, rank.inStrength(vertex));
+            assertEquals("expected out-strength", 2, rank.outStrength(vertex));
+        }
+        assertEquals("expected 0 for missing", 0, rank.inStrength("d"));
+        assertEquals("expected edges", 3, rank.edges());
+        assertEquals("expected ties by label", List.of("a", "b"), rank.top(2));
+        assertEquals("expected all", List.of("a", "b", "c"), rank.top(5));
+        assertEquals("expected none", List.of(), rank.top(0));
+        assertTrue("expected converged", rank.delta() < PageRank.DEFAULT_TOLERANCE);
+        assertTrue("expected toString", rank.toString().startsWith("PageRank of 3 vertices, 3 edges"));
+    }
+
+    @Test
+    public void testComputeDangling() {
+        // a -> b, where b jumps anywhere:
+        // a = (1 - d) / 2 + d * b / 2, and a + b = 1
+        Graph<String> graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        PageRank rank = PageRank.compute(graph);
+        double d = PageRank.DEFAULT_DAMPING;
+        double a = 0.5 / (1 + d / 2);
+        assertEquals("expected a", a, rank.score("a"), EPSILON);
+        assertEquals("expected b", 1 - a, rank.score("b"), EPSILON);
+        assertEquals("expected b first", List.of("b", "a"), rank.top(2));
+    }
+
+    @Test
+    public void testComputeWeighted() {
+        // hub splits its rank 3:1 between b and c, which both return to hub
+        Graph<String> graph = new PersistentGraph();
+        graph.set("hub", "b", 3);
+        graph.set("hub", "c", 1);
+        graph.set("b", "hub", 1);
+        graph.set("c", "hub", 1);
+        graph.set("c", "c", 1);
+        PageRank rank = PageRank.compute(graph);
+        assertEquals("expected sum 1",
+                1, rank.score("hub") + rank.score("b") + rank.score("c"), EPSILON);
+        assertTrue("expected heavier edge to carry more rank", rank.score("b") > rank.score("c"));
+        assertEquals("expected out-strength", 4, rank.outStrength("hub"));
+        assertEquals("expected in-strength with self loop", 2, rank.inStrength("c"));
+    }
+
+    @Test
+    public void testComputeMaxIterations() {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        PageRank rank = PageRank.compute(graph, 0.85, 1e-15, 2);
+        assertEquals("expected 2 iterations", 2, rank.iterations());
+        assertTrue("expected not converged", rank.delta() >= 1e-15);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testComputeDampingOutOfRange() {
+        PageRank.compute(new PersistentGraph(), 1, 1e-9, 10);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testComputeToleranceOutOfRange() {
+        PageRank.compute(new PersistentGraph(), 0.85, 0, 10);
+    }
+
+    @Test
+    public void testComputeLargeParallel() {
+        Random random = new Random(6005);
+        int n = 2000;
+        Graph<String> graph = new PersistentGraph();
+        for (int i = 0; i < 100000; i++) {
+            // skewed targets, as in natural text
+            int source = random.nextInt(n);
+            int target = (int) Math.pow(n, random.nextDouble());
+            graph.set("w" + source, "w" + target, 1 + random.nextInt(5));
+        }
+        graph.add("lonely");
+        PageRank rank = PageRank.compute(graph);
+        assertTrue("expected convergence, took " + rank.iterations(),
+                rank.iterations() > 1 && rank.iterations() < PageRank.DEFAULT_MAX_ITERATIONS);
+
+        // sequential power iteration on the Graph interface
+        List<String> vertices = List.copyOf(graph.vertices());
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Long> outs = new HashMap<>();
+        for (String v : vertices) {
+            scores.put(v, 1.0 / vertices.size());
+            outs.put(v, graph.targets(v).values().stream().mapToLong(w -> w).sum());
+        }
+        double d = PageRank.DEFAULT_DAMPING;
+        for (int iteration = 0; iteration < rank.iterations(); iteration++) {
+            double dangling = 0;
+            for (String v : vertices) {
+                dangling += outs.get(v) == 0 ? scores.get(v) : 0;
+            }
+            Map<String, Double> next = new HashMap<>();
+            for (String v : vertices) {
+                double sum = 0;
+                for (Map.Entry<String, Integer> edge : graph.sources(v).entrySet()) {
+                    sum += scores.get(edge.getKey()) * edge.getValue() / outs.get(edge.getKey());
+                }
+                next.put(v, (1 - d + d * dangling) / vertices.size() + d * sum);
+            }
+            scores = next;
+        }
+        double total = 0;
+        for (String v : vertices) {
+            assertEquals("expected same score for " + v, scores.get(v), rank.score(v), EPSILON);
+            total += rank.score(v);
+        }
+        assertEquals("expected sum 1", 1, total, EPSILON);
+        assertEquals("expected most central word", "w1", rank.top(1).get(0));
+    }
+}
@@ -0,0 +1,161 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for PersistentGraph.
+ *
+ * This class runs the GraphInstanceTest tests against PersistentGraph, as well
+ * as tests for that particular implementation.
+ */
+public class PersistentGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide a PersistentGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new PersistentGraph();
+    }
+
+    /*
+     * Testing PersistentGraph...
+     */
+
+    // Testing strategy for PersistentGraph
+    //   toString()
+    //     edges in graph: 0, 1, >1
+    //   snapshot()
+    //     mutate original after snapshot, mutate snapshot: add, set, remove
+    //     observe both with vertices(), targets(), sources()
+    //   copyOf(graph)
+    //     graph: PersistentGraph, other implementation
+    //   views from vertices(), targets(): unaffected by later mutation
+
+    @Test
+    public void testPersistentGraphToStringEmpty() {
+        assertEquals("expected empty graph to string",
+                "", new PersistentGraph().toString());
+    }
+
+    @Test
+    public void testPersistentGraphToStringSingleEdge() {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("source", "target", 1);
+        assertEquals("expected graph with a single edge to string",
+                "(source -> target, 1)", graph.toString());
+    }
+
+    @Test
+    public void testPersistentGraphToStringMultipleEdges() {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("source", "target", 1);
+        graph.set("target", "source", 2);
+        assertEquals("expected graph with multiple edges to string",
+                "(source -> target, 1)\n(target -> source, 2)", graph.toString());
+    }
+
+    @Test
+    public void testSnapshotIsolatesOriginalMutations() {
+        PersistentGraph graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        PersistentGraph snapshot = graph.snapshot();
+        graph.set("a", "b", 5);
+        graph.set("b", "c", 2);
+        graph.remove("a");
+        assertEquals("expected snapshot vertices", Set.of("a", "b"), snapshot.vertices());
+        assertEquals("expected snapshot edge", Map.of("b", 1), snapshot.targets("a"));
+        assertEquals("expected snapshot edge", Map.of("a", 1), snapshot.sources("b"));
+        assertEquals("expected graph vertices", Set.of("b", "c"), graph.vertices());
+        assertEquals("expected graph edge", Map.of("b", 2), graph.sources("c"));
+    }
+
+    @Test
+    public void testSnapshotIsolatesSnapshotMutations() {
+        PersistentGraph graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        PersistentGraph snapshot = graph.snapshot();
+        snapshot.add("z");
+        snapshot.set("a", "b", 0);
+        assertEquals("expected graph vertices", Set.of("a", "b"), graph.vertices());
+        assertEquals("expected graph edge", Map.of("b", 1), graph.targets("a"));
+        assertEquals("expected snapshot without edge", Collections.emptyMap(), snapshot.targets("a"));
+    }
+
+    @Test
+    public void testViewsUnaffectedByLaterMutation() {
+        PersistentGraph graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        Set<String> vertices = graph.vertices();
+        Map<String, Integer> targets = graph.targets("a");
+        graph.set("a", "c", 1);
+        assertEquals("expected vertices at time of call", Set.of("a", "b"), vertices);
+        assertEquals("expected targets at time of call", Map.of("b", 1), targets);
+    }
+
+    @Test
+    public void testCopyOf() {
+        Graph<String> other = new ConcreteEdgesGraph();
+        other.set("a", "b", 3);
+        other.add("c");
+        PersistentGraph copy = PersistentGraph.copyOf(other);
+        assertEquals("expected vertices", Set.of("a", "b", "c"), copy.vertices());
+        assertEquals("expected edge", Map.of("b", 3), copy.targets("a"));
+        PersistentGraph again = PersistentGraph.copyOf(copy);
+        copy.remove("a");
+        assertEquals("expected independent copy", Set.of("a", "b", "c"), again.vertices());
+    }
+
+    /*
+     * Testing PersistentMap...
+     */
+
+    // Testing strategy for PersistentMap
+    //   put, remove, get: key present or absent; keys with colliding hashes
+    //   many random operations, compared against HashMap
+    //   old versions unchanged by updates
+
+    @Test
+    public void testPersistentMapCollisions() {
+        // "Aa" and "BB" have the same hash code
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty()
+                .put("Aa", 1).put("BB", 2).put("C", 3);
+        assertEquals("expected size", 3, map.size());
+        assertEquals("expected value", Integer.valueOf(1), map.get("Aa"));
+        assertEquals("expected value", Integer.valueOf(2), map.get("BB"));
+        PersistentMap<String, Integer> removed = map.remove("Aa");
+        assertNull("expected removed key", removed.get("Aa"));
+        assertEquals("expected other colliding key", Integer.valueOf(2), removed.get("BB"));
+        assertEquals("expected old version unchanged", Integer.valueOf(1), map.get("Aa"));
+        assertEquals("expected map view", Map.of("BB", 2, "C", 3), removed.asMap());
+    }
+
+    @Test
+    public void testPersistentMapRandomOperations() {
+        Random random = new Random(6005);
+        Map<String, Integer> expected = new HashMap<>();
+        PersistentMap<String, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            String key = Integer.toString(random.nextInt(3000));
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            }
+            else {
+                expected.put(key, i);
+                map = map.put(key, i);
+            }
+        }
+        assertEquals("expected same size", expected.size(), map.size());
+        assertEquals("expected same entries", expected, map.asMap());
+        assertEquals("expected same keys", expected.keySet(), map.keySet());
+    }
+
+}
@@ -0,0 +1,102 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.function.IntFunction;
+
+/**
+ * Scaling measures how the running time of an operation grows with the size
+ * of its input, and fails a test when the growth is faster than the operation's
+ * declared complexity class.
+ *
+ * <p>A trial is run at geometrically increasing sizes n, 2n, 4n, ..., and the
+ * growth exponent k of time ~ n^k is fitted by least squares on a log-log
+ * scale. Each size is timed several times and the fastest run is kept, which
+ * filters out most interference from the JIT compiler; the garbage collector
+ * runs before each timed run.
+ */
+public class Scaling {
+
+    /** Fitted exponents may exceed the declared exponent by this much. */
+    public static final double TOLERANCE = 0.5;
+
+    private static final int REPEATS = 5;
+
+    /** Results of timed operations, so that the JIT cannot discard them. */
+    private static volatile int sink;
+
+    private Scaling() {
+    }
+
+    /**
+     * Keep the result of a timed operation alive.
+     *
+     * @param result result of the operation
+     */
+    public static void consume(Object result) {
+        sink += result.hashCode();
+    }
+
+    /**
+     * Fit the growth exponent of a trial.
+     *
+     * @param logs     exponent m of a declared log factor: times are divided by
+     *                 (log n)^m before fitting, so that e.g. O(n log n) fits n^1
+     * @param smallest smallest size, positive
+     * @param steps    number of sizes, each twice the previous, at least 2
+     * @param trial    given a size n, prepares an input of size n without being
+     *                 timed, and returns the operation to time on that input
+     * @return fitted exponent k such that the time of the operation grows as n^k
+     */
+    public static double exponent(int logs, int smallest, int steps, IntFunction<Runnable> trial) {
+        // warm up the JIT on the largest input
+        trial.apply(smallest << (steps - 1)).run();
+        double[] x = new double[steps];
+        double[] y = new double[steps];
+        for (int i = 0; i < steps; i++) {
+            int n = smallest << i;
+            long fastest = Long.MAX_VALUE;
+            for (int r = 0; r < REPEATS; r++) {
+                Runnable operation = trial.apply(n);
+                System.gc();
+                long start = System.nanoTime();
+                operation.run();
+                fastest = Math.min(fastest, System.nanoTime() - start);
+            }
+            x[i] = Math.log(n);
+            y[i] = Math.log(Math.max(1, fastest)) - logs * Math.log(Math.log(n));
+        }
+        double meanX = 0, meanY = 0;
+        for (int i = 0; i < steps; i++) {
+            meanX += x[i] / steps;
+            meanY += y[i] / steps;
+        }
+        double covariance = 0, variance = 0;
+        for (int i = 0; i < steps; i++) {
+            covariance += (x[i] - meanX) * (y[i] - meanY);
+            variance += (x[i] - meanX) * (x[i] - meanX);
+        }
+        return covariance / variance;
+    }
+
+    /**
+     * Assert that the running time of a trial grows no faster than n^expected,
+     * times (log n)^logs, up to {@link #TOLERANCE}; see
+     * {@link #exponent(int, int, int, IntFunction)}.
+     *
+     * @param message  operation being measured
+     * @param expected declared exponent, e.g. 0 for O(1) and 1 for O(n)
+     * @param logs     declared exponent of the log factor, e.g. 1 for
+     *                 O(n log n)
+     * @param smallest smallest size, positive
+     * @param steps    number of sizes, at least 2
+     * @param trial    given a size n, returns the operation to time
+     */
+    public static void assertGrowth(String message, double expected, int logs, int smallest, int steps,
+            IntFunction<Runnable> trial) {
+        double exponent = exponent(logs, smallest, steps, trial);
+        assertTrue(String.format("expected %s to grow as n^%.1f (log n)^%d, but fitted n^%.2f", message, expected,
+                logs, exponent), exponent <= expected + TOLERANCE);
+    }
+
+}
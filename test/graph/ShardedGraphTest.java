@@ -0,0 +1,134 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for ShardedGraph and GraphShardServer.
+ *
+ * This class runs the GraphInstanceTest tests against a ShardedGraph over
+ * three loopback shard servers, as well as tests for that particular
+ * implementation.
+ */
+public class ShardedGraphTest extends GraphInstanceTest {
+
+    private final List<GraphShardServer> servers = new ArrayList<>();
+    private final List<ShardedGraph> clients = new ArrayList<>();
+
+    /*
+     * Provide a ShardedGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return connect(new ConcreteVerticesGraph(), new ConcreteVerticesGraph(), new ConcreteVerticesGraph());
+    }
+
+    /**
+     * Start a loopback server for each shard and connect a client to them.
+     */
+    @SafeVarargs
+    private ShardedGraph connect(Graph<String>... shards) {
+        try {
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            for (Graph<String> shard : shards) {
+                GraphShardServer server = new GraphShardServer(shard, 0);
+                servers.add(server);
+                addresses.add(new InetSocketAddress("localhost", server.getPort()));
+            }
+            ShardedGraph graph = new ShardedGraph(addresses);
+            clients.add(graph);
+            return graph;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @After
+    public void closeShards() throws IOException {
+        for (ShardedGraph client : clients) {
+            client.close();
+        }
+        for (GraphShardServer server : servers) {
+            server.close();
+        }
+    }
+
+    /*
+     * Testing ShardedGraph...
+     */
+
+    // Testing strategy for ShardedGraph
+    //   edges partitioned by source: source on each shard
+    //   add(vertex): vertex already on another shard or not
+    //   targets(sources), sources(targets)
+    //     labels: 0, 1, >1; with edges or without
+    //   removeAll(vertices): included or not
+
+    @Test
+    public void testShardedGraphPartitionsBySource() {
+        Graph<String> first = new ConcreteVerticesGraph(), second = new ConcreteVerticesGraph();
+        ShardedGraph graph = connect(first, second);
+        for (String source : List.of("a", "b", "c", "d")) {
+            graph.set(source, "x", 1);
+        }
+        for (String source : List.of("a", "b", "c", "d")) {
+            Graph<String> home = Math.floorMod(source.hashCode(), 2) == 0 ? first : second;
+            Graph<String> other = home == first ? second : first;
+            assertEquals("expected edge on home shard", Map.of("x", 1), home.targets(source));
+            assertEquals("expected no edge on other shard",
+                    Collections.emptyMap(), other.targets(source));
+        }
+        assertEquals("expected edges to x from all shards",
+                Map.of("a", 1, "b", 1, "c", 1, "d", 1), graph.sources("x"));
+    }
+
+    @Test
+    public void testShardedGraphAddVertexOnOtherShard() {
+        ShardedGraph graph = connect(new ConcreteVerticesGraph(), new ConcreteVerticesGraph());
+        graph.set("a", "b", 1);
+        graph.set("b", "a", 1);
+        assertTrue("expected graph already included target vertex", graph.add("b"));
+        assertFalse("expected graph did not include new vertex", graph.add("c"));
+        assertEquals("expected vertices", Set.of("a", "b", "c"), graph.vertices());
+    }
+
+    @Test
+    public void testShardedGraphBatchedQueries() {
+        ShardedGraph graph = connect(new ConcreteVerticesGraph(), new ConcreteVerticesGraph(), new ConcreteVerticesGraph());
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("c", "b", 3);
+        assertEquals("expected no targets for no sources",
+                Collections.emptyMap(), graph.targets(List.<String>of()));
+        assertEquals("expected targets of each source",
+                Map.of("a", Map.of("b", 1, "c", 2), "c", Map.of("b", 3), "z", Map.of()),
+                graph.targets(List.of("a", "c", "z")));
+        assertEquals("expected sources of each target",
+                Map.of("b", Map.of("a", 1, "c", 3), "c", Map.of("a", 2)),
+                graph.sources(List.of("b", "c")));
+    }
+
+    @Test
+    public void testShardedGraphRemoveAll() {
+        ShardedGraph graph = connect(new ConcreteVerticesGraph(), new ConcreteVerticesGraph());
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        graph.set("c", "a", 1);
+        assertTrue("expected graph included vertices", graph.removeAll(List.of("a", "b", "z")));
+        assertEquals("expected remaining vertex", Set.of("c"), graph.vertices());
+        assertEquals("expected no edges from c", Collections.emptyMap(), graph.targets("c"));
+        assertFalse("expected graph did not include vertex", graph.removeAll(List.of("z")));
+    }
+
+}
@@ -0,0 +1,67 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * TestGraphs holds the graph fixtures and assertions shared by the tests of
+ * this package and of its clients.
+ */
+public class TestGraphs {
+
+    /**
+     * Suppliers of an empty graph of each implementation in this package, and
+     * of one implementation unknown to it.
+     */
+    static final List<Supplier<Graph<String>>> EMPTIES = List.of(
+            PersistentGraph::new, ConcreteVerticesGraph::new, ConcreteEdgesGraph::new,
+            Forwarding::new);
+
+    private TestGraphs() {
+    }
+
+    /**
+     * Forwarding is a Graph implementation unknown to this package, so that
+     * code which specializes on the implementation takes its general path.
+     */
+    static class Forwarding implements Graph<String> {
+        private final Graph<String> graph = new PersistentGraph();
+        @Override public boolean add(String vertex) { return graph.add(vertex); }
+        @Override public int set(String source, String target, int weight) { return graph.set(source, target, weight); }
+        @Override public boolean remove(String vertex) { return graph.remove(vertex); }
+        @Override public Set<String> vertices() { return graph.vertices(); }
+        @Override public Map<String, Integer> sources(String target) { return graph.sources(target); }
+        @Override public Map<String, Integer> targets(String source) { return graph.targets(source); }
+        @Override public String toString() { return graph.toString(); }
+    }
+
+    /**
+     * Assert that two graphs have the same vertices and the same weighted
+     * edges.
+     *
+     * @param message message identifying the comparison on failure
+     * @param expected expected graph
+     * @param actual actual graph
+     */
+    public static void assertSameGraph(String message, Graph<String> expected, Graph<String> actual) {
+        assertEquals(message + ": vertices", expected.vertices(), actual.vertices());
+        for (String vertex : expected.vertices()) {
+            assertEquals(message + ": targets of " + vertex, expected.targets(vertex), actual.targets(vertex));
+        }
+    }
+
+    /**
+     * Assert that two graphs have the same vertices and the same weighted
+     * edges.
+     *
+     * @param expected expected graph
+     * @param actual actual graph
+     */
+    public static void assertSameGraph(Graph<String> expected, Graph<String> actual) {
+        assertSameGraph("expected same graph", expected, actual);
+    }
+}
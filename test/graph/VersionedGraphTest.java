@@ -0,0 +1,127 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for VersionedGraph.
+ */
+public class VersionedGraphTest {
+
+    // Testing strategy
+    //   constructor
+    //     graph: empty, nonempty; PersistentGraph, other implementation
+    //   update
+    //     epochs: 1, >1
+    //     version held by a reader across updates
+    //   Version.graph(): mutators on a PersistentGraph version
+    //   liveVersions(): old versions held or not
+    //   many updates with no version held: reclaimed versions pruned
+    //   concurrent reader during many updates
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testInitialVersion() {
+        PersistentGraph graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        VersionedGraph versions = new VersionedGraph(graph);
+        assertEquals("expected epoch 0", 0, versions.current().epoch());
+        assertEquals("expected initial edge", Map.of("b", 1), versions.current().graph().targets("a"));
+    }
+
+    @Test
+    public void testUpdatePublishesNewVersion() {
+        VersionedGraph versions = new VersionedGraph(new PersistentGraph());
+        VersionedGraph.Version before = versions.current();
+        VersionedGraph.Version after = versions.update(graph -> graph.set("a", "b", 2));
+        assertSame("expected current version", after, versions.current());
+        assertEquals("expected epoch 1", 1, after.epoch());
+        assertEquals("expected new edge", Map.of("b", 2), after.graph().targets("a"));
+        assertEquals("expected old version unchanged",
+                Collections.emptySet(), before.graph().vertices());
+        versions.update(graph -> graph.remove("a"));
+        assertEquals("expected epoch 2", 2, versions.current().epoch());
+        assertEquals("expected held version unchanged", Set.of("a", "b"), after.graph().vertices());
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testVersionIsReadOnly() {
+        VersionedGraph versions = new VersionedGraph(new PersistentGraph());
+        versions.current().graph().add("a");
+    }
+
+    @Test
+    public void testNonPersistentGraphPublishedByReference() {
+        Graph<String> graph = new ConcreteVerticesGraph();
+        VersionedGraph versions = new VersionedGraph(graph);
+        VersionedGraph.Version before = versions.current();
+        versions.update(g -> g.set("a", "b", 1));
+        assertSame("expected writer graph", graph, before.graph());
+        assertEquals("expected update visible", Map.of("b", 1), before.graph().targets("a"));
+    }
+
+    @Test
+    public void testLiveVersionsCountsHeldVersions() {
+        VersionedGraph versions = new VersionedGraph(new PersistentGraph());
+        VersionedGraph.Version held = versions.current();
+        versions.update(graph -> graph.add("a"));
+        assertEquals("expected held and current versions", 2, versions.liveVersions());
+        assertEquals("expected held version", 0, held.epoch());
+    }
+
+    @Test
+    public void testUpdatePrunesReclaimedVersions() {
+        VersionedGraph versions = new VersionedGraph(new PersistentGraph());
+        final int updates = 10000;
+        for (int epoch = 1; epoch <= updates; epoch++) {
+            final int weight = epoch;
+            versions.update(graph -> graph.set("a", "b", weight));
+        }
+        // reclaim every version but the current one, as the collector would
+        versions.reclaimBefore(updates);
+        versions.update(graph -> graph.add("c"));
+        assertEquals("expected reclaimed versions pruned by update", 2, versions.trackedVersions());
+        assertTrue("expected current version live", versions.liveVersions() >= 1);
+    }
+
+    @Test
+    public void testConcurrentReaderSeesConsistentVersions() throws InterruptedException {
+        VersionedGraph versions = new VersionedGraph(new PersistentGraph());
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                VersionedGraph.Version version = versions.current();
+                // each epoch e sets both a -> b and b -> a to weight e
+                Integer forward = version.graph().targets("a").get("b");
+                Integer backward = version.graph().targets("b").get("a");
+                if (version.epoch() > 0 && (forward != version.epoch() || !forward.equals(backward))) {
+                    failure.set("inconsistent version " + version.epoch());
+                }
+            }
+        });
+        reader.start();
+        for (int epoch = 1; epoch <= 2000; epoch++) {
+            final int weight = epoch;
+            versions.update(graph -> {
+                graph.set("a", "b", weight);
+                graph.set("b", "a", weight);
+            });
+        }
+        done.set(true);
+        reader.join();
+        assertNull("expected only consistent versions", failure.get());
+    }
+
+}
@@ -0,0 +1,183 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for WeightMap.
+ */
+public class WeightMapTest {
+
+    // Testing strategy
+    //   set, add, get, removeAll
+    //     targets: 0, 1, SMALL_TARGETS, promoted to a hash table
+    //     weights: all 1, small, INLINE_MAX, past INLINE_MAX, MAX; changed
+    //       back below INLINE_MAX; sums that saturate
+    //     random operations compared to a HashMap, including removals that
+    //       shift probe runs back; presized for few or many targets
+    //   forEach, asMap: empty, sorted, hashed
+    //   storage: weights of a Zipf-distributed corpus, one byte or none each;
+    //     arrays at most twice the degree for the degrees of natural text
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmpty() {
+        WeightMap map = new WeightMap();
+        assertEquals("expected no targets", 0, map.size());
+        assertEquals("expected 0 for missing", 0, map.get("a"));
+        assertEquals("expected empty view", Map.of(), map.asMap());
+        assertEquals("expected nothing removed", 0, map.set("a", 0));
+    }
+
+    @Test
+    public void testUnitWeightsNeedNoBytes() {
+        WeightMap map = new WeightMap();
+        for (int i = 0; i <= WeightMap.SMALL_TARGETS * 4; i++) {
+            assertEquals("expected new target", 0, map.add("t" + i, 1));
+        }
+        assertEquals("expected all targets", WeightMap.SMALL_TARGETS * 4 + 1, map.size());
+        assertEquals("expected no weight bytes", 0, map.weightBytes());
+        assertEquals("expected weight 1", 1, map.get("t3"));
+        assertEquals("expected previous weight", 1, map.add("t3", 1));
+        assertTrue("expected weight bytes", map.weightBytes() > 0);
+        assertEquals("expected weight 2", 2, map.get("t3"));
+        assertEquals("expected others still 1", 1, map.get("t4"));
+    }
+
+    @Test
+    public void testOverflow() {
+        WeightMap map = new WeightMap();
+        map.set("a", WeightMap.INLINE_MAX);
+        map.set("b", WeightMap.INLINE_MAX + 1);
+        map.set("c", Weights.MAX);
+        assertEquals("expected inline weight", WeightMap.INLINE_MAX, map.get("a"));
+        assertEquals("expected overflowed weight", WeightMap.INLINE_MAX + 1, map.get("b"));
+        assertEquals("expected two overflowed", 2, map.overflowed());
+        assertEquals("expected previous weight", Weights.MAX, map.add("c", 5));
+        assertEquals("expected saturated", Weights.MAX, map.get("c"));
+        assertEquals("expected previous weight", WeightMap.INLINE_MAX, map.add("a", 1));
+        assertEquals("expected three overflowed", 3, map.overflowed());
+        map.set("b", 3);
+        map.removeAll(Set.of("c"));
+        assertEquals("expected one overflowed", 1, map.overflowed());
+        assertEquals("expected weights", Map.of("a", WeightMap.INLINE_MAX + 1, "b", 3), map.asMap());
+    }
+
+    @Test
+    public void testPromotion() {
+        WeightMap map = new WeightMap();
+        for (int i = 0; i <= WeightMap.SMALL_TARGETS; i++) {
+            map.set("t" + i, i + 1);
+        }
+        assertEquals("expected all targets", WeightMap.SMALL_TARGETS + 1, map.size());
+        assertEquals("expected weight after promotion", 1, map.get("t0"));
+        map.removeAll(Set.of("t0", "t1", "missing"));
+        assertEquals("expected targets removed", WeightMap.SMALL_TARGETS - 1, map.size());
+        assertEquals("expected weight after removal",
+                WeightMap.SMALL_TARGETS + 1, map.get("t" + WeightMap.SMALL_TARGETS));
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(6005);
+        for (int range : new int[] { 4, WeightMap.SMALL_TARGETS + 1, 200 }) {
+            for (int round = 0; round < 20; round++) {
+                WeightMap map = new WeightMap(random.nextInt(3) == 0 ? random.nextInt(range) : 0);
+                Map<String, Integer> reference = new HashMap<>();
+                for (int op = 0; op < 2000; op++) {
+                    String target = "t" + random.nextInt(range);
+                    int choice = random.nextInt(10);
+                    if (choice < 4) {
+                        int weight = random.nextInt(3) == 0 ? 1 + random.nextInt(1000) : 1;
+                        int previous = reference.getOrDefault(target, 0);
+                        reference.put(target, Weights.add(previous, weight));
+                        assertEquals("expected previous weight", previous, map.add(target, weight));
+                    }
+                    else if (choice < 8) {
+                        int weight = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(300);
+                        Integer previous = weight == 0 ? reference.remove(target) : reference.put(target, weight);
+                        assertEquals("expected previous weight", previous == null ? 0 : previous,
+                                map.set(target, weight));
+                    }
+                    else {
+                        assertEquals("expected weight", (int) reference.getOrDefault(target, 0), map.get(target));
+                    }
+                    if (op % 500 == 499) {
+                        Set<String> removed = new HashSet<>();
+                        for (int j = 0; j < range / 3; j++) {
+                            removed.add("t" + random.nextInt(range));
+                        }
+                        map.removeAll(removed);
+                        reference.keySet().removeAll(removed);
+                    }
+                }
+                assertEquals("expected same map", reference, map.asMap());
+                Map<String, Integer> visited = new HashMap<>();
+                map.forEach(visited::put);
+                assertEquals("expected same targets visited", reference, visited);
+                long overflowed = reference.values().stream().filter(w -> w > WeightMap.INLINE_MAX).count();
+                assertEquals("expected overflow table of large weights", overflowed, map.overflowed());
+            }
+        }
+    }
+
+    @Test
+    public void testZipfStorage() {
+        // successors of the words of a Zipf-distributed corpus
+        Random random = new Random(6005);
+        Map<String, WeightMap> counts = new HashMap<>();
+        String previous = null;
+        for (int i = 0; i < 200_000; i++) {
+            String word = "w" + (int) Math.pow(5000, random.nextDouble());
+            if (previous != null) {
+                counts.computeIfAbsent(previous, w -> new WeightMap()).add(word, 1);
+            }
+            previous = word;
+        }
+        long edges = 0, ones = 0, weightBytes = 0, overflowed = 0, unitMaps = 0;
+        for (WeightMap targets : counts.values()) {
+            edges += targets.size();
+            ones += targets.asMap().values().stream().filter(w -> w == 1).count();
+            weightBytes += targets.weightBytes();
+            overflowed += targets.overflowed();
+            unitMaps += targets.weightBytes() == 0 ? 1 : 0;
+        }
+        assertTrue("expected most weights to be 1", ones * 2 > edges);
+        assertTrue("expected many words with only weights of 1", unitMaps * 4 > counts.size());
+        assertTrue("expected few weights to overflow", overflowed * 100 < edges);
+        // an int per slot would take 4 bytes for each of at least edges slots
+        assertTrue("expected at most a byte per slot, " + weightBytes + " bytes for " + edges + " edges",
+                weightBytes + 4 * overflowed < 2 * edges);
+    }
+
+    @Test
+    public void testDegreeStorage() {
+        // degrees of words in natural text: most have one or two successors
+        Random random = new Random(6005);
+        assertEquals("expected no arrays without targets", 0, new WeightMap().capacity());
+        for (int v = 0; v < 50_000; v++) {
+            int degree = Math.max(1, (int) Math.pow(64, random.nextDouble() * random.nextDouble()));
+            WeightMap map = new WeightMap();
+            for (int target : random.ints(degree, 0, 1000).distinct().toArray()) {
+                map.set("w" + target, 1 + target % 3);
+            }
+            int size = map.size();
+            assertTrue("expected arrays at most twice the degree, " + map.capacity() + " for " + size,
+                    size <= map.capacity() && map.capacity() <= 2 * size);
+            assertTrue("expected at most a byte per slot, " + map.weightBytes() + " for " + size,
+                    map.weightBytes() <= map.capacity() * 4 / 3);
+            assertEquals("expected no overflowed weights", 0, map.overflowed());
+        }
+    }
+}
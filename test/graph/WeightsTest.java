@@ -0,0 +1,78 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Tests for Weights.
+ */
+public class WeightsTest {
+
+    // Testing strategy
+    //   add, sum, saturate: below, at, past Integer.MAX_VALUE
+    //   box: 0, small, SHARED - 1, SHARED, large; shared or not
+    //   writeVarint, readVarint: 0, 127, 128, 2^14, MAX; truncated, too long
+    //   graphs: PersistentGraph shares one box per edge
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testAddSaturates() {
+        assertEquals("expected sum", 5, Weights.add(2, 3));
+        assertEquals("expected max", Weights.MAX, Weights.add(Weights.MAX - 1, 1));
+        assertEquals("expected saturated", Weights.MAX, Weights.add(Weights.MAX, Weights.MAX));
+        assertEquals("expected saturated box", (Integer) Weights.MAX, Weights.sum(Weights.MAX, 1));
+        assertEquals("expected weight", 7, Weights.saturate(7L));
+        assertEquals("expected saturated", Weights.MAX, Weights.saturate(1L << 40));
+    }
+
+    @Test
+    public void testBox() {
+        assertSame("expected shared", Weights.box(1), Weights.box(1));
+        assertSame("expected shared", Weights.box(Weights.SHARED - 1), Weights.box(Weights.SHARED - 1));
+        assertSame("expected shared sum", Weights.box(1000), Weights.sum(500, 500));
+        assertEquals("expected value", (Integer) Weights.SHARED, Weights.box(Weights.SHARED));
+    }
+
+    @Test
+    public void testVarint() throws IOException {
+        int[] weights = { 0, 1, 127, 128, 1 << 14, (1 << 21) - 1, Weights.MAX };
+        int[] sizes = { 1, 1, 1, 2, 3, 3, 5 };
+        for (int i = 0; i < weights.length; i++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Weights.writeVarint(new DataOutputStream(bytes), weights[i]);
+            assertEquals("expected size of " + weights[i], sizes[i], bytes.size());
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            assertEquals("expected round trip", weights[i], Weights.readVarint(in));
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void testReadVarintTruncated() throws IOException {
+        Weights.readVarint(new DataInputStream(new ByteArrayInputStream(new byte[] { (byte) 0x80 })));
+    }
+
+    @Test(expected=IOException.class)
+    public void testReadVarintTooLong() throws IOException {
+        byte[] bytes = { (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 1 };
+        Weights.readVarint(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void testPersistentGraphSharesBox() {
+        PersistentGraph graph = new PersistentGraph();
+        graph.set("a", "b", 1 << 20);
+        assertSame("expected one box for both indexes",
+                graph.targets("a").get("b"), graph.sources("b").get("a"));
+    }
+}
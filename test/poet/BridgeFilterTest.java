@@ -0,0 +1,148 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import graph.Graph;
+import graph.PersistentGraph;
+
+/**
+ * Tests for BridgeFilter.
+ */
+public class BridgeFilterTest {
+
+    // Testing strategy
+    //   build
+    //     graph: empty, no two-edge-long paths, many paths
+    //     falsePositiveRate: in (0, 1), out of range
+    //   mightBridge
+    //     pair with a bridge word (never false), pair without one
+    //   memoryBytes, expectedFalsePositiveRate: lower rate uses more memory
+    //   measured false positive rate close to the target
+    //   withAdjacencies: few adjacencies added to a copy, covering every path
+    //     of the new graph; many adjacencies rebuild the filter; the original
+    //     filter is unchanged
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testBridgeFilterEmpty() {
+        BridgeFilter filter = BridgeFilter.build(new PersistentGraph(), 0.01);
+        assertEquals("expected no pairs", 0, filter.pairs());
+        assertFalse("expected no bridge", filter.mightBridge("a", "b"));
+        assertTrue("expected some memory", filter.memoryBytes() > 0);
+    }
+
+    @Test
+    public void testBridgeFilterSinglePath() {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        graph.set("x", "y", 1);
+        BridgeFilter filter = BridgeFilter.build(graph, 0.01);
+        assertEquals("expected one two-edge-long path", 1, filter.pairs());
+        assertTrue("expected bridge from a to c", filter.mightBridge("a", "c"));
+        assertFalse("expected no bridge from x to y", filter.mightBridge("x", "y"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBridgeFilterRateOutOfRange() {
+        BridgeFilter.build(new PersistentGraph(), 1.0);
+    }
+
+    @Test
+    public void testBridgeFilterRandomGraph() {
+        Random random = new Random(6005);
+        Graph<String> graph = new PersistentGraph();
+        for (int i = 0; i < 5000; i++) {
+            graph.set("w" + random.nextInt(1000), "w" + random.nextInt(1000), 1);
+        }
+        BridgeFilter coarse = BridgeFilter.build(graph, 0.05);
+        BridgeFilter fine = BridgeFilter.build(graph, 0.001);
+        assertTrue("expected lower rate to use more memory", fine.memoryBytes() > coarse.memoryBytes());
+        int negatives = 0;
+        int falsePositives = 0;
+        for (int i = 0; i < 20000; i++) {
+            String source = "w" + random.nextInt(1000);
+            String target = "w" + random.nextInt(1000);
+            boolean bridged = false;
+            for (String middle : graph.targets(source).keySet()) {
+                bridged |= graph.targets(middle).containsKey(target);
+            }
+            if (bridged) {
+                assertTrue("expected no false negative", coarse.mightBridge(source, target));
+                assertTrue("expected no false negative", fine.mightBridge(source, target));
+            }
+            else {
+                negatives++;
+                if (coarse.mightBridge(source, target)) {
+                    falsePositives++;
+                }
+            }
+        }
+        double measured = (double) falsePositives / negatives;
+        assertTrue("expected false positive rate near 0.05, was " + measured, measured < 0.1);
+        assertTrue("expected estimate near 0.05", coarse.expectedFalsePositiveRate() < 0.1);
+    }
+
+
+    /**
+     * Assert that a filter reports every two-edge-long path of a graph.
+     */
+    private static void assertCovers(BridgeFilter filter, Graph<String> graph) {
+        for (String middle : graph.vertices()) {
+            for (String source : graph.sources(middle).keySet()) {
+                for (String target : graph.targets(middle).keySet()) {
+                    assertTrue("expected bridge from " + source + " to " + target,
+                            filter.mightBridge(source, target));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBridgeFilterWithAdjacencies() {
+        Random random = new Random(6005);
+        Graph<String> graph = new PersistentGraph();
+        for (int i = 0; i < 5000; i++) {
+            graph.set("w" + random.nextInt(1000), "w" + random.nextInt(1000), 1);
+        }
+        BridgeFilter filter = BridgeFilter.build(graph, 0.01);
+        long pairs = filter.pairs();
+        BigramCounts added = new BigramCounts();
+        String previous = null;
+        for (int i = 0; i < 50; i++) {
+            previous = added.add(previous, "w" + random.nextInt(1100));
+        }
+        added.addTo(graph);
+        BridgeFilter extended = filter.withAdjacencies(graph, added);
+        assertCovers(extended, graph);
+        assertEquals("expected a copy of the same size", filter.memoryBytes(), extended.memoryBytes());
+        assertTrue("expected paths added", extended.pairs() > pairs);
+        assertEquals("expected original unchanged", pairs, filter.pairs());
+    }
+
+    @Test
+    public void testBridgeFilterWithManyAdjacenciesRebuilt() {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        BridgeFilter filter = BridgeFilter.build(graph, 0.01);
+        BigramCounts added = new BigramCounts();
+        String previous = null;
+        for (int i = 0; i < 500; i++) {
+            previous = added.add(previous, "w" + i * i % 50);
+        }
+        added.addTo(graph);
+        BridgeFilter rebuilt = filter.withAdjacencies(graph, added);
+        assertCovers(rebuilt, graph);
+        assertEquals("expected rebuilt from the graph", BridgeFilter.build(graph, 0.01).pairs(), rebuilt.pairs());
+        assertTrue("expected a larger filter", rebuilt.memoryBytes() > filter.memoryBytes());
+    }
+}
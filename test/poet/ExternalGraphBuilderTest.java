@@ -0,0 +1,134 @@
+package poet;
+
+import static org.junit.Assert.*;
+import static graph.TestGraphs.assertSameGraph;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for ExternalGraphBuilder.
+ */
+public class ExternalGraphBuilderTest {
+
+    // Testing strategy
+    //   ExternalGraphBuilder: budget positive, nonpositive; budget for one
+    //     edge per run, for the whole corpus
+    //   add: corpus fits in memory, spills many runs; adjacency spans a spill;
+    //     corpus doesn't exist
+    //   build: no corpora, several corpora; runs deleted afterwards
+    //     runs: at most fan-in, more than fan-in (several merge passes)
+    //   static build: loads as the in-memory graph; failure leaves no runs
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static final long PER_EDGE =
+            ExternalGraphBuilder.ESTIMATED_BYTES_PER_ADJACENCY + ExternalGraphBuilder.ESTIMATED_BYTES_PER_WORD;
+
+    private static long files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testExternalGraphBuilderNonpositiveBudget() throws IOException {
+        new ExternalGraphBuilder(Files.createTempDirectory("runs"), 0);
+    }
+
+    @Test
+    public void testBuildSpillsRuns() throws IOException {
+        Path temp = Files.createTempDirectory("runs");
+        Path output = Files.createTempFile("graph", ".tsv");
+        output.toFile().deleteOnExit();
+        ExternalGraphBuilder builder = new ExternalGraphBuilder(temp, 1);
+        assertEquals("expected one edge per run", 1, builder.maxEdges());
+        Path phrases = Paths.get("test/poet/phrases.txt");
+        Path multiple = Paths.get("test/poet/multiple.txt");
+        builder.add(phrases);
+        builder.add(multiple);
+        assertTrue("expected many runs", builder.runs().size() > 10);
+        assertEquals("expected runs in temp directory", builder.runs().size(), files(temp));
+        builder.build(output);
+        assertEquals("expected runs deleted", 0, files(temp));
+        assertEquals("expected empty builder", List.of(), builder.runs());
+
+        GraphPoet expected = GraphPoet.fromPaths(List.of(phrases, multiple), 1);
+        GraphPoet actual = GraphPoet.fromEdgeLists(List.of(output));
+        assertSameGraph(expected.getGraph(), actual.getGraph());
+        assertEquals("expected summed repeated adjacency",
+                (Integer) 2, actual.getGraph().targets("hello,").get("hello,"));
+        String input = "I saw a red fox over the dog.";
+        assertEquals("expected same poem", expected.poem(input), actual.poem(input));
+    }
+
+    @Test
+    public void testBuildMergesInPasses() throws IOException {
+        Path temp = Files.createTempDirectory("runs");
+        Path output = Files.createTempFile("graph", ".tsv");
+        output.toFile().deleteOnExit();
+        ExternalGraphBuilder builder = new ExternalGraphBuilder(temp, 1, 2);
+        Path phrases = Paths.get("test/poet/phrases.txt");
+        Path multiple = Paths.get("test/poet/multiple.txt");
+        builder.add(phrases);
+        builder.add(multiple);
+        assertTrue("expected several passes at fan-in 2", builder.runs().size() > 8);
+        builder.build(output);
+        assertEquals("expected runs and intermediate runs deleted", 0, files(temp));
+        assertSameGraph(GraphPoet.fromPaths(List.of(phrases, multiple), 1).getGraph(),
+                GraphPoet.fromEdgeLists(List.of(output)).getGraph());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testExternalGraphBuilderFanInTooSmall() throws IOException {
+        new ExternalGraphBuilder(Files.createTempDirectory("runs"), PER_EDGE, 1);
+    }
+
+    @Test
+    public void testBuildInMemory() throws IOException {
+        Path temp = Files.createTempDirectory("runs");
+        Path output = Files.createTempFile("graph", ".tsv");
+        output.toFile().deleteOnExit();
+        Path phrases = Paths.get("test/poet/phrases.txt");
+        ExternalGraphBuilder.build(List.of(phrases, Paths.get("test/poet/single.txt")),
+                output, temp, 1000 * PER_EDGE);
+        assertEquals("expected runs deleted", 0, files(temp));
+        assertSameGraph(GraphPoet.fromPaths(List.of(phrases, Paths.get("test/poet/single.txt")), 1).getGraph(),
+                GraphPoet.fromEdgeLists(List.of(output)).getGraph());
+    }
+
+    @Test
+    public void testBuildEmpty() throws IOException {
+        Path temp = Files.createTempDirectory("runs");
+        Path output = Files.createTempFile("graph", ".tsv");
+        output.toFile().deleteOnExit();
+        new ExternalGraphBuilder(temp, PER_EDGE).build(output);
+        assertEquals("expected empty edge list", 0, Files.size(output));
+        assertEquals("expected no runs", 0, files(temp));
+    }
+
+    @Test
+    public void testBuildNotFound() throws IOException {
+        Path temp = Files.createTempDirectory("runs");
+        Path output = temp.resolve("graph.tsv");
+        try {
+            ExternalGraphBuilder.build(List.of(Paths.get("test/poet/phrases.txt"),
+                    Paths.get("test/poet/missing.txt")), output, temp, 1);
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals("expected runs deleted and no output", 0, files(temp));
+    }
+}
@@ -0,0 +1,84 @@
+package poet;
+
+import java.io.StringReader;
+import java.util.Random;
+
+import org.junit.Test;
+
+import graph.Graph;
+import graph.PageRank;
+import graph.Scaling;
+
+/**
+ * Scaling tests for GraphPoet: ingestion and poem generation are timed at
+ * geometrically increasing sizes, and must not grow faster than their
+ * declared complexity class. See {@link Scaling}.
+ */
+public class GraphPoetScalingTest {
+
+    // Testing strategy
+    //   ingest: corpus of n words, O(n log n)
+    //   poem: input of n words on a fixed corpus, O(n)
+    //   indexBridges: corpus of n words, O(n log n)
+    //   PageRank of the graph of a corpus of n words, O(n) per iteration
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * @return n words drawn from a vocabulary of about n / 8 words
+     */
+    private static String words(int n, long seed) {
+        Random random = new Random(seed);
+        int vocabulary = Math.max(8, n / 8);
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            result.append('w').append(random.nextInt(vocabulary)).append(' ');
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void testIngestScaling() {
+        Scaling.assertGrowth("ingest", 1, 1, 1024, 5, n -> {
+            String corpus = words(n, n);
+            return () -> {
+                GraphPoet poet = new GraphPoet();
+                poet.ingest(new StringReader(corpus));
+                Scaling.consume(poet);
+            };
+        });
+    }
+
+    @Test
+    public void testPoemScaling() {
+        GraphPoet poet = new GraphPoet();
+        poet.ingest(new StringReader(words(8192, 6005)));
+        Scaling.assertGrowth("poem", 1, 0, 256, 5, n -> {
+            String input = words(n, n).replace('w', 'W');
+            return () -> Scaling.consume(poet.poem(input));
+        });
+    }
+
+    @Test
+    public void testIndexBridgesScaling() {
+        Scaling.assertGrowth("indexBridges", 1, 1, 1024, 5, n -> {
+            GraphPoet poet = new GraphPoet();
+            poet.ingest(new StringReader(words(n, n)));
+            return () -> Scaling.consume(poet.indexBridges(0.01));
+        });
+    }
+
+    @Test
+    public void testRankScaling() {
+        Scaling.assertGrowth("rank", 1, 1, 1024, 5, n -> {
+            GraphPoet poet = new GraphPoet();
+            poet.ingest(new StringReader(words(n, n)));
+            Graph<String> graph = poet.getGraph();
+            return () -> Scaling.consume(PageRank.compute(graph));
+        });
+    }
+
+}
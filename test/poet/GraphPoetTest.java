@@ -5,13 +5,37 @@ package poet;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
+import graph.EdgeList;
+import graph.Fingerprint;
 import graph.Graph;
+import graph.WeightedEdge;
+import graph.GraphBuilder;
+import graph.GraphExporter;
+import graph.GraphPruner;
+import graph.PageRank;
+import graph.PersistentGraph;
+import graph.GraphShardServer;
+import graph.ShardedGraph;
 
 import org.junit.Test;
 
@@ -25,9 +49,40 @@ public class GraphPoetTest {
     //     corpus: exists, doesn't exist
     //     words in contents: 0, 1, >1
     //     words contain duplicates or don't
+    //     pruner: none, drops light edges; observe with getGraph(), ingestionReport(), epoch()
+    //     graph: default, sharded
+    //   ingest
+    //     poet: empty, from corpus; corpora ingested: 1, >1
+    //     weights summing past Integer.MAX_VALUE
+    //     observe with poem(), epoch(), and a graph taken before ingesting
+    //   fromPaths, fromDirectory, ingest(List<Path>, int)
+    //     files: plain, gzip-compressed; 1, >1; workers: 1, >1
+    //     directory: nested files matching the glob or not
+    //     file doesn't exist
+    //   prune
+    //     pruner excludes words or not; observe with poem(), epoch()
+    //   fromEdgeLists, merge
+    //     poets or sorted edge lists: 1, >1; sharing edges or not
+    //   fromEdgeList
+    //     edge list: written from getGraph(), doesn't exist
+    //     File or Path with workers
+    //   hints: empty corpus, small, large; snapshotting graph; counts of a
+    //     skewed corpus no larger than without hints
+    //   fingerprint
+    //     poet: empty, from corpus; same corpus, ingested text with and
+    //     without words, windowed poet evicting a word and adding it back
+    //   export: each format; toString without copying the graph
+    //   windowed
+    //     ingest: Reader, File, List<Path> in order; old text evicted
+    //     window or buckets nonpositive
+    //   rank
+    //     poet: empty, from corpus; same version, after ingesting
+    //   edges
+    //     sequential, parallel; poet empty, ingested after streaming
     //   poem
     //     words in input: 0, 1, >1
     //     input word pairs in graph or not
+    //     bridges indexed or not; indexed before or after ingesting
     
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
@@ -89,6 +144,26 @@ public class GraphPoetTest {
         }
     }
 
+    @Test
+    public void testGraphPoetPruned() {
+        try {
+            File corpus = new File("test/poet/multiple.txt");
+            GraphPoet poet = new GraphPoet(corpus, new GraphPruner(2, 1));
+            Graph<String> graph = poet.getGraph();
+            assertEquals("2 vertices expected", Set.of("hello,", "goodbye!"), graph.vertices());
+            assertEquals("expected light edge dropped", Map.of("hello,", 2), graph.targets("hello,"));
+            GraphPruner.Report report = poet.ingestionReport();
+            assertEquals("expected light edge reported", 1, report.getEdgesRemoved());
+            assertEquals("expected heavy edge reported", 1, report.getEdgesRetained());
+            assertEquals("expected memory reclaimed reported",
+                    GraphPruner.estimatedBytesPerEdge(new PersistentGraph()), report.getBytesReclaimed());
+            assertEquals("expected only the pruned graph published", 1, poet.epoch());
+        }
+        catch (IOException e) {
+            assert false; // should be unreachable
+        }
+    }
+
     @Test 
     public void testGraphPoetPoemEmpty() {
         try {
@@ -139,6 +214,175 @@ public class GraphPoetTest {
     }
 
 
+    @Test
+    public void testGraphPoetShardedPoem() throws IOException {
+        List<GraphShardServer> servers = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            GraphShardServer server = new GraphShardServer();
+            servers.add(server);
+            addresses.add(new InetSocketAddress("localhost", server.getPort()));
+        }
+        try (ShardedGraph graph = new ShardedGraph(addresses)) {
+            GraphPoet poet = new GraphPoet(new File("test/poet/phrases.txt"), graph);
+            String input = "I saw a red fox over the dog.";
+            assertEquals("expected poem", "I saw a fast red fox jumped over the lazy dog.", poet.poem(input));
+        }
+        finally {
+            for (GraphShardServer server : servers) {
+                server.close();
+            }
+        }
+    }
+
+    @Test
+    public void testGraphPoetIngest() throws IOException {
+        GraphPoet poet = new GraphPoet();
+        String input = "I saw a red fox over the dog.";
+        assertEquals("expected empty graph", Collections.emptySet(), poet.getGraph().vertices());
+        assertEquals("expected unchanged poem", input, poet.poem(input));
+        poet.ingest(new File("test/poet/phrases.txt"));
+        assertEquals("expected one epoch", 1, poet.epoch());
+        assertEquals("expected poem", "I saw a fast red fox jumped over the lazy dog.", poet.poem(input));
+    }
+
+    @Test
+    public void testGraphPoetIngestMore() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/multiple.txt"));
+        Graph<String> before = poet.getGraph();
+        poet.ingest(new StringReader("hello, again hello, goodbye!"));
+        assertEquals("expected summed edges from 'hello,'",
+                Map.of("hello,", 2, "goodbye!", 2, "again", 1), poet.getGraph().targets("hello,"));
+        assertEquals("expected earlier graph unchanged",
+                Map.of("hello,", 2, "goodbye!", 1), before.targets("hello,"));
+    }
+
+    @Test
+    public void testGraphPoetFromPathsCompressed() throws IOException {
+        Path directory = Files.createTempDirectory("corpus");
+        Path plain = Files.writeString(directory.resolve("a.txt"), "hello, hello, goodbye!");
+        Path compressed = directory.resolve("b.txt.gz");
+        try (Writer out = new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(compressed)), StandardCharsets.UTF_8)) {
+            out.write("Goodbye! hello, goodbye!");
+        }
+        for (int workers : new int[] { 1, 4 }) {
+            GraphPoet poet = GraphPoet.fromPaths(List.of(plain, compressed), workers);
+            assertEquals("expected words of both files",
+                    Set.of("hello,", "goodbye!"), poet.getGraph().vertices());
+            assertEquals("expected summed edges from 'hello,'",
+                    Map.of("hello,", 1, "goodbye!", 2), poet.getGraph().targets("hello,"));
+            // the last word of a.txt is not adjacent to the first word of b.txt
+            assertEquals("expected edges within files only",
+                    Map.of("hello,", 1), poet.getGraph().targets("goodbye!"));
+        }
+    }
+
+    @Test
+    public void testGraphPoetFromDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("corpus");
+        Files.createDirectories(directory.resolve("nested"));
+        Files.writeString(directory.resolve("nested/a.txt"), "To explore strange new worlds");
+        Files.writeString(directory.resolve("b.txt"), "To seek out new life");
+        Files.writeString(directory.resolve("c.md"), "strange and new");
+        GraphPoet poet = GraphPoet.fromDirectory(directory, "**.txt", 2);
+        assertEquals("expected words of matching files only",
+                Set.of("to", "explore", "strange", "new", "worlds", "seek", "out", "life"),
+                poet.getGraph().vertices());
+        assertEquals("expected poem", "Seek to explore strange new life",
+                poet.poem("Seek to explore new life"));
+    }
+
+    @Test(expected=IOException.class)
+    public void testGraphPoetFromPathsNotFound() throws IOException {
+        GraphPoet.fromPaths(List.of(Paths.get("test/poet/xyz.txt")), 2);
+    }
+
+    @Test
+    public void testGraphPoetPruneExcluded() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/phrases.txt"));
+        String input = "I saw a red fox over the dog.";
+        GraphPruner.Report report = poet.prune(new GraphPruner(1, Integer.MAX_VALUE, List.of("fast", "lazy")));
+        assertEquals("expected edges of excluded words removed", 4, report.getEdgesRemoved());
+        assertEquals("expected pruning epoch after ingestion", 2, poet.epoch());
+        assertFalse("expected excluded word removed", poet.getGraph().vertices().contains("fast"));
+        assertEquals("expected poem without excluded words",
+                "I saw a red fox jumped over the dog.", poet.poem(input));
+    }
+
+    @Test
+    public void testGraphPoetMerge() throws IOException {
+        GraphPoet phrases = new GraphPoet(new File("test/poet/phrases.txt"));
+        GraphPoet multiple = new GraphPoet(new File("test/poet/multiple.txt"));
+        GraphPoet again = new GraphPoet();
+        again.ingest(new StringReader("hello, goodbye!"));
+        GraphPoet merged = GraphPoet.merge(List.of(phrases, multiple, again));
+        assertEquals("expected summed edges from 'hello,'",
+                Map.of("hello,", 2, "goodbye!", 2), merged.getGraph().targets("hello,"));
+        String input = "I saw a red fox over the dog.";
+        assertEquals("expected same poem", phrases.poem(input), merged.poem(input));
+        List<Path> edgeLists = new ArrayList<>();
+        for (GraphPoet poet : List.of(phrases, multiple, again)) {
+            Path edgeList = Files.createTempFile("graph", ".tsv");
+            edgeList.toFile().deleteOnExit();
+            try (Writer out = Files.newBufferedWriter(edgeList, StandardCharsets.UTF_8)) {
+                EdgeList.writeSorted(poet.getGraph(), out);
+            }
+            edgeLists.add(edgeList);
+        }
+        assertEquals("expected same graph from edge lists",
+                merged.toString(), GraphPoet.fromEdgeLists(edgeLists).toString());
+    }
+
+    @Test
+    public void testGraphPoetFromEdgeList() throws IOException {
+        File corpus = new File("test/poet/phrases.txt");
+        GraphPoet original = new GraphPoet(corpus);
+        File edgeList = File.createTempFile("graph", ".tsv");
+        edgeList.deleteOnExit();
+        try (Writer out = Files.newBufferedWriter(edgeList.toPath(), StandardCharsets.UTF_8)) {
+            EdgeList.write(original.getGraph(), out);
+        }
+        GraphPoet poet = GraphPoet.fromEdgeList(edgeList);
+        assertEquals("expected same vertices",
+                original.getGraph().vertices(), poet.getGraph().vertices());
+        String input = "I saw a red fox over the dog.";
+        assertEquals("expected same poem", original.poem(input), poet.poem(input));
+    }
+
+    @Test(expected=IOException.class)
+    public void testGraphPoetFromEdgeListNotFound() throws IOException {
+        GraphPoet.fromEdgeList(new File("test/poet/xyz.tsv"));
+    }
+
+    @Test
+    public void testGraphPoetFromEdgeListParallel() throws IOException {
+        GraphPoet original = new GraphPoet(new File("test/poet/phrases.txt"));
+        Path edgeList = Files.createTempFile("graph", ".tsv");
+        edgeList.toFile().deleteOnExit();
+        try (Writer out = Files.newBufferedWriter(edgeList, StandardCharsets.UTF_8)) {
+            EdgeList.write(original.getGraph(), out);
+        }
+        GraphPoet poet = GraphPoet.fromEdgeList(edgeList, 4);
+        assertEquals("expected same fingerprint", original.fingerprint(), poet.fingerprint());
+        String input = "I saw a red fox over the dog.";
+        assertEquals("expected same poem", original.poem(input), poet.poem(input));
+    }
+
+    @Test
+    public void testGraphPoetIndexedBridges() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/phrases.txt"));
+        String input = "I saw a red fox over the dog. Seek out new life";
+        String expected = poet.poem(input);
+        BridgeFilter filter = poet.indexBridges(0.01);
+        assertTrue("expected two-edge-long paths", filter.pairs() > 0);
+        assertEquals("expected same poem with index", expected, poet.poem(input));
+        poet.ingest(new StringReader("out strange new"));
+        assertEquals("expected index extended after ingesting",
+                "I saw a fast red fox jumped over the lazy dog. Seek out strange new life",
+                poet.poem(input));
+    }
+
     @Test
     public void testGraphPoetToString() {
         try {
@@ -153,4 +397,146 @@ public class GraphPoetTest {
     
     
 
-}
\ No newline at end of file
+
+    @Test
+    public void testGraphPoetEdges() {
+        GraphPoet poet = new GraphPoet();
+        assertEquals("expected no edges", 0, poet.edges(true).count());
+        poet.ingest(new StringReader("to be or not to be"));
+        Stream<WeightedEdge> before = poet.edges(true);
+        poet.ingest(new StringReader("to be"));
+        assertEquals("expected one weight per adjacency before ingesting",
+                5, before.mapToInt(WeightedEdge::getWeight).sum());
+        assertEquals("expected summed weights",
+                6, poet.edges(false).mapToInt(WeightedEdge::getWeight).sum());
+        assertEquals("expected distinct adjacencies", 4, poet.edges(true).count());
+    }
+
+    @Test
+    public void testGraphPoetIngestSaturates() throws IOException {
+        File edgeList = File.createTempFile("graph", ".tsv");
+        edgeList.deleteOnExit();
+        Files.writeString(edgeList.toPath(), "hello,\thello,\t" + (Integer.MAX_VALUE - 1) + "\n");
+        GraphPoet poet = GraphPoet.fromEdgeList(edgeList);
+        poet.ingest(new StringReader("hello, hello, hello, hello,"));
+        assertEquals("expected saturated weight",
+                Map.of("hello,", Integer.MAX_VALUE), poet.getGraph().targets("hello,"));
+    }
+
+    @Test
+    public void testGraphPoetRank() throws IOException {
+        GraphPoet poet = new GraphPoet();
+        assertEquals("expected no words", 0, poet.rank().vertices());
+        poet.ingest(new File("test/poet/multiple.txt"));
+        PageRank rank = poet.rank();
+        assertSame("expected cached ranking", rank, poet.rank());
+        assertEquals("expected most central word", List.of("hello,"), rank.top(1));
+        assertEquals("expected in-strength", 2, rank.inStrength("hello,"));
+        assertEquals("expected out-strength", 3, rank.outStrength("hello,"));
+        poet.ingest(new StringReader("goodbye! hello,"));
+        assertNotSame("expected new ranking", rank, poet.rank());
+        assertEquals("expected new in-strength", 3, poet.rank().inStrength("hello,"));
+    }
+
+    @Test
+    public void testGraphPoetHints() {
+        GraphBuilder empty = GraphPoet.hints(0);
+        assertEquals("expected one word", 1, empty.expectedVertices());
+        GraphBuilder small = GraphPoet.hints(60);
+        assertEquals("expected vocabulary at most the words", 11, small.expectedVertices());
+        GraphBuilder large = GraphPoet.hints(6_000_000);
+        assertTrue("expected sublinear vocabulary: " + large.expectedVertices(),
+                large.expectedVertices() > 10_000 && large.expectedVertices() < 100_000);
+        assertTrue("expected snapshots", large.build() instanceof PersistentGraph);
+        assertTrue("expected snapshots", small.build() instanceof PersistentGraph);
+    }
+
+    @Test
+    public void testGraphPoetHintsSkewedCorpus() {
+        // Zipf-distributed words, counted as if part of a 1 GB corpus
+        Random random = new Random(6005);
+        BigramCounts hinted = new BigramCounts(GraphPoet.hints(1L << 30));
+        BigramCounts unhinted = new BigramCounts();
+        String previousHinted = null, previousUnhinted = null;
+        for (int i = 0; i < 100_000; i++) {
+            String word = "w" + (int) Math.pow(20_000, random.nextDouble());
+            previousHinted = hinted.add(previousHinted, word);
+            previousUnhinted = unhinted.add(previousUnhinted, word);
+        }
+        assertEquals("expected same adjacencies", unhinted.edges(), hinted.edges());
+        assertEquals("expected inner maps no larger than without hints", unhinted.capacity(), hinted.capacity());
+        assertTrue("expected inner maps sized by degree, " + hinted.capacity() + " for " + hinted.edges()
+                + " adjacencies", hinted.capacity() <= 2 * hinted.edges());
+    }
+
+    @Test
+    public void testGraphPoetWindowed() throws IOException {
+        GraphPoet poet = GraphPoet.windowed(4, 2);
+        poet.ingest(new StringReader("test of the system"));
+        assertEquals("expected bridge", "Test of the system", poet.poem("Test the system"));
+        poet.ingest(new StringReader("test a theory and a system"));
+        assertEquals("expected old bridge evicted", "Test the system", poet.poem("Test the system"));
+        assertEquals("expected recent bridge", "and a system", poet.poem("and system"));
+        assertFalse("expected old word removed", poet.getGraph().vertices().contains("of"));
+        assertEquals("expected a version per corpus", 2, poet.epoch());
+
+        poet.ingest(new File("test/poet/multiple.txt"));
+        assertEquals("expected last words", "hello, hello, goodbye!", poet.poem("hello, goodbye!"));
+        assertFalse("expected earlier corpus evicted", poet.getGraph().vertices().contains("theory"));
+    }
+
+    @Test
+    public void testGraphPoetWindowedPathsInOrder() throws IOException {
+        GraphPoet poet = GraphPoet.windowed(3, 3);
+        poet.ingest(List.of(Paths.get("test/poet/phrases.txt"), Paths.get("test/poet/multiple.txt")), 4);
+        GraphPoet last = new GraphPoet(new File("test/poet/multiple.txt"));
+        assertEquals("expected only the last file's words", last.getGraph().vertices(),
+                poet.getGraph().vertices());
+        assertEquals("expected a version per file", 2, poet.epoch());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testGraphPoetWindowedNonpositive() {
+        GraphPoet.windowed(10, 0);
+    }
+
+    @Test
+    public void testGraphPoetFingerprint() throws IOException {
+        GraphPoet poet = new GraphPoet();
+        long empty = poet.fingerprint();
+        poet.ingest(new File("test/poet/multiple.txt"));
+        long ingested = poet.fingerprint();
+        assertNotEquals("expected changed graph", empty, ingested);
+        assertEquals("expected same graph", ingested, new GraphPoet(new File("test/poet/multiple.txt")).fingerprint());
+        poet.ingest(new StringReader(" \n "));
+        assertEquals("expected unchanged graph", ingested, poet.fingerprint());
+        poet.ingest(new StringReader("goodbye! hello,"));
+        assertNotEquals("expected changed graph", ingested, poet.fingerprint());
+        assertEquals("expected fingerprint of the graph", Fingerprint.compute(poet.getGraph()), poet.fingerprint());
+
+        GraphPoet windowed = GraphPoet.windowed(1, 1);
+        windowed.ingest(new StringReader("a b"));
+        long ab = windowed.fingerprint();
+        windowed.ingest(new StringReader("c d a b"));
+        assertEquals("expected the same window", ab, windowed.fingerprint());
+    }
+
+    @Test
+    public void testGraphPoetExport() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/multiple.txt"));
+        StringWriter out = new StringWriter();
+        poet.export(GraphExporter.Format.TEXT, out);
+        assertEquals("expected toString", poet.toString(), out.toString());
+        out = new StringWriter();
+        poet.export(GraphExporter.Format.DOT, out);
+        assertEquals("expected digraph", "digraph {\n"
+                + "  \"hello,\" -> \"hello,\" [weight=2, label=2];\n"
+                + "  \"hello,\" -> \"goodbye!\" [weight=1, label=1];\n"
+                + "}\n", out.toString());
+        out = new StringWriter();
+        poet.export(GraphExporter.Format.EDGE_LIST, out);
+        Graph<String> read = new PersistentGraph();
+        EdgeList.read(new StringReader(out.toString()), read);
+        assertEquals("expected same graph", poet.toString(), read.toString());
+    }
+}
@@ -0,0 +1,51 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for LatencyStats.
+ */
+public class LatencyStatsTest {
+
+    // Testing strategy
+    //   recorded latencies: 0, 1, >1
+    //   percentile: 0, 50, 99, 100
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testLatencyStatsEmpty() {
+        LatencyStats stats = new LatencyStats();
+        assertEquals("expected no requests", 0, stats.count());
+        assertEquals("expected zero percentile", 0, stats.percentile(50));
+        assertEquals("expected zero throughput", 0, stats.throughput(), 0);
+    }
+
+    @Test
+    public void testLatencyStatsSingle() {
+        LatencyStats stats = new LatencyStats();
+        stats.record(7);
+        assertEquals("expected one request", 1, stats.count());
+        assertEquals("expected only latency", 7, stats.percentile(0));
+        assertEquals("expected only latency", 7, stats.percentile(100));
+    }
+
+    @Test
+    public void testLatencyStatsPercentiles() {
+        LatencyStats stats = new LatencyStats();
+        for (int i = 2000; i >= 1; i--) {
+            stats.record(i);
+        }
+        assertEquals("expected all requests", 2000, stats.count());
+        assertEquals("expected median", 1000, stats.percentile(50));
+        assertEquals("expected p99", 1980, stats.percentile(99));
+        assertEquals("expected maximum", 2000, stats.percentile(100));
+        assertTrue("expected positive throughput", stats.throughput() > 0);
+    }
+
+}
@@ -0,0 +1,65 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * Tests for the batch pipeline of Main.
+ */
+public class MainTest {
+
+    // Testing strategy for Main.run
+    //   input lines: 0, 1, >1 (many more than threads and capacity)
+    //   threads: 1, >1
+    //   output order equals input order
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testRunEmptyInput() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/phrases.txt"));
+        StringWriter out = new StringWriter();
+        LatencyStats stats = Main.run(poet, new BufferedReader(new StringReader("")), out, 2, 4);
+        assertEquals("expected no output", "", out.toString());
+        assertEquals("expected no requests", 0, stats.count());
+    }
+
+    @Test
+    public void testRunSingleThread() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/phrases.txt"));
+        StringWriter out = new StringWriter();
+        Main.run(poet, new BufferedReader(new StringReader("I saw a red fox over the dog.\n")), out, 1, 1);
+        assertEquals("expected poem", "I saw a fast red fox jumped over the lazy dog.\n", out.toString());
+    }
+
+    @Test
+    public void testRunPreservesOrder() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/phrases.txt"));
+        StringBuilder input = new StringBuilder(), expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 2 == 0) {
+                input.append("red fox over the dog. ").append(i).append('\n');
+                expected.append("red fox jumped over the lazy dog. ").append(i).append('\n');
+            }
+            else {
+                input.append(i).append('\n');
+                expected.append(i).append('\n');
+            }
+        }
+        StringWriter out = new StringWriter();
+        LatencyStats stats = Main.run(poet, new BufferedReader(new StringReader(input.toString())), out, 4, 8);
+        assertEquals("expected poems in input order", expected.toString(), out.toString());
+        assertEquals("expected every line timed", 1000, stats.count());
+    }
+
+}
@@ -0,0 +1,106 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for NGramModel.
+ */
+public class NGramModelTest {
+
+    // Testing strategy
+    //   fromReader, fromPaths
+    //     order: nonpositive, 1, 2, >2
+    //     corpus: empty, words repeated; >1 corpus file
+    //   count
+    //     ngram: empty, longer than order, absent, present; any case
+    //   bridge, poem
+    //     longest context decides, backs off to shorter context, backs off to
+    //     bigram paths, no bridge
+    //   size, memoryBytes: bytes per n-gram on a large corpus
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testNGramModelNonpositiveOrder() {
+        NGramModel.fromReader(new StringReader("a b"), 0);
+    }
+
+    @Test
+    public void testNGramModelEmpty() {
+        NGramModel model = NGramModel.fromReader(new StringReader(""), 3);
+        assertEquals("expected no n-grams", 0, model.size());
+        assertEquals("expected no words", 0, model.vocabulary());
+        assertEquals("expected unchanged poem", "a b", model.poem("a b"));
+    }
+
+    @Test
+    public void testNGramModelCounts() {
+        NGramModel model = NGramModel.fromReader(new StringReader("The cat the cat THE dog"), 3);
+        assertEquals("expected vocabulary", 3, model.vocabulary());
+        assertEquals("expected unigram count", 3, model.count(List.of("the")));
+        assertEquals("expected bigram count", 2, model.count(List.of("the", "Cat")));
+        assertEquals("expected trigram count", 1, model.count(List.of("cat", "the", "dog")));
+        assertEquals("expected absent n-gram", 0, model.count(List.of("dog", "the")));
+        assertEquals("expected empty n-gram", 0, model.count(List.of()));
+        assertEquals("expected n-gram longer than order", 0, model.count(List.of("the", "cat", "the", "cat")));
+        // 3 words, 3 bigrams (the cat, cat the, the dog), 3 trigrams
+        assertEquals("expected distinct n-grams", 3 + 3 + 3, model.size());
+    }
+
+    @Test
+    public void testNGramModelFromPaths() throws Exception {
+        NGramModel model = NGramModel.fromPaths(
+                List.of(Paths.get("test/poet/phrases.txt"), Paths.get("test/poet/multiple.txt")), 2);
+        assertEquals("expected bigram of first file", 1, model.count(List.of("quick", "brown")));
+        assertEquals("expected bigram of second file", 2, model.count(List.of("hello,", "hello,")));
+        assertEquals("expected no bigram across files", 0, model.count(List.of("dog.", "hello,")));
+    }
+
+    @Test
+    public void testNGramModelTrigramBridge() {
+        // bigram paths prefer a -> y -> c (weight 6), but only "a x c" occurs
+        String corpus = "a y q a y q a y q y c y c y c a x c";
+        NGramModel bigrams = NGramModel.fromReader(new StringReader(corpus), 2);
+        NGramModel trigrams = NGramModel.fromReader(new StringReader(corpus), 3);
+        assertEquals("expected heaviest path bridge", "A y C", bigrams.poem("A C"));
+        assertEquals("expected trigram bridge", "A x C", trigrams.poem("A C"));
+        assertEquals("expected back off to bigram paths", "y c y", trigrams.poem("y y"));
+        assertEquals("expected no bridge", "q a", trigrams.poem("q a"));
+        assertNull("expected no bridge for unknown word", trigrams.bridge(List.of("zzz"), "c"));
+    }
+
+    @Test
+    public void testNGramModelLongerContext() {
+        String corpus = "p a x c . r a y c .";
+        NGramModel trigrams = NGramModel.fromReader(new StringReader(corpus), 3);
+        NGramModel fourgrams = NGramModel.fromReader(new StringReader(corpus), 4);
+        assertEquals("expected first of tied trigrams", "r a x c", trigrams.poem("r a c"));
+        assertEquals("expected 4-gram bridge", "p a x c", fourgrams.poem("p a c"));
+        assertEquals("expected 4-gram bridge", "r a y c", fourgrams.poem("r a c"));
+        assertEquals("expected back off to trigram", "q a x c", fourgrams.poem("q a c"));
+    }
+
+    @Test
+    public void testNGramModelMemory() {
+        Random random = new Random(6005);
+        StringBuilder corpus = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            // Zipf-like vocabulary, as in natural text
+            corpus.append('w').append((int) Math.pow(5000, random.nextDouble())).append(' ');
+        }
+        NGramModel model = NGramModel.fromReader(new StringReader(corpus.toString()), 4);
+        double perNGram = (double) model.memoryBytes() / model.size();
+        assertTrue("expected at most 12 bytes per n-gram, was " + perNGram, perNGram <= 12.01);
+    }
+
+}
@@ -0,0 +1,154 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for PoemServer.
+ */
+public class PoemServerTest {
+
+    // Testing strategy
+    //   constructor
+    //     workers, queueCapacity, maxBatch: zero, positive
+    //   requests per connection: 1, >1
+    //   concurrent clients: 1, >1
+    //   load: below capacity, above capacity (every answer is OK or BUSY)
+
+    private static final String CORPUS = "test/poet/phrases.txt";
+    private static final String INPUT = "I saw a red fox over the dog.";
+    private static final String POEM = "I saw a fast red fox jumped over the lazy dog.";
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testPoemServerNoWorkers() throws IOException {
+        new PoemServer(new GraphPoet(new File(CORPUS)), 0, 0, 1, 1);
+    }
+
+    @Test
+    public void testPoemServerSequentialRequests() throws IOException {
+        try (PoemServer server = new PoemServer(new GraphPoet(new File(CORPUS)), 0, 1, 16, 4);
+                Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            out.println(INPUT);
+            assertEquals("expected poem", "OK " + POEM, in.readLine());
+            out.println("");
+            assertEquals("expected empty poem", "OK ", in.readLine());
+            out.println("The quick dog ran.");
+            assertEquals("expected unchanged poem", "OK The quick dog ran.", in.readLine());
+        }
+    }
+
+    /*
+     * Load test: many concurrent clients against a small queue, checking that
+     * the p50/p99 latency and requests/s of the requests served are sane. Run
+     * main to print them for a longer load.
+     */
+    @Test
+    public void testPoemServerLoad() throws Exception {
+        final int clients = 32, requestsPerClient = 200;
+        AtomicInteger busy = new AtomicInteger(), wrong = new AtomicInteger();
+        LatencyStats stats;
+        try (PoemServer server = new PoemServer(new GraphPoet(new File(CORPUS)), 0, 2, 8, 4)) {
+            stats = load(server, clients, requestsPerClient, POEM, busy, wrong);
+        }
+        assertEquals("expected every request answered with its poem or BUSY", 0, wrong.get());
+        assertEquals("expected every request answered",
+                clients * requestsPerClient, stats.count() + busy.get());
+        assertTrue("expected some requests served", stats.count() > 0);
+        assertTrue("expected positive median latency", stats.percentile(50) > 0);
+        assertTrue("expected p99 at least the median", stats.percentile(99) >= stats.percentile(50));
+        assertTrue("expected positive throughput", stats.throughput() > 0);
+    }
+
+    /**
+     * Send INPUT from concurrent clients, each on its own connection, and
+     * record the latency of every request answered with a poem.
+     *
+     * @param server server to load
+     * @param clients number of concurrent clients
+     * @param requestsPerClient number of requests each client sends in turn
+     * @param poem expected poem for INPUT, or null to accept any poem
+     * @param busy incremented for each request answered BUSY
+     * @param wrong incremented for each other answer, and each failed client
+     * @return latencies of the requests answered with a poem
+     * @throws InterruptedException if interrupted while waiting for clients
+     */
+    private static LatencyStats load(PoemServer server, int clients, int requestsPerClient, String poem,
+            AtomicInteger busy, AtomicInteger wrong) throws InterruptedException {
+        LatencyStats stats = new LatencyStats();
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                        PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+                        BufferedReader in = new BufferedReader(
+                                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                    for (int i = 0; i < requestsPerClient; i++) {
+                        long start = System.nanoTime();
+                        out.println(INPUT);
+                        String answer = in.readLine();
+                        if ("BUSY".equals(answer)) {
+                            busy.incrementAndGet();
+                        } else if (answer != null
+                                && (poem == null ? answer.startsWith("OK ") : answer.equals("OK " + poem))) {
+                            stats.record(System.nanoTime() - start);
+                        } else {
+                            wrong.incrementAndGet();
+                        }
+                    }
+                } catch (IOException e) {
+                    wrong.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return stats;
+    }
+
+    /**
+     * Run a load test against a poem server and print its p50/p99 latency and
+     * requests/s.
+     *
+     * @param args optionally corpus file (default the test corpus), clients
+     *             (default 32), requests per client (default 1000), workers
+     *             (default the number of processors), queue capacity (default
+     *             1024) and maximum batch size (default 32)
+     * @throws Exception if the corpus cannot be read or the load is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        String corpus = args.length > 0 ? args[0] : CORPUS;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int requestsPerClient = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int workers = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int capacity = args.length > 4 ? Integer.parseInt(args[4]) : 1024;
+        int maxBatch = args.length > 5 ? Integer.parseInt(args[5]) : 32;
+        AtomicInteger busy = new AtomicInteger(), wrong = new AtomicInteger();
+        try (PoemServer server = new PoemServer(new GraphPoet(new File(corpus)), 0, workers, capacity, maxBatch)) {
+            System.out.println(load(server, clients, requestsPerClient, null, busy, wrong)
+                    + ", " + busy.get() + " busy, " + wrong.get() + " failed");
+        }
+    }
+
+}
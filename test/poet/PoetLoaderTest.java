@@ -0,0 +1,122 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Tests for PoetLoader and GraphPoet.loadAsync.
+ */
+public class PoetLoaderTest {
+
+    // Testing strategy
+    //   loadAsync
+    //     corpora: plain and gzip-compressed; one doesn't exist
+    //   isReady, awaitReady, future: before loading, after success, failure,
+    //     cancellation
+    //   poemAsync: queued before loading finishes, after failure
+    //   progress: bytesRead, totalBytes, edges before and after loading
+    //   cancel: before loading starts, after it finished
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testLoadAsync() throws Exception {
+        Path directory = Files.createTempDirectory("corpus");
+        Path compressed = directory.resolve("phrases.txt.gz");
+        try (Writer out = new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(compressed)), StandardCharsets.UTF_8)) {
+            out.write(Files.readString(Paths.get("test/poet/phrases.txt")));
+        }
+        List<Path> corpora = List.of(compressed, Paths.get("test/poet/multiple.txt"));
+        List<Runnable> tasks = new ArrayList<>();
+        PoetLoader loader = GraphPoet.loadAsync(corpora, tasks::add);
+        CompletableFuture<String> poem = loader.poemAsync("I saw a red fox over the dog.");
+        assertFalse("expected not ready before loading", loader.isReady());
+        assertFalse("expected poem pending", poem.isDone());
+        assertEquals("expected nothing read", 0, loader.bytesRead());
+        assertEquals("expected one task", 1, tasks.size());
+        tasks.get(0).run();
+        assertTrue("expected ready", loader.isReady());
+        assertEquals("expected poem after loading",
+                "I saw a fast red fox jumped over the lazy dog.", poem.get());
+        assertEquals("expected all bytes read", Files.size(compressed) + Files.size(corpora.get(1)),
+                loader.bytesRead());
+        assertEquals("expected total bytes", loader.bytesRead(), loader.totalBytes());
+        GraphPoet poet = loader.awaitReady();
+        long edges = 0;
+        for (String vertex : poet.getGraph().vertices()) {
+            edges += poet.getGraph().targets(vertex).size();
+        }
+        assertEquals("expected edges counted", edges, loader.edges());
+        assertSame("expected same poet from future", poet, loader.future().get());
+        assertFalse("expected finished loading not cancelled", loader.cancel());
+        assertTrue("expected ready in string", loader.toString().endsWith("ready"));
+    }
+
+    @Test
+    public void testLoadAsyncOnExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            PoetLoader loader = GraphPoet.loadAsync(List.of(Paths.get("test/poet/phrases.txt")), executor);
+            assertEquals("expected poem", "Fox ran quickly", loader.poemAsync("Fox quickly").get());
+            assertTrue("expected ready", loader.isReady());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLoadAsyncNotFound() throws InterruptedException {
+        PoetLoader loader = GraphPoet.loadAsync(List.of(Paths.get("test/poet/xyz.txt")), Runnable::run);
+        assertFalse("expected not ready", loader.isReady());
+        try {
+            loader.awaitReady();
+            fail("expected IOException");
+        } catch (IOException e) {
+        }
+        try {
+            loader.poemAsync("a b").get();
+            fail("expected failed poem");
+        } catch (ExecutionException e) {
+            assertTrue("expected IOException cause", e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testLoadAsyncCancelled() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        PoetLoader loader = GraphPoet.loadAsync(List.of(Paths.get("test/poet/phrases.txt")), tasks::add);
+        CompletableFuture<String> poem = loader.poemAsync("a b");
+        assertTrue("expected cancelled", loader.cancel());
+        tasks.get(0).run();
+        assertFalse("expected not ready", loader.isReady());
+        assertTrue("expected poem cancelled", poem.isCompletedExceptionally());
+        assertTrue("expected cancelled in string", loader.toString().endsWith("cancelled"));
+        try {
+            loader.awaitReady();
+            fail("expected CancellationException");
+        } catch (CancellationException e) {
+        }
+    }
+
+}
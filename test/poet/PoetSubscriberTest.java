@@ -0,0 +1,300 @@
+package poet;
+
+import static org.junit.Assert.*;
+import static graph.TestGraphs.assertSameGraph;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import graph.Graph;
+
+/**
+ * Tests for PoetSubscriber.
+ */
+public class PoetSubscriberTest {
+
+    // Testing strategy
+    //   PoetSubscriber: buffer, batchWords positive, nonpositive; maxDelay
+    //     negative
+    //   chunks: words split across chunk boundaries, whitespace-only chunks,
+    //     last chunk without trailing whitespace; publisher faster than
+    //     ingestion
+    //   poet: unbounded, windowed
+    //   versions: one per batch, after maxDelay 0 one per nonempty chunk,
+    //     after maxDelay with no further chunk
+    //   completion: stream completes, fails after some words, cancelled,
+    //     sent a chunk not requested; subscribed twice
+    //   long stream from an in-process publisher
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static final String TEXT = "To explore strange new worlds\n"
+            + "To seek out new life and new civilizations  and NEW life";
+
+    /**
+     * Split text into chunks of random lengths, most of them inside words.
+     */
+    private static List<String> chunks(String text, int maxLength, long seed) {
+        Random random = new Random(seed);
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < text.length(); ) {
+            int end = Math.min(text.length(), i + 1 + random.nextInt(maxLength));
+            chunks.add(text.substring(i, end));
+            i = end;
+        }
+        return chunks;
+    }
+
+    private static long publish(PoetSubscriber subscriber, List<String> chunks, int buffer) throws Exception {
+        try (SubmissionPublisher<CharSequence> publisher = new SubmissionPublisher<>(
+                Executors.newSingleThreadExecutor(), buffer)) {
+            publisher.subscribe(subscriber);
+            for (String chunk : chunks) {
+                publisher.submit(chunk);
+            }
+        }
+        return subscriber.completion().get(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSubscriberMatchesReader() throws Exception {
+        GraphPoet expected = new GraphPoet();
+        expected.ingest(new StringReader(TEXT));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            GraphPoet poet = new GraphPoet();
+            PoetSubscriber subscriber = poet.subscriber(executor, 2, 4, 60_000);
+            List<String> chunks = chunks(TEXT, 5, 6005);
+            chunks.add(" \n ");
+            assertEquals("expected words", 16, publish(subscriber, chunks, 2));
+            assertSameGraph(expected.getGraph(), poet.getGraph());
+            assertTrue("expected a version per batch of at least 4 words",
+                    subscriber.versions() >= 1 && subscriber.versions() <= 4);
+            assertTrue("expected bounded buffer", subscriber.maxBuffered() <= 2);
+            assertEquals("expected toString",
+                    "16 words, " + subscriber.versions() + " versions, 0 of 2 chunks buffered", subscriber.toString());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubscriberWindowed() throws Exception {
+        GraphPoet expected = new GraphPoet();
+        expected.ingest(new StringReader("new civilizations and NEW life"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            GraphPoet poet = GraphPoet.windowed(4, 4);
+            PoetSubscriber subscriber = poet.subscriber(executor, 2, 3, 60_000);
+            assertEquals("expected words", 16, publish(subscriber, chunks(TEXT, 5, 6005), 2));
+            assertSameGraph(expected.getGraph(), poet.getGraph());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubscriberMaxDelay() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            GraphPoet poet = new GraphPoet();
+            PoetSubscriber subscriber = poet.subscriber(executor, 4, 1000, 0);
+            publish(subscriber, List.of("a b", " c ", "   ", "d"), 4);
+            assertEquals("expected a version per chunk with a word", 3, subscriber.versions());
+            assertEquals("expected c -> d", (Integer) 1, poet.getGraph().targets("c").get("d"));
+            assertEquals("expected b -> c across chunks", (Integer) 1, poet.getGraph().targets("b").get("c"));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubscriberMaxDelayWithoutChunks() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            GraphPoet poet = new GraphPoet();
+            PoetSubscriber subscriber = poet.subscriber(executor, 4, 1000, 20);
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override public void request(long n) { }
+                @Override public void cancel() { }
+            });
+            subscriber.onNext("a b c ");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (subscriber.versions() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals("expected a version after the delay", 1, subscriber.versions());
+            assertEquals("expected b -> c", (Integer) 1, poet.getGraph().targets("b").get("c"));
+            assertFalse("expected stream still open", subscriber.completion().isDone());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubscriberError() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            GraphPoet poet = new GraphPoet();
+            PoetSubscriber subscriber = poet.subscriber(executor, 4, 1000, 60_000);
+            SubmissionPublisher<CharSequence> publisher = new SubmissionPublisher<>(
+                    Executors.newSingleThreadExecutor(), 4);
+            publisher.subscribe(subscriber);
+            publisher.submit("hello wor");
+            publisher.submit("ld ");
+            while (subscriber.words() < 2) {
+                Thread.sleep(1);
+            }
+            publisher.closeExceptionally(new IllegalStateException("socket closed"));
+            try {
+                subscriber.completion().get(30, TimeUnit.SECONDS);
+                fail("expected failure");
+            }
+            catch (ExecutionException e) {
+                assertEquals("expected cause", "socket closed", e.getCause().getMessage());
+            }
+            assertEquals("expected words received before the failure", (Integer) 1,
+                    poet.getGraph().targets("hello").get("world"));
+            assertEquals("expected one version", 1, subscriber.versions());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubscriberCancel() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            GraphPoet poet = new GraphPoet();
+            PoetSubscriber subscriber = poet.subscriber(executor, 4, 1000, 60_000);
+            boolean[] cancelled = { false };
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override public void request(long n) { }
+                @Override public void cancel() { cancelled[0] = true; }
+            });
+            subscriber.onNext("a b ");
+            assertTrue("expected cancelled", subscriber.cancel());
+            assertTrue("expected subscription cancelled", cancelled[0]);
+            assertFalse("expected cancelled once", subscriber.cancel());
+            CompletableFuture<Long> completion = subscriber.completion();
+            assertTrue("expected completed exceptionally", completion.isCompletedExceptionally());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubscriberUnrequestedChunk() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            PoetSubscriber[] subscriber = { null };
+            long[] requested = { 0 };
+            boolean[] cancelled = { false };
+            // the publisher sends another chunk while the drain publishes the
+            // first one, before it has requested a chunk to replace it
+            GraphPoet poet = new GraphPoet() {
+                @Override void ingest(BigramCounts counts) {
+                    super.ingest(counts);
+                    subscriber[0].onNext("c d ");
+                }
+            };
+            subscriber[0] = poet.subscriber(executor, 1, 1, 0);
+            subscriber[0].onSubscribe(new Flow.Subscription() {
+                @Override public void request(long n) { requested[0] += n; }
+                @Override public void cancel() { cancelled[0] = true; }
+            });
+            subscriber[0].onNext("a b ");
+            try {
+                subscriber[0].completion().get(30, TimeUnit.SECONDS);
+                fail("expected failure");
+            }
+            catch (ExecutionException e) {
+                assertTrue("expected IllegalStateException", e.getCause() instanceof IllegalStateException);
+            }
+            assertTrue("expected subscription cancelled", cancelled[0]);
+            assertEquals("expected only the buffer requested", 1, requested[0]);
+            assertNull("expected unrequested chunk not counted", poet.getGraph().targets("c").get("d"));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSubscriberSubscribedTwice() {
+        PoetSubscriber subscriber = new GraphPoet().subscriber(Runnable::run, 3, 10, 0);
+        long[] requested = { 0 };
+        boolean[] cancelled = { false };
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override public void request(long n) { requested[0] += n; }
+            @Override public void cancel() { }
+        });
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override public void request(long n) { fail("expected no request"); }
+            @Override public void cancel() { cancelled[0] = true; }
+        });
+        assertEquals("expected buffer requested", 3, requested[0]);
+        assertTrue("expected second subscription cancelled", cancelled[0]);
+        subscriber.onNext("one two ");
+        assertEquals("expected a chunk requested after counting", 4, requested[0]);
+        assertEquals("expected words", 2, subscriber.words());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSubscriberBufferNonpositive() {
+        new GraphPoet().subscriber(Runnable::run, 0, 10, 0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSubscriberBatchNonpositive() {
+        new GraphPoet().subscriber(Runnable::run, 1, 0, 0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSubscriberDelayNegative() {
+        new GraphPoet().subscriber(Runnable::run, 1, 1, -1);
+    }
+
+    @Test
+    public void testSubscriberLongStream() throws Exception {
+        Random random = new Random(6005);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            // skewed vocabulary, as in natural text
+            text.append("w").append((int) Math.pow(5000, random.nextDouble())).append(i % 20 == 0 ? '\n' : ' ');
+        }
+        List<String> chunks = chunks(text.toString(), 4096, 6005);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            GraphPoet poet = new GraphPoet();
+            PoetSubscriber subscriber = poet.subscriber(executor, 16, 20_000, 1_000);
+            long words = publish(subscriber, chunks, 16);
+            assertEquals("expected all words", 200_000, words);
+            assertTrue("expected bounded buffer", subscriber.maxBuffered() <= 16);
+            assertTrue("expected periodic versions", subscriber.versions() >= 2);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import graph.Graph;
+import graph.PersistentGraph;
+
+/**
+ * Tests for RandomWalker.
+ */
+public class RandomWalkerTest {
+
+    // Testing strategy
+    //   walk
+    //     length: 0, 1, >1; walk reaches a word with no edges or doesn't
+    //     start: in graph with any case, not in graph
+    //     same seed, different seeds
+    //     edge weights: equal, unequal (observed frequencies)
+    //   walks
+    //     graph: empty, nonempty; count: 0, >1
+    //     reproducible for a seed
+    //   tablesBuilt: only for words stepped from
+    //   GraphPoet.walker(): same walker until the next version
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testWalkLengths() {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        RandomWalker walker = new RandomWalker(graph);
+        assertEquals("expected empty walk", List.of(), walker.walk("a", 0, 1));
+        assertEquals("expected start only", List.of("a"), walker.walk("A", 1, 1));
+        assertEquals("expected walk to dead end", List.of("a", "b", "c"), walker.walk("a", 10, 1));
+        assertEquals("expected walk from missing word", List.of("x"), walker.walk("x", 10, 1));
+        assertEquals("expected tables for a, b, c and x", 4, walker.tablesBuilt());
+    }
+
+    @Test
+    public void testWalkLazyTables() {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("a", "b", 1);
+        graph.set("c", "d", 1);
+        RandomWalker walker = new RandomWalker(graph);
+        assertEquals("expected no tables", 0, walker.tablesBuilt());
+        walker.walk("a", 2, 1);
+        assertEquals("expected table for a only", 1, walker.tablesBuilt());
+    }
+
+    @Test
+    public void testWalkWeightedFrequencies() {
+        Graph<String> graph = new PersistentGraph();
+        graph.set("a", "a", 1);
+        graph.set("a", "b", 3);
+        graph.set("b", "a", 1);
+        RandomWalker walker = new RandomWalker(graph);
+        Map<String, Integer> counts = new HashMap<>();
+        for (long seed = 0; seed < 20000; seed++) {
+            counts.merge(walker.walk("a", 2, seed).get(1), 1, Integer::sum);
+        }
+        assertEquals("expected about 3/4 of steps to b", 0.75, counts.get("b") / 20000.0, 0.02);
+    }
+
+    @Test
+    public void testWalkReproducible() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/phrases.txt"));
+        RandomWalker walker = poet.walker();
+        assertEquals("expected same walk for same seed",
+                walker.walk("the", 20, 42), new RandomWalker(poet.getGraph()).walk("the", 20, 42));
+        List<List<String>> walks = walker.walks(100, 8, 6005);
+        assertEquals("expected count walks", 100, walks.size());
+        assertEquals("expected same walks for same seed", walks, walker.walks(100, 8, 6005));
+        for (List<String> walk : walks) {
+            assertFalse("expected nonempty walk", walk.isEmpty());
+            for (int i = 1; i < walk.size(); i++) {
+                assertTrue("expected walk along edges",
+                        poet.getGraph().targets(walk.get(i - 1)).containsKey(walk.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testWalksEmptyGraph() {
+        RandomWalker walker = new RandomWalker(new PersistentGraph());
+        assertEquals("expected no walks", List.of(), walker.walks(0, 5, 1));
+        assertEquals("expected empty walks", List.of(List.of(), List.of()), walker.walks(2, 5, 1));
+    }
+
+    @Test
+    public void testGraphPoetWalkerPerVersion() throws IOException {
+        GraphPoet poet = new GraphPoet(new File("test/poet/phrases.txt"));
+        RandomWalker walker = poet.walker();
+        assertSame("expected same walker for same version", walker, poet.walker());
+        poet.ingest(new StringReader("dog. bites man"));
+        assertNotSame("expected new walker for new version", walker, poet.walker());
+    }
+
+}
@@ -0,0 +1,132 @@
+package poet;
+
+import static org.junit.Assert.*;
+import static graph.TestGraphs.assertSameGraph;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+
+import org.junit.Test;
+
+import graph.Graph;
+import graph.PersistentGraph;
+
+/**
+ * Tests for SlidingWindow.
+ */
+public class SlidingWindowTest {
+
+    // Testing strategy
+    //   SlidingWindow: window, buckets positive, nonpositive; window divisible
+    //     by buckets or not
+    //   add(Scanner): fewer words than a bucket, exactly a bucket, many
+    //     buckets; repeated corpora not adjacent
+    //   addAll: continues the stream across calls
+    //   eviction: edge weight decremented, edge removed, word removed, word
+    //     kept while it still occurs in the window, adjacency spanning buckets
+    //   graph compared to the graph of the text in the window, on a long
+    //     random stream; size stays bounded; words tracked are those of the
+    //     window
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * @return the affinity graph of words, counted from scratch
+     */
+    private static Graph<String> graphOf(List<String> words) {
+        Graph<String> graph = new PersistentGraph();
+        BigramCounts counts = new BigramCounts();
+        String previous = null;
+        for (String word : words) {
+            previous = counts.add(previous, word);
+        }
+        counts.addTo(graph);
+        return graph;
+    }
+
+    @Test
+    public void testWithinFirstBucket() {
+        SlidingWindow window = new SlidingWindow(10, 2);
+        Graph<String> graph = new PersistentGraph();
+        window.add(new Scanner(new StringReader("To be OR not")), graph);
+        assertEquals("expected bucket size", 5, window.bucketWords());
+        assertSameGraph(graphOf(List.of("to", "be", "or", "not")), graph);
+        assertEquals("expected words", 4, window.words());
+        assertEquals("expected toString", "window of 4 of 4 words, 2 buckets of 5 words", window.toString());
+    }
+
+    @Test
+    public void testEviction() {
+        // buckets of 2 words: [a b] [a c] [d a] [c]
+        SlidingWindow window = new SlidingWindow(4, 2);
+        Graph<String> graph = new PersistentGraph();
+        window.addAll(List.of("a", "b", "a", "c", "d", "a", "c"), graph);
+        assertSameGraph(graphOf(List.of("b", "a", "c", "d", "a", "c")), graph);
+        assertEquals("expected a -> c decremented", (Integer) 2, graph.targets("a").get("c"));
+        assertEquals("expected words", 5, window.words());
+
+        // evicts [a c], keeping c -> d
+        window.addAll(List.of("x"), graph);
+        assertSameGraph(graphOf(List.of("c", "d", "a", "c", "x")), graph);
+        assertFalse("expected b removed", graph.vertices().contains("b"));
+    }
+
+    @Test
+    public void testCorporaNotAdjacent() {
+        SlidingWindow window = new SlidingWindow(100, 4);
+        Graph<String> graph = new PersistentGraph();
+        window.add(new Scanner("one two"), graph);
+        window.add(new Scanner("three"), graph);
+        assertEquals("expected no adjacency across corpora", Map.of(), graph.targets("two"));
+        assertTrue("expected lone word", graph.vertices().contains("three"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testWindowNonpositive() {
+        new SlidingWindow(0, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBucketsNonpositive() {
+        new SlidingWindow(1, 0);
+    }
+
+    @Test
+    public void testLongStream() {
+        Random random = new Random(6005);
+        int window = 1000;
+        int buckets = 8;
+        SlidingWindow sliding = new SlidingWindow(window, buckets);
+        Graph<String> graph = new PersistentGraph();
+        List<String> stream = new ArrayList<>();
+        int maxVertices = 0;
+        for (int batch = 0; batch < 100; batch++) {
+            List<String> words = new ArrayList<>();
+            for (int i = random.nextInt(300); i > 0; i--) {
+                // vocabulary drifts over time, so old words must be evicted
+                words.add("w" + (batch * 10 + (int) Math.pow(500, random.nextDouble())));
+            }
+            stream.addAll(words);
+            sliding.addAll(words, graph);
+            maxVertices = Math.max(maxVertices, graph.vertices().size());
+
+            int live = (int) sliding.words();
+            assertTrue("expected at least the window", live >= Math.min(window, stream.size()));
+            assertTrue("expected less than one bucket more", live < window + sliding.bucketWords());
+            // the word before the window is kept, with its adjacency into it
+            List<String> recent = stream.subList(Math.max(0, stream.size() - live - 1), stream.size());
+            assertSameGraph(graphOf(recent), graph);
+            assertEquals("expected tracked words of the window", new HashSet<>(recent).size(),
+                    sliding.distinctWords());
+        }
+        assertTrue("expected bounded size", maxVertices <= window + sliding.bucketWords() + 1);
+    }
+}